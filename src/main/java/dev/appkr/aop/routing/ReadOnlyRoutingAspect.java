@@ -0,0 +1,46 @@
+package dev.appkr.aop.routing;
+
+import dev.appkr.config.ReplicaRoutingConnectionFactory;
+import java.lang.reflect.Method;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Aspect for telling the {@link ReplicaRoutingConnectionFactory} which transactions are read-only.
+ * <p>
+ * It runs around the transaction interceptor, so that the connection opened when the transaction begins already sees
+ * the flag in the Reactor context.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReadOnlyRoutingAspect {
+
+    private final TransactionAttributeSource transactionAttributeSource = new AnnotationTransactionAttributeSource();
+
+    @Around(
+        "@within(org.springframework.transaction.annotation.Transactional)" +
+        " || @annotation(org.springframework.transaction.annotation.Transactional)"
+    )
+    public Object routeTransaction(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object result = joinPoint.proceed();
+        if (!(result instanceof Mono) && !(result instanceof Flux)) {
+            return result;
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        TransactionAttribute attribute = transactionAttributeSource.getTransactionAttribute(method, joinPoint.getTarget().getClass());
+        boolean readOnly = attribute != null && attribute.isReadOnly();
+        if (result instanceof Mono) {
+            return ((Mono<?>) result).contextWrite(context -> ReplicaRoutingConnectionFactory.readOnly(context, readOnly));
+        }
+        return ((Flux<?>) result).contextWrite(context -> ReplicaRoutingConnectionFactory.readOnly(context, readOnly));
+    }
+}
@@ -0,0 +1,43 @@
+package dev.appkr.aop.timing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+/**
+ * {@link Endpoint @Endpoint} to switch the method timing by package or class at runtime, the way the {@code loggers}
+ * endpoint sets the logging levels: {@code POST /management/methodtimings/dev.appkr.repository} with
+ * {@code {"enabled": false}} switches off the timing of the repositories, and with {@code {"enabled": null}} falls back on
+ * the switch of the enclosing package.
+ */
+@Endpoint(id = "methodtimings")
+public class MethodTimingEndpoint {
+
+    private final MethodTimingInterceptor interceptor;
+
+    public MethodTimingEndpoint(MethodTimingInterceptor interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    @ReadOperation
+    public Map<String, Object> switches() {
+        return Map.of("switches", interceptor.getSwitches());
+    }
+
+    @ReadOperation
+    public Map<String, Object> timing(@Selector String name) {
+        Map<String, Object> timing = new LinkedHashMap<>();
+        timing.put("configured", interceptor.getSwitches().get(name));
+        timing.put("effective", interceptor.isEnabled(name));
+        return timing;
+    }
+
+    @WriteOperation
+    public void configure(@Selector String name, @Nullable Boolean enabled) {
+        interceptor.setSwitch(name, enabled);
+    }
+}
@@ -0,0 +1,200 @@
+package dev.appkr.aop.timing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Times the methods of the Spring components, as the {@code method.execution} timer tagged with the simple name of
+ * the component, the name of the method and the outcome: {@code success}, {@code error} or {@code cancel}.
+ * <p>
+ * The methods which return a {@link Mono} or a {@link Flux} are timed from the subscription to the termination or the
+ * cancellation of their result, each time it is subscribed, rather than while it is assembled; the other methods while
+ * they run.
+ * <p>
+ * The timing is switched on and off by package, or by class, like the logging levels: the most specific switch of the
+ * component wins, and it is on when none is set. The switches can be changed at runtime; a switched off method costs
+ * a map lookup.
+ */
+public class MethodTimingInterceptor implements MethodInterceptor {
+
+    public static final String TIMER_NAME = "method.execution";
+
+    private final Supplier<MeterRegistry> meterRegistry;
+
+    private final Map<String, Boolean> switches = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, Map<Method, MethodTimers>> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @param meterRegistry supplies the registry of the timers, on the first call.
+     * @param switches the initial switches, by package or class name.
+     */
+    public MethodTimingInterceptor(Supplier<MeterRegistry> meterRegistry, Map<String, Boolean> switches) {
+        this.meterRegistry = meterRegistry;
+        this.switches.putAll(switches);
+    }
+
+    /**
+     * @return the switches which are set, by package or class name.
+     */
+    public Map<String, Boolean> getSwitches() {
+        return new TreeMap<>(switches);
+    }
+
+    /**
+     * Switch the timing of a package or class.
+     *
+     * @param name the name of the package or class.
+     * @param enabled whether to time its methods, or null to fall back on the switch of the enclosing package.
+     */
+    public void setSwitch(String name, Boolean enabled) {
+        if (enabled != null) {
+            switches.put(name, enabled);
+        } else {
+            switches.remove(name);
+        }
+        timers.clear();
+    }
+
+    /**
+     * @param name the name of a package or class.
+     * @return whether the methods of the package or class are timed.
+     */
+    public boolean isEnabled(String name) {
+        String prefix = name;
+        while (true) {
+            Boolean enabled = switches.get(prefix);
+            if (enabled != null) {
+                return enabled;
+            }
+            int dot = prefix.lastIndexOf('.');
+            if (dot < 0) {
+                return true;
+            }
+            prefix = prefix.substring(0, dot);
+        }
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MethodTimers methodTimers = methodTimers(invocation);
+        if (methodTimers == MethodTimers.DISABLED) {
+            return invocation.proceed();
+        }
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            methodTimers.record(SignalType.ON_ERROR, start);
+            throw e;
+        }
+        if (result instanceof Mono) {
+            Mono<?> mono = (Mono<?>) result;
+            return Mono.defer(
+                () -> {
+                    long subscribed = System.nanoTime();
+                    return mono.doFinally(signal -> methodTimers.record(signal, subscribed));
+                }
+            );
+        }
+        if (result instanceof Flux) {
+            Flux<?> flux = (Flux<?>) result;
+            return Flux.defer(
+                () -> {
+                    long subscribed = System.nanoTime();
+                    return flux.doFinally(signal -> methodTimers.record(signal, subscribed));
+                }
+            );
+        }
+        methodTimers.record(SignalType.ON_COMPLETE, start);
+        return result;
+    }
+
+    private MethodTimers methodTimers(MethodInvocation invocation) {
+        Class<?> proxyClass = invocation instanceof ProxyMethodInvocation
+            ? ((ProxyMethodInvocation) invocation).getProxy().getClass()
+            : invocation.getThis().getClass();
+        return timers
+            .computeIfAbsent(proxyClass, type -> new ConcurrentHashMap<>())
+            .computeIfAbsent(invocation.getMethod(), method -> resolve(invocation, method));
+    }
+
+    private MethodTimers resolve(MethodInvocation invocation, Method method) {
+        Class<?> component = componentClass(invocation);
+        if (!isEnabled(component.getName())) {
+            return MethodTimers.DISABLED;
+        }
+        return new MethodTimers(meterRegistry.get(), component.getSimpleName(), method.getName());
+    }
+
+    /**
+     * The class the component is declared with: the interface annotated as a component of an interface-based proxy,
+     * such as a Spring Data repository, else the class of the component.
+     */
+    private static Class<?> componentClass(MethodInvocation invocation) {
+        if (invocation instanceof ProxyMethodInvocation) {
+            Object proxy = ((ProxyMethodInvocation) invocation).getProxy();
+            if (Proxy.isProxyClass(proxy.getClass())) {
+                for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(proxy.getClass())) {
+                    if (AnnotationUtils.findAnnotation(type, Component.class) != null) {
+                        return type;
+                    }
+                }
+            }
+        }
+        return ClassUtils.getUserClass(invocation.getThis());
+    }
+
+    private static final class MethodTimers {
+
+        private static final MethodTimers DISABLED = new MethodTimers();
+
+        private final Timer success;
+        private final Timer error;
+        private final Timer cancel;
+
+        private MethodTimers() {
+            this.success = null;
+            this.error = null;
+            this.cancel = null;
+        }
+
+        private MethodTimers(MeterRegistry meterRegistry, String component, String method) {
+            this.success = timer(meterRegistry, component, method, "success");
+            this.error = timer(meterRegistry, component, method, "error");
+            this.cancel = timer(meterRegistry, component, method, "cancel");
+        }
+
+        private static Timer timer(MeterRegistry meterRegistry, String component, String method, String outcome) {
+            return Timer
+                .builder(TIMER_NAME)
+                .description("Execution time of the methods of the Spring components, until their result terminates")
+                .tag("class", component)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+        }
+
+        private void record(SignalType signal, long start) {
+            Timer timer = signal == SignalType.ON_ERROR ? error : signal == SignalType.CANCEL ? cancel : success;
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package dev.appkr.config;
 
+import dev.appkr.service.CountStrategy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -9,4 +15,447 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * See {@link tech.jhipster.config.JHipsterProperties} for a good example.
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
-public class ApplicationProperties {}
+public class ApplicationProperties {
+
+    private final Pagination pagination = new Pagination();
+
+    private final Catalogue catalogue = new Catalogue();
+
+    private final Persistence persistence = new Persistence();
+
+    private final CacheInvalidation cacheInvalidation = new CacheInvalidation();
+
+    private final Security security = new Security();
+
+    private final MethodTiming methodTiming = new MethodTiming();
+
+    private final MailOutbox mailOutbox = new MailOutbox();
+
+    private final UserPurge userPurge = new UserPurge();
+
+    public Pagination getPagination() {
+        return pagination;
+    }
+
+    public Catalogue getCatalogue() {
+        return catalogue;
+    }
+
+    public Persistence getPersistence() {
+        return persistence;
+    }
+
+    public CacheInvalidation getCacheInvalidation() {
+        return cacheInvalidation;
+    }
+
+    public Security getSecurity() {
+        return security;
+    }
+
+    public MethodTiming getMethodTiming() {
+        return methodTiming;
+    }
+
+    public MailOutbox getMailOutbox() {
+        return mailOutbox;
+    }
+
+    public UserPurge getUserPurge() {
+        return userPurge;
+    }
+
+    public static class Pagination {
+
+        private CountStrategy defaultCountStrategy = CountStrategy.EXACT;
+
+        private Map<String, CountStrategy> countStrategy = new HashMap<>();
+
+        private Duration approximateCountTtl = Duration.ofMinutes(1);
+
+        public CountStrategy getDefaultCountStrategy() {
+            return defaultCountStrategy;
+        }
+
+        public void setDefaultCountStrategy(CountStrategy defaultCountStrategy) {
+            this.defaultCountStrategy = defaultCountStrategy;
+        }
+
+        public Map<String, CountStrategy> getCountStrategy() {
+            return countStrategy;
+        }
+
+        public void setCountStrategy(Map<String, CountStrategy> countStrategy) {
+            this.countStrategy = countStrategy;
+        }
+
+        public Duration getApproximateCountTtl() {
+            return approximateCountTtl;
+        }
+
+        public void setApproximateCountTtl(Duration approximateCountTtl) {
+            this.approximateCountTtl = approximateCountTtl;
+        }
+    }
+
+    public static class Catalogue {
+
+        private int exportPrefetch = 256;
+
+        private int importBatchSize = 500;
+
+        public int getExportPrefetch() {
+            return exportPrefetch;
+        }
+
+        public void setExportPrefetch(int exportPrefetch) {
+            this.exportPrefetch = exportPrefetch;
+        }
+
+        public int getImportBatchSize() {
+            return importBatchSize;
+        }
+
+        public void setImportBatchSize(int importBatchSize) {
+            this.importBatchSize = importBatchSize;
+        }
+    }
+
+    public static class Persistence {
+
+        private int linkTableBatchSize = 500;
+
+        private int sqlTemplateCacheSize = 256;
+
+        private PreparedStatementMode preparedStatements = PreparedStatementMode.CLIENT;
+
+        private boolean poolWarmup = true;
+
+        private List<String> replicaUrls = new ArrayList<>();
+
+        private ReplicaSelection replicaSelection = ReplicaSelection.ROUND_ROBIN;
+
+        private Duration batchLoadingWindow = Duration.ofMillis(2);
+
+        private int batchLoadingMaxSize = 100;
+
+        public int getLinkTableBatchSize() {
+            return linkTableBatchSize;
+        }
+
+        public void setLinkTableBatchSize(int linkTableBatchSize) {
+            this.linkTableBatchSize = linkTableBatchSize;
+        }
+
+        public int getSqlTemplateCacheSize() {
+            return sqlTemplateCacheSize;
+        }
+
+        public void setSqlTemplateCacheSize(int sqlTemplateCacheSize) {
+            this.sqlTemplateCacheSize = sqlTemplateCacheSize;
+        }
+
+        public PreparedStatementMode getPreparedStatements() {
+            return preparedStatements;
+        }
+
+        public void setPreparedStatements(PreparedStatementMode preparedStatements) {
+            this.preparedStatements = preparedStatements;
+        }
+
+        public boolean isPoolWarmup() {
+            return poolWarmup;
+        }
+
+        public void setPoolWarmup(boolean poolWarmup) {
+            this.poolWarmup = poolWarmup;
+        }
+
+        public List<String> getReplicaUrls() {
+            return replicaUrls;
+        }
+
+        public void setReplicaUrls(List<String> replicaUrls) {
+            this.replicaUrls = replicaUrls;
+        }
+
+        public ReplicaSelection getReplicaSelection() {
+            return replicaSelection;
+        }
+
+        public void setReplicaSelection(ReplicaSelection replicaSelection) {
+            this.replicaSelection = replicaSelection;
+        }
+
+        public Duration getBatchLoadingWindow() {
+            return batchLoadingWindow;
+        }
+
+        public void setBatchLoadingWindow(Duration batchLoadingWindow) {
+            this.batchLoadingWindow = batchLoadingWindow;
+        }
+
+        public int getBatchLoadingMaxSize() {
+            return batchLoadingMaxSize;
+        }
+
+        public void setBatchLoadingMaxSize(int batchLoadingMaxSize) {
+            this.batchLoadingMaxSize = batchLoadingMaxSize;
+        }
+    }
+
+    public static class CacheInvalidation {
+
+        private boolean enabled = true;
+
+        private String nodeId;
+
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        private int batchSize = 500;
+
+        private Duration gapTimeout = Duration.ofSeconds(10);
+
+        private Duration retention = Duration.ofHours(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getGapTimeout() {
+            return gapTimeout;
+        }
+
+        public void setGapTimeout(Duration gapTimeout) {
+            this.gapTimeout = gapTimeout;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+    }
+
+    public static class Security {
+
+        private Duration userDetailsCacheTtl = Duration.ofMinutes(1);
+
+        private long userDetailsCacheMaxEntries = 10000;
+
+        private long verifiedTokenCacheMaxEntries = 10000;
+
+        private int bcryptStrength = 10;
+
+        private int passwordHashingThreads = Runtime.getRuntime().availableProcessors();
+
+        private int passwordHashingQueueCapacity = 100;
+
+        public Duration getUserDetailsCacheTtl() {
+            return userDetailsCacheTtl;
+        }
+
+        public void setUserDetailsCacheTtl(Duration userDetailsCacheTtl) {
+            this.userDetailsCacheTtl = userDetailsCacheTtl;
+        }
+
+        public long getUserDetailsCacheMaxEntries() {
+            return userDetailsCacheMaxEntries;
+        }
+
+        public void setUserDetailsCacheMaxEntries(long userDetailsCacheMaxEntries) {
+            this.userDetailsCacheMaxEntries = userDetailsCacheMaxEntries;
+        }
+
+        public long getVerifiedTokenCacheMaxEntries() {
+            return verifiedTokenCacheMaxEntries;
+        }
+
+        public void setVerifiedTokenCacheMaxEntries(long verifiedTokenCacheMaxEntries) {
+            this.verifiedTokenCacheMaxEntries = verifiedTokenCacheMaxEntries;
+        }
+
+        public int getBcryptStrength() {
+            return bcryptStrength;
+        }
+
+        public void setBcryptStrength(int bcryptStrength) {
+            this.bcryptStrength = bcryptStrength;
+        }
+
+        public int getPasswordHashingThreads() {
+            return passwordHashingThreads;
+        }
+
+        public void setPasswordHashingThreads(int passwordHashingThreads) {
+            this.passwordHashingThreads = passwordHashingThreads;
+        }
+
+        public int getPasswordHashingQueueCapacity() {
+            return passwordHashingQueueCapacity;
+        }
+
+        public void setPasswordHashingQueueCapacity(int passwordHashingQueueCapacity) {
+            this.passwordHashingQueueCapacity = passwordHashingQueueCapacity;
+        }
+    }
+
+    public static class MethodTiming {
+
+        private boolean enabled = true;
+
+        private Map<String, Boolean> switches = new HashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Map<String, Boolean> getSwitches() {
+            return switches;
+        }
+
+        public void setSwitches(Map<String, Boolean> switches) {
+            this.switches = switches;
+        }
+    }
+
+    public static class MailOutbox {
+
+        private boolean enabled = true;
+
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        private double rate = 10;
+
+        private int batchSize = 50;
+
+        private int maxAttempts = 10;
+
+        private Duration initialBackoff = Duration.ofSeconds(30);
+
+        private Duration maxBackoff = Duration.ofHours(1);
+
+        private Duration lease = Duration.ofMinutes(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public Duration getLease() {
+            return lease;
+        }
+
+        public void setLease(Duration lease) {
+            this.lease = lease;
+        }
+    }
+
+    public static class UserPurge {
+
+        private int chunkSize = 500;
+
+        private Duration lease = Duration.ofMinutes(10);
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public Duration getLease() {
+            return lease;
+        }
+
+        public void setLease(Duration lease) {
+            this.lease = lease;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package dev.appkr.config;
+
+import dev.appkr.domain.Album;
+import dev.appkr.domain.Singer;
+import dev.appkr.domain.Song;
+import dev.appkr.service.CacheInvalidationBus;
+import dev.appkr.service.CacheInvalidationTransport;
+import dev.appkr.service.DatabaseCacheInvalidationTransport;
+import dev.appkr.service.EntityCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.userdetails.UserDetails;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * The read-through caches of the catalogue entities, bounded by {@code jhipster.cache.caffeine}, and of the users
+ * looked up on authentication, along with the bus which broadcasts their evictions to the other nodes.
+ * <p>
+ * The evictions go through the {@code cache_invalidation} table unless {@code application.cache-invalidation.enabled}
+ * is false; another transport can be plugged in by disabling it and declaring a {@link CacheInvalidationTransport} bean.
+ */
+@Configuration
+public class CacheConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
+
+    private final JHipsterProperties.Cache.Caffeine caffeine;
+
+    private final MeterRegistry meterRegistry;
+
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, MeterRegistry meterRegistry) {
+        this.caffeine = jHipsterProperties.getCache().getCaffeine();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.cache-invalidation", name = "enabled", matchIfMissing = true)
+    public DatabaseCacheInvalidationTransport databaseCacheInvalidationTransport(
+        DatabaseClient databaseClient,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.CacheInvalidation properties = applicationProperties.getCacheInvalidation();
+        String nodeId = properties.getNodeId() != null ? properties.getNodeId() : UUID.randomUUID().toString();
+        log.debug("Broadcasting the cache invalidations as node {}", nodeId);
+        return new DatabaseCacheInvalidationTransport(
+            databaseClient,
+            nodeId,
+            properties.getPollInterval(),
+            properties.getBatchSize(),
+            properties.getGapTimeout(),
+            properties.getRetention()
+        );
+    }
+
+    @Bean
+    public CacheInvalidationBus cacheInvalidationBus(ObjectProvider<CacheInvalidationTransport> transport) {
+        return new CacheInvalidationBus(transport.getIfAvailable(), meterRegistry);
+    }
+
+    @Bean
+    public EntityCache<Long, Album> albumCache(CacheInvalidationBus cacheInvalidationBus) {
+        return createCache("album", cacheInvalidationBus);
+    }
+
+    @Bean
+    public EntityCache<Long, Singer> singerCache(CacheInvalidationBus cacheInvalidationBus) {
+        return createCache("singer", cacheInvalidationBus);
+    }
+
+    @Bean
+    public EntityCache<Long, Song> songCache(CacheInvalidationBus cacheInvalidationBus) {
+        return createCache("song", cacheInvalidationBus);
+    }
+
+    /**
+     * The users looked up on authentication, by lower case login or email: a short-lived cache, as a user can be
+     * changed in ways the application isn't aware of.
+     */
+    @Bean
+    public EntityCache<String, UserDetails> userDetailsCache(
+        CacheInvalidationBus cacheInvalidationBus,
+        ApplicationProperties applicationProperties
+    ) {
+        ApplicationProperties.Security security = applicationProperties.getSecurity();
+        return new EntityCache<>(
+            "user-details",
+            Function.identity(),
+            security.getUserDetailsCacheMaxEntries(),
+            security.getUserDetailsCacheTtl(),
+            cacheInvalidationBus,
+            meterRegistry
+        );
+    }
+
+    private <V> EntityCache<Long, V> createCache(String name, CacheInvalidationBus cacheInvalidationBus) {
+        return new EntityCache<>(
+            name,
+            Long::valueOf,
+            caffeine.getMaxEntries(),
+            Duration.ofSeconds(caffeine.getTimeToLiveSeconds()),
+            cacheInvalidationBus,
+            meterRegistry
+        );
+    }
+}
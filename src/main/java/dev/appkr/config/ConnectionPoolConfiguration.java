@@ -0,0 +1,151 @@
+package dev.appkr.config;
+
+import dev.appkr.aop.routing.ReadOnlyRoutingAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Instruments the R2DBC connection pool configured by Spring Boot from the {@code spring.r2dbc.pool} properties:
+ * acquire timer, warm-up at startup and readiness health indicator.
+ * <p>
+ * When read replicas are configured, with {@code application.persistence.replica-urls}, a pool is opened for each one
+ * with the same settings, and the read-only transactions are routed to them by a {@link ReplicaRoutingConnectionFactory}.
+ */
+@Configuration
+public class ConnectionPoolConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(ConnectionPoolConfiguration.class);
+
+    private final ApplicationProperties applicationProperties;
+
+    public ConnectionPoolConfiguration(ApplicationProperties applicationProperties) {
+        this.applicationProperties = applicationProperties;
+    }
+
+    @Bean
+    public static BeanPostProcessor meteredConnectionPoolPostProcessor(
+        ObjectProvider<MeterRegistry> meterRegistry,
+        ObjectProvider<ApplicationProperties> applicationProperties,
+        ObjectProvider<R2dbcProperties> r2dbcProperties,
+        ObjectProvider<ConnectionFactoryOptionsBuilderCustomizer> customizers
+    ) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof ConnectionPool)) {
+                    return bean;
+                }
+                MeteredConnectionPool primary = new MeteredConnectionPool((ConnectionPool) bean, beanName, meterRegistry.getObject());
+                ApplicationProperties.Persistence persistence = applicationProperties.getObject().getPersistence();
+                List<String> replicaUrls = persistence.getReplicaUrls();
+                if (replicaUrls.isEmpty()) {
+                    return primary;
+                }
+                List<MeteredConnectionPool> replicas = new ArrayList<>();
+                for (int i = 0; i < replicaUrls.size(); i++) {
+                    ConnectionPool replica = createReplicaPool(replicaUrls.get(i), r2dbcProperties.getObject(), customizers);
+                    replicas.add(new MeteredConnectionPool(replica, beanName + "-replica-" + i, meterRegistry.getObject()));
+                }
+                return new ReplicaRoutingConnectionFactory(primary, replicas, persistence.getReplicaSelection(), meterRegistry.getObject());
+            }
+        };
+    }
+
+    /**
+     * Opens a pool to a read replica, with the credentials and the pool settings of the primary database unless the URL
+     * has its own credentials.
+     */
+    private static ConnectionPool createReplicaPool(
+        String url,
+        R2dbcProperties properties,
+        ObjectProvider<ConnectionFactoryOptionsBuilderCustomizer> customizers
+    ) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url);
+        ConnectionFactoryOptions.Builder builder = options.mutate();
+        if (!options.hasOption(ConnectionFactoryOptions.USER) && properties.getUsername() != null) {
+            builder.option(ConnectionFactoryOptions.USER, properties.getUsername());
+        }
+        if (!options.hasOption(ConnectionFactoryOptions.PASSWORD) && properties.getPassword() != null) {
+            builder.option(ConnectionFactoryOptions.PASSWORD, properties.getPassword());
+        }
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        ConnectionFactory connectionFactory = ConnectionFactories.get(builder.build());
+
+        R2dbcProperties.Pool pool = properties.getPool();
+        PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        io.r2dbc.pool.ConnectionPoolConfiguration.Builder configuration = io.r2dbc.pool.ConnectionPoolConfiguration.builder(
+            connectionFactory
+        );
+        map.from(pool.getMaxIdleTime()).to(configuration::maxIdleTime);
+        map.from(pool.getMaxLifeTime()).to(configuration::maxLifeTime);
+        map.from(pool.getMaxAcquireTime()).to(configuration::maxAcquireTime);
+        map.from(pool.getMaxCreateConnectionTime()).to(configuration::maxCreateConnectionTime);
+        map.from(pool.getInitialSize()).to(configuration::initialSize);
+        map.from(pool.getMaxSize()).to(configuration::maxSize);
+        map.from(pool.getValidationQuery()).whenHasText().to(configuration::validationQuery);
+        map.from(pool.getValidationDepth()).to(configuration::validationDepth);
+        return new ConnectionPool(configuration.build());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.persistence", name = "replica-urls[0]")
+    public ReadOnlyRoutingAspect readOnlyRoutingAspect() {
+        return new ReadOnlyRoutingAspect();
+    }
+
+    @Bean
+    public ConnectionPoolHealthIndicator connectionPoolHealthIndicator(ConnectionFactory connectionFactory) {
+        return new ConnectionPoolHealthIndicator(connectionFactory, applicationProperties.getPersistence().isPoolWarmup());
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void warmupConnectionPool(ApplicationStartedEvent event) {
+        if (!applicationProperties.getPersistence().isPoolWarmup()) {
+            return;
+        }
+        event
+            .getApplicationContext()
+            .getBeanProvider(ConnectionFactory.class)
+            .ifAvailable(
+                connectionFactory ->
+                    pools(connectionFactory)
+                        .forEach(
+                            pool ->
+                                pool
+                                    .warmup()
+                                    .subscribe(
+                                        count -> log.debug("Connection pool {} warmed up with {} connections", pool.getName(), count),
+                                        e -> log.warn("Connection pool {} warm-up failed: {}", pool.getName(), e.getMessage())
+                                    )
+                        )
+            );
+    }
+
+    private static List<MeteredConnectionPool> pools(ConnectionFactory connectionFactory) {
+        if (connectionFactory instanceof ReplicaRoutingConnectionFactory) {
+            return ((ReplicaRoutingConnectionFactory) connectionFactory).getTargets();
+        }
+        if (connectionFactory instanceof MeteredConnectionPool) {
+            return Collections.singletonList((MeteredConnectionPool) connectionFactory);
+        }
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,57 @@
+package dev.appkr.config;
+
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.actuate.health.AbstractReactiveHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reports the connection pool as down until it is warmed up, and while it is saturated: every connection is in use and
+ * requests are waiting for one. It is part of the readiness group, so that the traffic goes to the other instances meanwhile.
+ * <p>
+ * Only the pool of the primary database is checked: the read replicas fall back to it.
+ */
+public class ConnectionPoolHealthIndicator extends AbstractReactiveHealthIndicator {
+
+    private final ConnectionFactory connectionFactory;
+    private final boolean warmup;
+
+    public ConnectionPoolHealthIndicator(ConnectionFactory connectionFactory, boolean warmup) {
+        super("Connection pool health check failed");
+        this.connectionFactory = connectionFactory;
+        this.warmup = warmup;
+    }
+
+    @Override
+    protected Mono<Health> doHealthCheck(Health.Builder builder) {
+        ConnectionFactory primary = connectionFactory instanceof ReplicaRoutingConnectionFactory
+            ? ((ReplicaRoutingConnectionFactory) connectionFactory).unwrap()
+            : connectionFactory;
+        if (!(primary instanceof MeteredConnectionPool)) {
+            return Mono.just(builder.unknown().withDetail("reason", "not pooled").build());
+        }
+        MeteredConnectionPool pool = (MeteredConnectionPool) primary;
+        PoolMetrics metrics = pool.getMetrics().orElse(null);
+        if (metrics == null) {
+            return Mono.just(builder.unknown().build());
+        }
+        builder
+            .withDetail("acquired", metrics.acquiredSize())
+            .withDetail("allocated", metrics.allocatedSize())
+            .withDetail("idle", metrics.idleSize())
+            .withDetail("pending", metrics.pendingAcquireSize())
+            .withDetail("maxAllocated", metrics.getMaxAllocatedSize());
+        if (warmup && !pool.isWarmedUp()) {
+            return Mono.just(builder.down().withDetail("reason", "warming up").build());
+        }
+        if (isSaturated(metrics)) {
+            return Mono.just(builder.down().withDetail("reason", "saturated").build());
+        }
+        return Mono.just(builder.up().build());
+    }
+
+    private boolean isSaturated(PoolMetrics metrics) {
+        return metrics.pendingAcquireSize() > 0 && metrics.idleSize() == 0 && metrics.allocatedSize() >= metrics.getMaxAllocatedSize();
+    }
+}
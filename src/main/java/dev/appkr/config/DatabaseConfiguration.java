@@ -1,6 +1,14 @@
 package dev.appkr.config;
 
+import dev.appkr.domain.Singer;
+import dev.appkr.domain.Song;
+import dev.appkr.repository.SingerRepository;
+import dev.appkr.repository.SongRepository;
+import dev.appkr.service.BatchLoader;
+import dev.miku.r2dbc.mysql.MySqlConnectionFactoryProvider;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -14,6 +22,7 @@ import java.util.List;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -37,6 +46,10 @@ import tech.jhipster.config.JHipsterConstants;
 @EnableTransactionManagement
 public class DatabaseConfiguration {
 
+    private static final String MYSQL_DRIVER = "mysql";
+
+    private final Logger log = LoggerFactory.getLogger(DatabaseConfiguration.class);
+
     /**
      * Simple singleton to convert {@link UUID}s to their {@link String} representation.
      */
@@ -84,6 +97,65 @@ public class DatabaseConfiguration {
         );
     }
 
+    /**
+     * Configures how the MySQL driver sends the statements, see {@link PreparedStatementMode}.
+     * The other drivers are left alone.
+     */
+    @Bean
+    public ConnectionFactoryOptionsBuilderCustomizer preparedStatementCustomizer(ApplicationProperties applicationProperties) {
+        ApplicationProperties.Persistence persistence = applicationProperties.getPersistence();
+        return builder -> {
+            if (
+                persistence.getPreparedStatements() != PreparedStatementMode.SERVER ||
+                !MYSQL_DRIVER.equals(builder.build().getValue(ConnectionFactoryOptions.DRIVER))
+            ) {
+                return;
+            }
+            log.debug("Preparing the statements with bind parameters on the server");
+            builder.option(MySqlConnectionFactoryProvider.USE_SERVER_PREPARE_STATEMENT, true);
+        };
+    }
+
+    /**
+     * Loads the singers of the albums expanded with {@link dev.appkr.service.ExpandMode#BATCH}, from a replica if any.
+     */
+    @Bean
+    public BatchLoader<Long, Singer> singerLoader(
+        SingerRepository singerRepository,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.Persistence persistence = applicationProperties.getPersistence();
+        return new BatchLoader<>(
+            "singer",
+            ids -> singerRepository.findAllById(ids).contextWrite(context -> ReplicaRoutingConnectionFactory.readOnly(context, true)),
+            Singer::getId,
+            persistence.getBatchLoadingWindow(),
+            persistence.getBatchLoadingMaxSize(),
+            meterRegistry
+        );
+    }
+
+    /**
+     * Loads the songs of the albums expanded with {@link dev.appkr.service.ExpandMode#BATCH}, from a replica if any.
+     */
+    @Bean
+    public BatchLoader<Long, Song> songLoader(
+        SongRepository songRepository,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.Persistence persistence = applicationProperties.getPersistence();
+        return new BatchLoader<>(
+            "song",
+            ids -> songRepository.findAllById(ids).contextWrite(context -> ReplicaRoutingConnectionFactory.readOnly(context, true)),
+            Song::getId,
+            persistence.getBatchLoadingWindow(),
+            persistence.getBatchLoadingMaxSize(),
+            meterRegistry
+        );
+    }
+
     @Bean
     public R2dbcDialect dialect(ConnectionFactory connectionFactory) {
         return DialectResolver.getDialect(connectionFactory);
@@ -1,9 +1,12 @@
 package dev.appkr.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.zalando.problem.ProblemModule;
 import org.zalando.problem.violations.ConstraintViolationProblemModule;
 
@@ -39,4 +42,13 @@ public class JacksonConfiguration {
     public ConstraintViolationProblemModule constraintViolationProblemModule() {
         return new ConstraintViolationProblemModule();
     }
+
+    /*
+     * Streams Flux responses as JSON arrays instead of buffering them, ordered after Spring Boot's own Jackson codec customizer.
+     */
+    @Bean
+    @Order(1)
+    public CodecCustomizer streamingJacksonCodecCustomizer(ObjectMapper objectMapper) {
+        return configurer -> configurer.defaultCodecs().jackson2JsonEncoder(new StreamingJackson2JsonEncoder(objectMapper));
+    }
 }
@@ -0,0 +1,36 @@
+package dev.appkr.config;
+
+import dev.appkr.service.MailOutboxDispatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.r2dbc.core.DatabaseClient;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Sends the emails queued in the {@code mail_outbox} table, see {@link MailOutboxDispatcher}, unless
+ * {@code application.mail-outbox.enabled} is false: the emails are then queued, but not sent by this node.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.mail-outbox", name = "enabled", matchIfMissing = true)
+public class MailOutboxConfiguration {
+
+    @Bean
+    public MailOutboxDispatcher mailOutboxDispatcher(
+        DatabaseClient databaseClient,
+        JavaMailSender javaMailSender,
+        JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        return new MailOutboxDispatcher(
+            databaseClient,
+            javaMailSender,
+            jHipsterProperties.getMail().getFrom(),
+            applicationProperties.getMailOutbox(),
+            meterRegistry
+        );
+    }
+}
@@ -0,0 +1,101 @@
+package dev.appkr.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ConnectionPool} decorator which times how long it takes to acquire a connection, as {@code r2dbc.pool.acquire},
+ * and which remembers whether the pool was warmed up.
+ * <p>
+ * The gauges of the pool ({@code r2dbc.pool.acquired}, {@code r2dbc.pool.idle}, {@code r2dbc.pool.pending}...) are
+ * bound here too, because Spring Boot only binds them to undecorated pools.
+ */
+public class MeteredConnectionPool implements ConnectionFactory, Wrapped<ConnectionFactory>, Disposable {
+
+    private final ConnectionPool pool;
+    private final String name;
+    private final Timer acquired;
+    private final Timer failed;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean warmedUp = new AtomicBoolean();
+
+    public MeteredConnectionPool(ConnectionPool pool, String name, MeterRegistry meterRegistry) {
+        this.pool = pool;
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+        this.acquired = acquireTimer(name, "success");
+        this.failed = acquireTimer(name, "error");
+        new ConnectionPoolMetrics(pool, name, Tags.empty()).bindTo(meterRegistry);
+    }
+
+    private Timer acquireTimer(String name, String outcome) {
+        return Timer
+            .builder("r2dbc.pool.acquire")
+            .description("Time to acquire a connection from the pool")
+            .tags("name", name, "outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(
+            () -> {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                return pool.create().doOnSuccess(connection -> sample.stop(acquired)).doOnError(e -> sample.stop(failed));
+            }
+        );
+    }
+
+    /**
+     * Opens the initial connections of the pool. The pool counts as warmed up even if it fails, so that it doesn't stay
+     * down forever: connections are opened on demand anyway.
+     * @return the number of opened connections.
+     */
+    public Mono<Integer> warmup() {
+        return pool.warmup().doOnTerminate(() -> warmedUp.set(true));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isWarmedUp() {
+        return warmedUp.get();
+    }
+
+    public Optional<PoolMetrics> getMetrics() {
+        return pool.getMetrics();
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return pool.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return pool;
+    }
+
+    @Override
+    public void dispose() {
+        pool.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return pool.isDisposed();
+    }
+}
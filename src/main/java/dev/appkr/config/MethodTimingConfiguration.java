@@ -0,0 +1,71 @@
+package dev.appkr.config;
+
+import dev.appkr.aop.timing.MethodTimingEndpoint;
+import dev.appkr.aop.timing.MethodTimingInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.lang.annotation.Annotation;
+import java.util.List;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Times the repositories, services and REST resources, see {@link MethodTimingInterceptor}, unless
+ * {@code application.method-timing.enabled} is false.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.method-timing", name = "enabled", matchIfMissing = true)
+public class MethodTimingConfiguration {
+
+    private static final List<String> PACKAGES = List.of("dev.appkr.repository.", "dev.appkr.service.", "dev.appkr.web.rest.");
+
+    private static final List<Class<? extends Annotation>> STEREOTYPES = List.of(Repository.class, Service.class, RestController.class);
+
+    @Bean
+    public MethodTimingInterceptor methodTimingInterceptor(
+        ObjectProvider<MeterRegistry> meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        // The registry is looked up on the first call, so that it isn't created along with the advisors
+        return new MethodTimingInterceptor(meterRegistry::getObject, applicationProperties.getMethodTiming().getSwitches());
+    }
+
+    @Bean
+    public Advisor methodTimingAdvisor(MethodTimingInterceptor methodTimingInterceptor) {
+        return new DefaultPointcutAdvisor(new ComposablePointcut(MethodTimingConfiguration::isComponent), methodTimingInterceptor);
+    }
+
+    @Bean
+    public MethodTimingEndpoint methodTimingEndpoint(MethodTimingInterceptor methodTimingInterceptor) {
+        return new MethodTimingEndpoint(methodTimingInterceptor);
+    }
+
+    /**
+     * Whether the class, or one of its interfaces for the proxies of the Spring Data repositories, is a repository,
+     * service or REST resource of the application packages.
+     */
+    private static boolean isComponent(Class<?> type) {
+        for (Class<?> candidate : ClassUtils.getAllInterfacesForClassAsSet(type)) {
+            if (isComponentType(candidate)) {
+                return true;
+            }
+        }
+        return isComponentType(type);
+    }
+
+    private static boolean isComponentType(Class<?> type) {
+        return (
+            PACKAGES.stream().anyMatch(type.getName()::startsWith) &&
+            STEREOTYPES.stream().anyMatch(stereotype -> AnnotationUtils.findAnnotation(type, stereotype) != null)
+        );
+    }
+}
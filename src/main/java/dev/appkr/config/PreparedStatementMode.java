@@ -0,0 +1,21 @@
+package dev.appkr.config;
+
+/**
+ * How the MySQL driver sends the statements to the database.
+ */
+public enum PreparedStatementMode {
+    /**
+     * The driver default: the bound values are escaped into the statement text, which is sent as a text query.
+     */
+    CLIENT,
+
+    /**
+     * The statements with bind parameters are prepared on the server, and their values sent in binary form; the
+     * statements without parameters stay text queries.
+     * <p>
+     * The driver (r2dbc-mysql 0.8) keeps no prepared statement between executions: each execution prepares its
+     * statement, executes it and closes it, one more round trip than a text query. The values are never escaped into
+     * the SQL, and the server parses the statement apart from them, which is what this mode is for.
+     */
+    SERVER,
+}
@@ -0,0 +1,159 @@
+package dev.appkr.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * {@link ConnectionFactory} which sends the read-only transactions to the read replicas, and everything else to the
+ * primary database.
+ * <p>
+ * A transaction is read-only when the {@link #READ_ONLY_KEY} is set in the Reactor context, as done by
+ * {@link dev.appkr.aop.routing.ReadOnlyRoutingAspect} for the {@code @Transactional(readOnly = true)} methods. The
+ * replica is picked according to the {@link ReplicaSelection}; if it fails to hand out a connection, the other replicas
+ * are tried, then the primary.
+ * <p>
+ * Each target has its own pool, metered under its name, and the connections handed out are counted per target as
+ * {@code r2dbc.routing.connections}.
+ */
+public class ReplicaRoutingConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, Disposable {
+
+    public static final String READ_ONLY_KEY = ReplicaRoutingConnectionFactory.class.getName() + ".READ_ONLY";
+
+    private final Logger log = LoggerFactory.getLogger(ReplicaRoutingConnectionFactory.class);
+
+    private final MeteredConnectionPool primary;
+    private final List<MeteredConnectionPool> replicas;
+    private final ReplicaSelection selection;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingConnectionFactory(
+        MeteredConnectionPool primary,
+        List<MeteredConnectionPool> replicas,
+        ReplicaSelection selection,
+        MeterRegistry meterRegistry
+    ) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.selection = selection;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Marks the subscriptions made with the returned context as read-only, or not.
+     *
+     * @param context the context to enrich.
+     * @param readOnly whether the connections can be taken from a replica.
+     * @return the enriched context.
+     */
+    public static Context readOnly(Context context, boolean readOnly) {
+        return context.put(READ_ONLY_KEY, readOnly);
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.deferContextual(
+            context -> {
+                if (!isReadOnly(context) || replicas.isEmpty()) {
+                    return connect(primary);
+                }
+                return connect(selectReplicas().iterator());
+            }
+        );
+    }
+
+    private boolean isReadOnly(ContextView context) {
+        return context.<Boolean>getOrEmpty(READ_ONLY_KEY).orElse(false);
+    }
+
+    private Mono<Connection> connect(Iterator<MeteredConnectionPool> candidates) {
+        if (!candidates.hasNext()) {
+            return connect(primary);
+        }
+        MeteredConnectionPool replica = candidates.next();
+        return connect(replica)
+            .onErrorResume(
+                e -> {
+                    log.warn("Replica {} failed to hand out a connection, falling back: {}", replica.getName(), e.getMessage());
+                    return connect(candidates);
+                }
+            );
+    }
+
+    private Mono<Connection> connect(MeteredConnectionPool target) {
+        return target
+            .create()
+            .doOnSuccess(connection -> counter(target, "success").increment())
+            .doOnError(e -> counter(target, "error").increment());
+    }
+
+    private Counter counter(MeteredConnectionPool target, String outcome) {
+        return Counter
+            .builder("r2dbc.routing.connections")
+            .description("Connections handed out by the routing connection factory")
+            .tags("target", target.getName(), "outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    /**
+     * @return the replicas in the order they should be tried, starting with the next one in turn.
+     */
+    private List<MeteredConnectionPool> selectReplicas() {
+        List<MeteredConnectionPool> candidates = new ArrayList<>(replicas);
+        Collections.rotate(candidates, -Math.floorMod(next.getAndIncrement(), candidates.size()));
+        if (selection == ReplicaSelection.LEAST_LOADED) {
+            candidates.sort(Comparator.comparingInt(ReplicaRoutingConnectionFactory::load));
+        }
+        return candidates;
+    }
+
+    private static int load(MeteredConnectionPool pool) {
+        return pool.getMetrics().map(metrics -> metrics.acquiredSize() + metrics.pendingAcquireSize()).orElse(0);
+    }
+
+    /**
+     * @return the primary pool, then the replica pools.
+     */
+    public List<MeteredConnectionPool> getTargets() {
+        List<MeteredConnectionPool> targets = new ArrayList<>();
+        targets.add(primary);
+        targets.addAll(replicas);
+        return targets;
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return primary.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return primary;
+    }
+
+    @Override
+    public void dispose() {
+        getTargets().forEach(MeteredConnectionPool::dispose);
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return getTargets().stream().allMatch(MeteredConnectionPool::isDisposed);
+    }
+}
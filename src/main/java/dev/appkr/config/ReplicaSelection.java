@@ -0,0 +1,16 @@
+package dev.appkr.config;
+
+/**
+ * How the read replica serving a read-only transaction is picked.
+ */
+public enum ReplicaSelection {
+    /**
+     * Each replica in turn.
+     */
+    ROUND_ROBIN,
+
+    /**
+     * The replica with the fewest connections in use or awaited, each replica in turn on a tie.
+     */
+    LEAST_LOADED,
+}
@@ -3,9 +3,11 @@ package dev.appkr.config;
 import static org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers.pathMatchers;
 
 import dev.appkr.security.AuthoritiesConstants;
+import dev.appkr.security.PasswordHashing;
 import dev.appkr.security.jwt.JWTFilter;
 import dev.appkr.security.jwt.TokenProvider;
 import dev.appkr.web.filter.SpaWebFilter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpMethod;
@@ -23,6 +25,7 @@ import org.springframework.security.web.server.header.ReferrerPolicyServerHttpHe
 import org.springframework.security.web.server.util.matcher.NegatedServerWebExchangeMatcher;
 import org.springframework.security.web.server.util.matcher.OrServerWebExchangeMatcher;
 import org.zalando.problem.spring.webflux.advice.security.SecurityProblemSupport;
+import reactor.core.scheduler.Scheduler;
 import tech.jhipster.config.JHipsterProperties;
 
 @EnableWebFluxSecurity
@@ -32,6 +35,8 @@ public class SecurityConfiguration {
 
     private final JHipsterProperties jHipsterProperties;
 
+    private final ApplicationProperties applicationProperties;
+
     private final ReactiveUserDetailsService userDetailsService;
 
     private final TokenProvider tokenProvider;
@@ -42,30 +47,46 @@ public class SecurityConfiguration {
         ReactiveUserDetailsService userDetailsService,
         TokenProvider tokenProvider,
         JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties,
         SecurityProblemSupport problemSupport
     ) {
         this.userDetailsService = userDetailsService;
         this.tokenProvider = tokenProvider;
         this.jHipsterProperties = jHipsterProperties;
+        this.applicationProperties = applicationProperties;
         this.problemSupport = problemSupport;
     }
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(applicationProperties.getSecurity().getBcryptStrength());
+    }
+
+    /**
+     * The scheduler the passwords are hashed and verified on, see {@link PasswordHashing}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler passwordHashingScheduler(MeterRegistry meterRegistry) {
+        ApplicationProperties.Security security = applicationProperties.getSecurity();
+        return PasswordHashing.newScheduler(
+            security.getPasswordHashingThreads(),
+            security.getPasswordHashingQueueCapacity(),
+            meterRegistry
+        );
     }
 
     @Bean
-    public ReactiveAuthenticationManager reactiveAuthenticationManager() {
+    public ReactiveAuthenticationManager reactiveAuthenticationManager(Scheduler passwordHashingScheduler) {
         UserDetailsRepositoryReactiveAuthenticationManager authenticationManager = new UserDetailsRepositoryReactiveAuthenticationManager(
             userDetailsService
         );
         authenticationManager.setPasswordEncoder(passwordEncoder());
+        authenticationManager.setScheduler(passwordHashingScheduler);
         return authenticationManager;
     }
 
     @Bean
-    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http, ReactiveAuthenticationManager authenticationManager) {
         // @formatter:off
         http
             .securityMatcher(new NegatedServerWebExchangeMatcher(new OrServerWebExchangeMatcher(
@@ -76,7 +97,7 @@ public class SecurityConfiguration {
                 .disable()
             .addFilterAt(new SpaWebFilter(), SecurityWebFiltersOrder.AUTHENTICATION)
             .addFilterAt(new JWTFilter(tokenProvider), SecurityWebFiltersOrder.HTTP_BASIC)
-            .authenticationManager(reactiveAuthenticationManager())
+            .authenticationManager(authenticationManager)
             .exceptionHandling()
                 .accessDeniedHandler(problemSupport)
                 .authenticationEntryPoint(problemSupport)
@@ -0,0 +1,61 @@
+package dev.appkr.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Jackson encoder which writes a {@link Flux} as a JSON array element by element, instead of collecting it into a
+ * list first, so that the first rows are sent as soon as they are read and the response is never held in memory.
+ * <p>
+ * Single values and streaming media types, such as {@code application/x-ndjson}, are encoded as usual.
+ */
+public class StreamingJackson2JsonEncoder extends Jackson2JsonEncoder {
+
+    private static final byte[] ARRAY_START = "[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ARRAY_SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ARRAY_END = "]".getBytes(StandardCharsets.UTF_8);
+
+    public StreamingJackson2JsonEncoder(ObjectMapper mapper, MimeType... mimeTypes) {
+        super(mapper, mimeTypes);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(
+        Publisher<?> inputStream,
+        DataBufferFactory bufferFactory,
+        ResolvableType elementType,
+        MimeType mimeType,
+        Map<String, Object> hints
+    ) {
+        if (inputStream instanceof Mono || isStreamingMediaType(mimeType)) {
+            return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+        Flux<DataBuffer> elements = Flux
+            .from(inputStream)
+            .index()
+            .concatMap(
+                element -> {
+                    DataBuffer value = encodeValue(element.getT2(), bufferFactory, elementType, mimeType, hints);
+                    return element.getT1() == 0 ? Mono.just(value) : Flux.just(bufferFactory.wrap(ARRAY_SEPARATOR), value);
+                }
+            );
+        return Flux.concat(
+            Mono.fromCallable(() -> bufferFactory.wrap(ARRAY_START)),
+            elements,
+            Mono.fromCallable(() -> bufferFactory.wrap(ARRAY_END))
+        );
+    }
+
+    private boolean isStreamingMediaType(MimeType mimeType) {
+        return mimeType != null && getStreamingMediaTypes().stream().anyMatch(mediaType -> mediaType.isCompatibleWith(mimeType));
+    }
+}
@@ -1,6 +1,9 @@
 package dev.appkr.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.appkr.service.CountStrategy;
+import dev.appkr.service.ExpandMode;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,7 +14,9 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.core.annotation.Order;
 import org.springframework.data.web.ReactivePageableHandlerMethodArgumentResolver;
 import org.springframework.data.web.ReactiveSortHandlerMethodArgumentResolver;
+import org.springframework.format.FormatterRegistry;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.reactive.CorsWebFilter;
 import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
@@ -54,6 +59,22 @@ public class WebConfigurer implements WebFluxConfigurer {
         return new CorsWebFilter(source);
     }
 
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        // Accept the count strategy in lower case, as in ?count=none
+        registry.addConverter(
+            String.class,
+            CountStrategy.class,
+            value -> StringUtils.hasText(value) ? CountStrategy.valueOf(value.trim().toUpperCase(Locale.ROOT)) : null
+        );
+        // Likewise for the expand mode, as in ?expandMode=batch
+        registry.addConverter(
+            String.class,
+            ExpandMode.class,
+            value -> StringUtils.hasText(value) ? ExpandMode.valueOf(value.trim().toUpperCase(Locale.ROOT)) : null
+        );
+    }
+
     // TODO: remove when this is supported in spring-boot
     @Bean
     HandlerMethodArgumentResolver reactivePageableHandlerMethodArgumentResolver() {
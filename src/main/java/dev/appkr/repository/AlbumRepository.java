@@ -1,6 +1,7 @@
 package dev.appkr.repository;
 
 import dev.appkr.domain.Album;
+import dev.appkr.service.Projection;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
@@ -47,6 +48,10 @@ interface AlbumRepositoryInternal {
 
     Flux<Album> findAll();
     Mono<Album> findById(Long id);
+    Mono<Album> findById(Long id, Projection projection);
     Flux<Album> findAllBy(Pageable pageable);
     Flux<Album> findAllBy(Pageable pageable, Criteria criteria);
+    Flux<Album> findAllBy(Pageable pageable, Criteria criteria, Projection projection);
+    Flux<Album> findAllAfter(String cursor, Pageable pageable);
+    Flux<Album> findAllAfter(String cursor, Pageable pageable, Projection projection);
 }
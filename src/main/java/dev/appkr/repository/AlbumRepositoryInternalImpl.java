@@ -4,10 +4,14 @@ import static org.springframework.data.relational.core.query.Criteria.where;
 import static org.springframework.data.relational.core.query.Query.query;
 
 import dev.appkr.domain.Album;
+import dev.appkr.domain.Singer;
+import dev.appkr.domain.Song;
 import dev.appkr.repository.rowmapper.AlbumRowMapper;
+import dev.appkr.repository.rowmapper.RowDecoder;
 import dev.appkr.repository.rowmapper.SingerRowMapper;
 import dev.appkr.repository.rowmapper.SongRowMapper;
 import dev.appkr.service.EntityManager;
+import dev.appkr.service.Projection;
 import io.r2dbc.spi.Row;
 import io.r2dbc.spi.RowMetadata;
 import java.time.Instant;
@@ -15,7 +19,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Optional;
 import java.util.function.BiFunction;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
@@ -23,7 +26,8 @@ import org.springframework.data.relational.core.query.Criteria;
 import org.springframework.data.relational.core.sql.Column;
 import org.springframework.data.relational.core.sql.Expression;
 import org.springframework.data.relational.core.sql.Select;
-import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoinCondition;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoin;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectWhere;
 import org.springframework.data.relational.core.sql.Table;
 import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.r2dbc.core.RowsFetchSpec;
@@ -40,13 +44,16 @@ class AlbumRepositoryInternalImpl implements AlbumRepositoryInternal {
     private final R2dbcEntityTemplate r2dbcEntityTemplate;
     private final EntityManager entityManager;
 
-    private final SingerRowMapper singerMapper;
-    private final SongRowMapper songMapper;
-    private final AlbumRowMapper albumMapper;
+    private final RowDecoder<Singer> singerDecoder;
+    private final RowDecoder<Song> songDecoder;
+    private final RowDecoder<Album> albumDecoder;
+
+    private static final String SINGER = "singer";
+    private static final String SONGS = "songs";
 
     private static final Table entityTable = Table.aliased("album", EntityManager.ENTITY_ALIAS);
-    private static final Table singerTable = Table.aliased("singer", "singer");
-    private static final Table songsTable = Table.aliased("song", "songs");
+    private static final Table singerTable = Table.aliased("singer", SINGER);
+    private static final Table songsTable = Table.aliased("song", SONGS);
 
     public AlbumRepositoryInternalImpl(
         R2dbcEntityTemplate template,
@@ -58,9 +65,9 @@ class AlbumRepositoryInternalImpl implements AlbumRepositoryInternal {
         this.db = template.getDatabaseClient();
         this.r2dbcEntityTemplate = template;
         this.entityManager = entityManager;
-        this.singerMapper = singerMapper;
-        this.songMapper = songMapper;
-        this.albumMapper = albumMapper;
+        this.singerDecoder = singerMapper.decoder(SINGER);
+        this.songDecoder = songMapper.decoder(SONGS);
+        this.albumDecoder = albumMapper.decoder(EntityManager.ENTITY_ALIAS);
     }
 
     @Override
@@ -70,41 +77,73 @@ class AlbumRepositoryInternalImpl implements AlbumRepositoryInternal {
 
     @Override
     public Flux<Album> findAllBy(Pageable pageable, Criteria criteria) {
-        return createQuery(pageable, criteria).all();
-    }
-
-    RowsFetchSpec<Album> createQuery(Pageable pageable, Criteria criteria) {
-        List<Expression> columns = AlbumSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
-        columns.addAll(SingerSqlHelper.getColumns(singerTable, "singer"));
-        columns.addAll(SongSqlHelper.getColumns(songsTable, "songs"));
-        SelectFromAndJoinCondition selectFrom = Select
-            .builder()
-            .select(columns)
-            .from(entityTable)
-            .leftOuterJoin(singerTable)
-            .on(Column.create("singer_id", entityTable))
-            .equals(Column.create("id", singerTable))
-            .leftOuterJoin(songsTable)
-            .on(Column.create("songs_id", entityTable))
-            .equals(Column.create("id", songsTable));
-
-        String select = entityManager.createSelect(selectFrom, Album.class, pageable, criteria);
-        String alias = entityTable.getReferenceName().getReference();
-        String selectWhere = Optional
-            .ofNullable(criteria)
-            .map(
-                crit ->
-                    new StringBuilder(select)
-                        .append(" ")
-                        .append("WHERE")
-                        .append(" ")
-                        .append(alias)
-                        .append(".")
-                        .append(crit.toString())
-                        .toString()
-            )
-            .orElse(select); // TODO remove once https://github.com/spring-projects/spring-data-jdbc/issues/907 will be fixed
-        return db.sql(selectWhere).map(this::process);
+        return findAllBy(pageable, criteria, Projection.all());
+    }
+
+    @Override
+    public Flux<Album> findAllBy(Pageable pageable, Criteria criteria, Projection projection) {
+        return createQuery(pageable, criteria, projection).all();
+    }
+
+    @Override
+    public Flux<Album> findAllAfter(String cursor, Pageable pageable) {
+        return findAllAfter(cursor, pageable, Projection.all());
+    }
+
+    @Override
+    public Flux<Album> findAllAfter(String cursor, Pageable pageable, Projection projection) {
+        Projection selected = projection.including(pageable.getSort());
+        return Flux.defer(
+            () ->
+                entityManager
+                    .createKeysetSelect(createSelectFrom(selected), Album.class, pageable, cursor)
+                    .map((row, metadata) -> process(row, metadata, selected))
+                    .all()
+        );
+    }
+
+    RowsFetchSpec<Album> createQuery(Pageable pageable, Criteria criteria, Projection projection) {
+        return entityManager
+            .createSelect(() -> createSelectFrom(projection), Album.class, projection.getKey(), pageable, criteria)
+            .map((row, metadata) -> process(row, metadata, projection));
+    }
+
+    /**
+     * Selects the albums, joined with the relations expanded in the join mode only.
+     */
+    private SelectWhere createSelectFrom(Projection projection) {
+        List<Expression> columns = AlbumSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS, projection);
+        boolean singer = projection.joins(SINGER);
+        boolean songs = projection.joins(SONGS);
+        if (singer) {
+            columns.addAll(SingerSqlHelper.getColumns(singerTable, SINGER));
+        }
+        if (songs) {
+            columns.addAll(SongSqlHelper.getColumns(songsTable, SONGS));
+        }
+        SelectFromAndJoin selectFrom = Select.builder().select(columns).from(entityTable);
+        if (singer && songs) {
+            return selectFrom
+                .leftOuterJoin(singerTable)
+                .on(Column.create("singer_id", entityTable))
+                .equals(Column.create("id", singerTable))
+                .leftOuterJoin(songsTable)
+                .on(Column.create("songs_id", entityTable))
+                .equals(Column.create("id", songsTable));
+        }
+        if (singer) {
+            return selectFrom
+                .leftOuterJoin(singerTable)
+                .on(Column.create("singer_id", entityTable))
+                .equals(Column.create("id", singerTable));
+        }
+        if (songs) {
+            return selectFrom
+                .leftOuterJoin(songsTable)
+                .on(Column.create("songs_id", entityTable))
+                .equals(Column.create("id", songsTable));
+        }
+        return selectFrom;
     }
 
     @Override
@@ -114,13 +153,25 @@ class AlbumRepositoryInternalImpl implements AlbumRepositoryInternal {
 
     @Override
     public Mono<Album> findById(Long id) {
-        return createQuery(null, where("id").is(id)).one();
+        return findById(id, Projection.all());
     }
 
-    private Album process(Row row, RowMetadata metadata) {
-        Album entity = albumMapper.apply(row, "e");
-        entity.setSinger(singerMapper.apply(row, "singer"));
-        entity.setSongs(songMapper.apply(row, "songs"));
+    @Override
+    public Mono<Album> findById(Long id, Projection projection) {
+        return createQuery(null, where("id").is(id), projection).one();
+    }
+
+    /**
+     * Materializes the related entities only when they are joined and the join found them.
+     */
+    private Album process(Row row, RowMetadata metadata, Projection projection) {
+        Album entity = albumDecoder.apply(row, metadata);
+        if (entity.getSingerId() != null && projection.joins(SINGER)) {
+            entity.setSinger(singerDecoder.apply(row, metadata));
+        }
+        if (entity.getSongsId() != null && projection.joins(SONGS)) {
+            entity.setSongs(songDecoder.apply(row, metadata));
+        }
         return entity;
     }
 
@@ -156,13 +207,26 @@ class AlbumRepositoryInternalImpl implements AlbumRepositoryInternal {
 class AlbumSqlHelper {
 
     static List<Expression> getColumns(Table table, String columnPrefix) {
+        return getColumns(table, columnPrefix, Projection.all());
+    }
+
+    static List<Expression> getColumns(Table table, String columnPrefix, Projection projection) {
         List<Expression> columns = new ArrayList<>();
         columns.add(Column.aliased("id", table, columnPrefix + "_id"));
-        columns.add(Column.aliased("title", table, columnPrefix + "_title"));
-        columns.add(Column.aliased("published_at", table, columnPrefix + "_published_at"));
+        if (projection.includes("title")) {
+            columns.add(Column.aliased("title", table, columnPrefix + "_title"));
+        }
+        if (projection.includes("publishedAt")) {
+            columns.add(Column.aliased("published_at", table, columnPrefix + "_published_at"));
+        }
 
-        columns.add(Column.aliased("singer_id", table, columnPrefix + "_singer_id"));
-        columns.add(Column.aliased("songs_id", table, columnPrefix + "_songs_id"));
+        // The foreign keys tell whether the joins found the related entities
+        if (projection.includes("singerId") || projection.expands("singer")) {
+            columns.add(Column.aliased("singer_id", table, columnPrefix + "_singer_id"));
+        }
+        if (projection.includes("songsId") || projection.expands("songs")) {
+            columns.add(Column.aliased("songs_id", table, columnPrefix + "_songs_id"));
+        }
         return columns;
     }
 }
@@ -1,6 +1,7 @@
 package dev.appkr.repository;
 
 import dev.appkr.domain.Singer;
+import dev.appkr.service.Projection;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
@@ -35,6 +36,10 @@ interface SingerRepositoryInternal {
 
     Flux<Singer> findAll();
     Mono<Singer> findById(Long id);
+    Mono<Singer> findById(Long id, Projection projection);
     Flux<Singer> findAllBy(Pageable pageable);
     Flux<Singer> findAllBy(Pageable pageable, Criteria criteria);
+    Flux<Singer> findAllBy(Pageable pageable, Criteria criteria, Projection projection);
+    Flux<Singer> findAllAfter(String cursor, Pageable pageable);
+    Flux<Singer> findAllAfter(String cursor, Pageable pageable, Projection projection);
 }
@@ -4,15 +4,16 @@ import static org.springframework.data.relational.core.query.Criteria.where;
 import static org.springframework.data.relational.core.query.Query.query;
 
 import dev.appkr.domain.Singer;
+import dev.appkr.repository.rowmapper.RowDecoder;
 import dev.appkr.repository.rowmapper.SingerRowMapper;
 import dev.appkr.service.EntityManager;
+import dev.appkr.service.Projection;
 import io.r2dbc.spi.Row;
 import io.r2dbc.spi.RowMetadata;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Optional;
 import java.util.function.BiFunction;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
@@ -37,7 +38,7 @@ class SingerRepositoryInternalImpl implements SingerRepositoryInternal {
     private final R2dbcEntityTemplate r2dbcEntityTemplate;
     private final EntityManager entityManager;
 
-    private final SingerRowMapper singerMapper;
+    private final RowDecoder<Singer> singerDecoder;
 
     private static final Table entityTable = Table.aliased("singer", EntityManager.ENTITY_ALIAS);
 
@@ -45,7 +46,7 @@ class SingerRepositoryInternalImpl implements SingerRepositoryInternal {
         this.db = template.getDatabaseClient();
         this.r2dbcEntityTemplate = template;
         this.entityManager = entityManager;
-        this.singerMapper = singerMapper;
+        this.singerDecoder = singerMapper.decoder(EntityManager.ENTITY_ALIAS);
     }
 
     @Override
@@ -55,30 +56,36 @@ class SingerRepositoryInternalImpl implements SingerRepositoryInternal {
 
     @Override
     public Flux<Singer> findAllBy(Pageable pageable, Criteria criteria) {
-        return createQuery(pageable, criteria).all();
-    }
-
-    RowsFetchSpec<Singer> createQuery(Pageable pageable, Criteria criteria) {
-        List<Expression> columns = SingerSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
-        SelectFromAndJoin selectFrom = Select.builder().select(columns).from(entityTable);
-
-        String select = entityManager.createSelect(selectFrom, Singer.class, pageable, criteria);
-        String alias = entityTable.getReferenceName().getReference();
-        String selectWhere = Optional
-            .ofNullable(criteria)
-            .map(
-                crit ->
-                    new StringBuilder(select)
-                        .append(" ")
-                        .append("WHERE")
-                        .append(" ")
-                        .append(alias)
-                        .append(".")
-                        .append(crit.toString())
-                        .toString()
-            )
-            .orElse(select); // TODO remove once https://github.com/spring-projects/spring-data-jdbc/issues/907 will be fixed
-        return db.sql(selectWhere).map(this::process);
+        return findAllBy(pageable, criteria, Projection.all());
+    }
+
+    @Override
+    public Flux<Singer> findAllBy(Pageable pageable, Criteria criteria, Projection projection) {
+        return createQuery(pageable, criteria, projection).all();
+    }
+
+    @Override
+    public Flux<Singer> findAllAfter(String cursor, Pageable pageable) {
+        return findAllAfter(cursor, pageable, Projection.all());
+    }
+
+    @Override
+    public Flux<Singer> findAllAfter(String cursor, Pageable pageable, Projection projection) {
+        Projection selected = projection.including(pageable.getSort());
+        return Flux.defer(
+            () -> entityManager.createKeysetSelect(createSelectFrom(selected), Singer.class, pageable, cursor).map(this::process).all()
+        );
+    }
+
+    RowsFetchSpec<Singer> createQuery(Pageable pageable, Criteria criteria, Projection projection) {
+        return entityManager
+            .createSelect(() -> createSelectFrom(projection), Singer.class, projection.getKey(), pageable, criteria)
+            .map(this::process);
+    }
+
+    private SelectFromAndJoin createSelectFrom(Projection projection) {
+        List<Expression> columns = SingerSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS, projection);
+        return Select.builder().select(columns).from(entityTable);
     }
 
     @Override
@@ -88,11 +95,16 @@ class SingerRepositoryInternalImpl implements SingerRepositoryInternal {
 
     @Override
     public Mono<Singer> findById(Long id) {
-        return createQuery(null, where("id").is(id)).one();
+        return findById(id, Projection.all());
+    }
+
+    @Override
+    public Mono<Singer> findById(Long id, Projection projection) {
+        return createQuery(null, where("id").is(id), projection).one();
     }
 
     private Singer process(Row row, RowMetadata metadata) {
-        Singer entity = singerMapper.apply(row, "e");
+        Singer entity = singerDecoder.apply(row, metadata);
         return entity;
     }
 
@@ -128,9 +140,15 @@ class SingerRepositoryInternalImpl implements SingerRepositoryInternal {
 class SingerSqlHelper {
 
     static List<Expression> getColumns(Table table, String columnPrefix) {
+        return getColumns(table, columnPrefix, Projection.all());
+    }
+
+    static List<Expression> getColumns(Table table, String columnPrefix, Projection projection) {
         List<Expression> columns = new ArrayList<>();
         columns.add(Column.aliased("id", table, columnPrefix + "_id"));
-        columns.add(Column.aliased("name", table, columnPrefix + "_name"));
+        if (projection.includes("name")) {
+            columns.add(Column.aliased("name", table, columnPrefix + "_name"));
+        }
 
         return columns;
     }
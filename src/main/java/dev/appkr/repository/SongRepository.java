@@ -1,6 +1,7 @@
 package dev.appkr.repository;
 
 import dev.appkr.domain.Song;
+import dev.appkr.service.Projection;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
@@ -35,6 +36,10 @@ interface SongRepositoryInternal {
 
     Flux<Song> findAll();
     Mono<Song> findById(Long id);
+    Mono<Song> findById(Long id, Projection projection);
     Flux<Song> findAllBy(Pageable pageable);
     Flux<Song> findAllBy(Pageable pageable, Criteria criteria);
+    Flux<Song> findAllBy(Pageable pageable, Criteria criteria, Projection projection);
+    Flux<Song> findAllAfter(String cursor, Pageable pageable);
+    Flux<Song> findAllAfter(String cursor, Pageable pageable, Projection projection);
 }
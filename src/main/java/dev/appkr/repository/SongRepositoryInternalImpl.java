@@ -4,15 +4,16 @@ import static org.springframework.data.relational.core.query.Criteria.where;
 import static org.springframework.data.relational.core.query.Query.query;
 
 import dev.appkr.domain.Song;
+import dev.appkr.repository.rowmapper.RowDecoder;
 import dev.appkr.repository.rowmapper.SongRowMapper;
 import dev.appkr.service.EntityManager;
+import dev.appkr.service.Projection;
 import io.r2dbc.spi.Row;
 import io.r2dbc.spi.RowMetadata;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Optional;
 import java.util.function.BiFunction;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
@@ -37,7 +38,7 @@ class SongRepositoryInternalImpl implements SongRepositoryInternal {
     private final R2dbcEntityTemplate r2dbcEntityTemplate;
     private final EntityManager entityManager;
 
-    private final SongRowMapper songMapper;
+    private final RowDecoder<Song> songDecoder;
 
     private static final Table entityTable = Table.aliased("song", EntityManager.ENTITY_ALIAS);
 
@@ -45,7 +46,7 @@ class SongRepositoryInternalImpl implements SongRepositoryInternal {
         this.db = template.getDatabaseClient();
         this.r2dbcEntityTemplate = template;
         this.entityManager = entityManager;
-        this.songMapper = songMapper;
+        this.songDecoder = songMapper.decoder(EntityManager.ENTITY_ALIAS);
     }
 
     @Override
@@ -55,30 +56,36 @@ class SongRepositoryInternalImpl implements SongRepositoryInternal {
 
     @Override
     public Flux<Song> findAllBy(Pageable pageable, Criteria criteria) {
-        return createQuery(pageable, criteria).all();
-    }
-
-    RowsFetchSpec<Song> createQuery(Pageable pageable, Criteria criteria) {
-        List<Expression> columns = SongSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
-        SelectFromAndJoin selectFrom = Select.builder().select(columns).from(entityTable);
-
-        String select = entityManager.createSelect(selectFrom, Song.class, pageable, criteria);
-        String alias = entityTable.getReferenceName().getReference();
-        String selectWhere = Optional
-            .ofNullable(criteria)
-            .map(
-                crit ->
-                    new StringBuilder(select)
-                        .append(" ")
-                        .append("WHERE")
-                        .append(" ")
-                        .append(alias)
-                        .append(".")
-                        .append(crit.toString())
-                        .toString()
-            )
-            .orElse(select); // TODO remove once https://github.com/spring-projects/spring-data-jdbc/issues/907 will be fixed
-        return db.sql(selectWhere).map(this::process);
+        return findAllBy(pageable, criteria, Projection.all());
+    }
+
+    @Override
+    public Flux<Song> findAllBy(Pageable pageable, Criteria criteria, Projection projection) {
+        return createQuery(pageable, criteria, projection).all();
+    }
+
+    @Override
+    public Flux<Song> findAllAfter(String cursor, Pageable pageable) {
+        return findAllAfter(cursor, pageable, Projection.all());
+    }
+
+    @Override
+    public Flux<Song> findAllAfter(String cursor, Pageable pageable, Projection projection) {
+        Projection selected = projection.including(pageable.getSort());
+        return Flux.defer(
+            () -> entityManager.createKeysetSelect(createSelectFrom(selected), Song.class, pageable, cursor).map(this::process).all()
+        );
+    }
+
+    RowsFetchSpec<Song> createQuery(Pageable pageable, Criteria criteria, Projection projection) {
+        return entityManager
+            .createSelect(() -> createSelectFrom(projection), Song.class, projection.getKey(), pageable, criteria)
+            .map(this::process);
+    }
+
+    private SelectFromAndJoin createSelectFrom(Projection projection) {
+        List<Expression> columns = SongSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS, projection);
+        return Select.builder().select(columns).from(entityTable);
     }
 
     @Override
@@ -88,11 +95,16 @@ class SongRepositoryInternalImpl implements SongRepositoryInternal {
 
     @Override
     public Mono<Song> findById(Long id) {
-        return createQuery(null, where("id").is(id)).one();
+        return findById(id, Projection.all());
+    }
+
+    @Override
+    public Mono<Song> findById(Long id, Projection projection) {
+        return createQuery(null, where("id").is(id), projection).one();
     }
 
     private Song process(Row row, RowMetadata metadata) {
-        Song entity = songMapper.apply(row, "e");
+        Song entity = songDecoder.apply(row, metadata);
         return entity;
     }
 
@@ -128,10 +140,18 @@ class SongRepositoryInternalImpl implements SongRepositoryInternal {
 class SongSqlHelper {
 
     static List<Expression> getColumns(Table table, String columnPrefix) {
+        return getColumns(table, columnPrefix, Projection.all());
+    }
+
+    static List<Expression> getColumns(Table table, String columnPrefix, Projection projection) {
         List<Expression> columns = new ArrayList<>();
         columns.add(Column.aliased("id", table, columnPrefix + "_id"));
-        columns.add(Column.aliased("title", table, columnPrefix + "_title"));
-        columns.add(Column.aliased("play_time", table, columnPrefix + "_play_time"));
+        if (projection.includes("title")) {
+            columns.add(Column.aliased("title", table, columnPrefix + "_title"));
+        }
+        if (projection.includes("playTime")) {
+            columns.add(Column.aliased("play_time", table, columnPrefix + "_play_time"));
+        }
 
         return columns;
     }
@@ -7,16 +7,19 @@ import dev.appkr.domain.Authority;
 import dev.appkr.domain.User;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import org.apache.commons.beanutils.BeanComparator;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.data.relational.core.query.Criteria;
 import org.springframework.data.relational.core.sql.Column;
 import org.springframework.data.relational.core.sql.Expression;
 import org.springframework.data.relational.core.sql.Table;
@@ -38,6 +41,10 @@ public interface UserRepository extends R2dbcRepository<User, Long>, UserReposit
 
     Mono<User> findOneByResetKey(String resetKey);
 
+    /**
+     * The emails are stored in lower case: comparing them as they are lets the unique index find them.
+     */
+    @Query("SELECT * FROM jhi_user WHERE email = LOWER(:email)")
     Mono<User> findOneByEmailIgnoreCase(String email);
 
     Mono<User> findOneByLogin(String login);
@@ -68,6 +75,24 @@ interface UserRepositoryInternal extends DeleteExtended<User> {
     Mono<User> findOneWithAuthoritiesByEmailIgnoreCase(String email);
 
     Flux<User> findAllWithAuthorities(Pageable pageable);
+
+    /**
+     * Delete a chunk of the authorities of the users which weren't activated in time.
+     *
+     * @param createdBefore the creation date the users weren't activated after.
+     * @param limit the maximum number of authorities to delete.
+     * @return the number of authorities deleted.
+     */
+    Mono<Integer> deleteAuthoritiesOfNotActivatedUsers(LocalDateTime createdBefore, int limit);
+
+    /**
+     * Delete a chunk of the users which weren't activated in time, and have no authorities left.
+     *
+     * @param createdBefore the creation date the users weren't activated after.
+     * @param limit the maximum number of users to delete.
+     * @return the number of users deleted.
+     */
+    Mono<Integer> deleteNotActivatedUsers(LocalDateTime createdBefore, int limit);
 }
 
 class UserRepositoryInternalImpl implements UserRepositoryInternal {
@@ -94,27 +119,71 @@ class UserRepositoryInternalImpl implements UserRepositoryInternal {
 
     @Override
     public Flux<User> findAllWithAuthorities(Pageable pageable) {
-        String property = pageable.getSort().stream().map(Sort.Order::getProperty).findFirst().get();
-        String direction = String.valueOf(pageable.getSort().stream().map(Sort.Order::getDirection).findFirst().get());
-        long page = pageable.getPageNumber();
-        long size = pageable.getPageSize();
+        Sort sort;
+        try {
+            sort = validateSort(pageable.getSort());
+        } catch (IllegalArgumentException e) {
+            return Flux.error(e);
+        }
+
+        return r2dbcEntityTemplate
+            .select(User.class)
+            .matching(query(Criteria.empty()).sort(sort).limit(pageable.getPageSize()).offset(pageable.getOffset()))
+            .all()
+            .collectList()
+            .flatMapMany(this::fetchAuthorities);
+    }
 
+    /**
+     * Checks that every sort property maps to a column of {@code jhi_user}, and appends the id as a tie-breaker
+     * so that the database returns a stable page order.
+     */
+    private Sort validateSort(Sort sort) {
+        RelationalPersistentEntity<?> entity = r2dbcConverter.getMappingContext().getRequiredPersistentEntity(User.class);
+        for (Sort.Order order : sort) {
+            RelationalPersistentProperty property = entity.getPersistentProperty(order.getProperty());
+            if (property == null || property.isTransient()) {
+                throw new IllegalArgumentException("Unsupported sort property: " + order.getProperty());
+            }
+        }
+        return sort.getOrderFor("id") != null ? sort : sort.and(Sort.by("id"));
+    }
+
+    /**
+     * Loads the authorities of the given page of users with a single query, keeping the order of the page.
+     */
+    private Flux<User> fetchAuthorities(List<User> users) {
+        if (users.isEmpty()) {
+            return Flux.empty();
+        }
+        List<Long> userIds = users.stream().map(User::getId).collect(Collectors.toList());
         return db
-            .sql("SELECT * FROM jhi_user u LEFT JOIN jhi_user_authority ua ON u.id=ua.user_id")
-            .map(
-                (row, metadata) ->
-                    Tuples.of(r2dbcConverter.read(User.class, row, metadata), Optional.ofNullable(row.get("authority_name", String.class)))
-            )
+            .sql("SELECT user_id, authority_name FROM jhi_user_authority WHERE user_id IN (:userIds)")
+            .bind("userIds", userIds)
+            .map((row, metadata) -> Tuples.of(row.get("user_id", Long.class), row.get("authority_name", String.class)))
             .all()
-            .groupBy(t -> t.getT1().getLogin())
-            .flatMap(l -> l.collectList().map(t -> updateUserWithAuthorities(t.get(0).getT1(), t)))
-            .sort(
-                Sort.Direction.fromString(direction) == Sort.DEFAULT_DIRECTION
-                    ? new BeanComparator<>(property)
-                    : new BeanComparator<>(property).reversed()
-            )
-            .skip(page * size)
-            .take(size);
+            .collectMultimap(Tuple2::getT1, Tuple2::getT2)
+            .flatMapIterable(
+                authoritiesByUserId -> {
+                    users.forEach(
+                        user ->
+                            user.setAuthorities(
+                                authoritiesByUserId
+                                    .getOrDefault(user.getId(), Collections.emptyList())
+                                    .stream()
+                                    .map(
+                                        name -> {
+                                            Authority authority = new Authority();
+                                            authority.setName(name);
+                                            return authority;
+                                        }
+                                    )
+                                    .collect(Collectors.toSet())
+                            )
+                    );
+                    return users;
+                }
+            );
     }
 
     @Override
@@ -126,6 +195,32 @@ class UserRepositoryInternalImpl implements UserRepositoryInternal {
             .then(r2dbcEntityTemplate.delete(User.class).matching(query(where("id").is(user.getId()))).all().then());
     }
 
+    @Override
+    public Mono<Integer> deleteAuthoritiesOfNotActivatedUsers(LocalDateTime createdBefore, int limit) {
+        return db
+            .sql(
+                "DELETE FROM jhi_user_authority WHERE user_id IN (SELECT id FROM jhi_user " +
+                "WHERE activated = FALSE AND created_date < :createdBefore AND activation_key IS NOT NULL) LIMIT :limit"
+            )
+            .bind("createdBefore", createdBefore)
+            .bind("limit", limit)
+            .fetch()
+            .rowsUpdated();
+    }
+
+    @Override
+    public Mono<Integer> deleteNotActivatedUsers(LocalDateTime createdBefore, int limit) {
+        return db
+            .sql(
+                "DELETE FROM jhi_user WHERE activated = FALSE AND created_date < :createdBefore AND activation_key IS NOT NULL " +
+                "AND NOT EXISTS (SELECT 1 FROM jhi_user_authority ua WHERE ua.user_id = jhi_user.id) LIMIT :limit"
+            )
+            .bind("createdBefore", createdBefore)
+            .bind("limit", limit)
+            .fetch()
+            .rowsUpdated();
+    }
+
     private Mono<User> findOneWithAuthoritiesBy(String fieldName, Object fieldValue) {
         return db
             .sql("SELECT * FROM jhi_user u LEFT JOIN jhi_user_authority ua ON u.id=ua.user_id WHERE u." + fieldName + " = :" + fieldName)
@@ -33,4 +33,20 @@ public class AlbumRowMapper implements BiFunction<Row, String, Album> {
         entity.setSongsId(converter.fromRow(row, prefix + "_songs_id", Long.class));
         return entity;
     }
+
+    /**
+     * Create a {@link RowDecoder} which extracts all the fields of the columns with the given prefix, reading them by index.
+     * It should be created once and reused for all the rows of the queries.
+     * @return the {@link RowDecoder} of {@link Album}.
+     */
+    public RowDecoder<Album> decoder(String prefix) {
+        return RowDecoder
+            .builder(Album::new, converter, prefix)
+            .column("id", Long.class, Album::setId)
+            .column("title", String.class, Album::setTitle)
+            .column("published_at", Instant.class, Album::setPublishedAt)
+            .column("singer_id", Long.class, Album::setSingerId)
+            .column("songs_id", Long.class, Album::setSongsId)
+            .build();
+    }
 }
@@ -0,0 +1,196 @@
+package dev.appkr.repository.rowmapper;
+
+import dev.appkr.service.ColumnConverter;
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Decodes the prefixed columns of a {@link Row} into an entity, reading them by index.
+ * <p>
+ * The column names are prefixed once, when the decoder is built. The first row of a result set of a given shape, its
+ * column names and types, resolves the index of each column from the {@link RowMetadata}, and whether the driver returns
+ * the wanted type natively or the value has to go through the {@link ColumnConverter}. The plan is kept by shape, so
+ * that the result sets read at the same time, and the following executions of the same query, reuse it; the following
+ * rows which share the same metadata find it without looking the shape up. Columns absent from the result set are left
+ * {@code null}.
+ *
+ * @param <T> the type of the entity.
+ */
+public final class RowDecoder<T> implements BiFunction<Row, RowMetadata, T> {
+
+    /**
+     * The shapes of result sets a decoder keeps the plan of; the queries of a repository only have a few.
+     */
+    private static final int MAX_SHAPES = 32;
+
+    private final Supplier<T> factory;
+    private final ColumnConverter converter;
+    private final List<DecodedColumn<T, ?>> columns;
+
+    private final Map<List<String>, Plan> plans = new ConcurrentHashMap<>();
+
+    private volatile Plan lastPlan;
+
+    private RowDecoder(Supplier<T> factory, ColumnConverter converter, List<DecodedColumn<T, ?>> columns) {
+        this.factory = factory;
+        this.converter = converter;
+        this.columns = columns;
+    }
+
+    /**
+     * Starts building a decoder.
+     *
+     * @param factory creates the empty entity to fill.
+     * @param converter converts the values the driver doesn't return as the wanted type.
+     * @param prefix the prefix of the columns, as in {@code prefix_column}.
+     * @param <T> the type of the entity.
+     * @return the builder.
+     */
+    public static <T> Builder<T> builder(Supplier<T> factory, ColumnConverter converter, String prefix) {
+        return new Builder<>(factory, converter, prefix);
+    }
+
+    @Override
+    public T apply(Row row, RowMetadata metadata) {
+        Plan plan = plan(metadata);
+        T entity = factory.get();
+        for (int i = 0; i < plan.indexes.length; i++) {
+            int index = plan.indexes[i];
+            if (index >= 0) {
+                columns.get(i).decode(row, index, plan.natives[i], converter, entity);
+            }
+        }
+        return entity;
+    }
+
+    private Plan plan(RowMetadata metadata) {
+        Plan plan = this.lastPlan;
+        if (plan != null && plan.metadata == metadata) {
+            return plan;
+        }
+        List<String> shape = shape(metadata);
+        plan = plans.get(shape);
+        if (plan == null) {
+            plan = new Plan(metadata, columns);
+            if (plans.size() < MAX_SHAPES) {
+                plans.putIfAbsent(shape, plan);
+            }
+        } else if (plan.metadata != metadata) {
+            plan = plan.sharedWith(metadata);
+        }
+        this.lastPlan = plan;
+        return plan;
+    }
+
+    private static List<String> shape(RowMetadata metadata) {
+        List<String> shape = new ArrayList<>();
+        for (ColumnMetadata columnMetadata : metadata.getColumnMetadatas()) {
+            shape.add(columnMetadata.getName() + ":" + columnMetadata.getJavaType());
+        }
+        return shape;
+    }
+
+    /**
+     * Where the columns are in the rows of a result set, and how to read them.
+     */
+    private static final class Plan {
+
+        private final RowMetadata metadata;
+        private final int[] indexes;
+        private final boolean[] natives;
+
+        private Plan(RowMetadata metadata, int[] indexes, boolean[] natives) {
+            this.metadata = metadata;
+            this.indexes = indexes;
+            this.natives = natives;
+        }
+
+        private Plan(RowMetadata metadata, List<? extends DecodedColumn<?, ?>> columns) {
+            this.metadata = metadata;
+            Map<String, Integer> indexByName = new HashMap<>();
+            List<ColumnMetadata> columnMetadatas = new ArrayList<>();
+            for (ColumnMetadata columnMetadata : metadata.getColumnMetadatas()) {
+                indexByName.putIfAbsent(columnMetadata.getName().toLowerCase(Locale.ROOT), columnMetadatas.size());
+                columnMetadatas.add(columnMetadata);
+            }
+            this.indexes = new int[columns.size()];
+            this.natives = new boolean[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                DecodedColumn<?, ?> column = columns.get(i);
+                Integer index = indexByName.get(column.name);
+                indexes[i] = index == null ? -1 : index;
+                if (index != null) {
+                    Class<?> javaType = columnMetadatas.get(index).getJavaType();
+                    natives[i] = javaType != null && column.type.isAssignableFrom(javaType);
+                }
+            }
+        }
+
+        /**
+         * @return this plan, for the rows of another result set of the same shape.
+         */
+        private Plan sharedWith(RowMetadata metadata) {
+            return new Plan(metadata, indexes, natives);
+        }
+    }
+
+    private static final class DecodedColumn<T, V> {
+
+        private final String name;
+        private final Class<V> type;
+        private final BiConsumer<T, V> setter;
+
+        private DecodedColumn(String name, Class<V> type, BiConsumer<T, V> setter) {
+            this.name = name;
+            this.type = type;
+            this.setter = setter;
+        }
+
+        private void decode(Row row, int index, boolean nativeType, ColumnConverter converter, T entity) {
+            V value = nativeType ? row.get(index, type) : converter.convert(row.get(index), type);
+            setter.accept(entity, value);
+        }
+    }
+
+    public static final class Builder<T> {
+
+        private final Supplier<T> factory;
+        private final ColumnConverter converter;
+        private final String prefix;
+        private final List<DecodedColumn<T, ?>> columns = new ArrayList<>();
+
+        private Builder(Supplier<T> factory, ColumnConverter converter, String prefix) {
+            this.factory = factory;
+            this.converter = converter;
+            this.prefix = prefix;
+        }
+
+        /**
+         * Adds a column to decode.
+         *
+         * @param name the name of the column, without prefix.
+         * @param type the type of the field.
+         * @param setter sets the decoded value, possibly {@code null}, on the entity.
+         * @param <V> the type of the field.
+         * @return this builder.
+         */
+        public <V> Builder<T> column(String name, Class<V> type, BiConsumer<T, V> setter) {
+            columns.add(new DecodedColumn<>((prefix + "_" + name).toLowerCase(Locale.ROOT), type, setter));
+            return this;
+        }
+
+        public RowDecoder<T> build() {
+            return new RowDecoder<>(factory, converter, new ArrayList<>(columns));
+        }
+    }
+}
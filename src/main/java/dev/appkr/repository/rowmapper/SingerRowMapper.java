@@ -29,4 +29,17 @@ public class SingerRowMapper implements BiFunction<Row, String, Singer> {
         entity.setName(converter.fromRow(row, prefix + "_name", String.class));
         return entity;
     }
+
+    /**
+     * Create a {@link RowDecoder} which extracts all the fields of the columns with the given prefix, reading them by index.
+     * It should be created once and reused for all the rows of the queries.
+     * @return the {@link RowDecoder} of {@link Singer}.
+     */
+    public RowDecoder<Singer> decoder(String prefix) {
+        return RowDecoder
+            .builder(Singer::new, converter, prefix)
+            .column("id", Long.class, Singer::setId)
+            .column("name", String.class, Singer::setName)
+            .build();
+    }
 }
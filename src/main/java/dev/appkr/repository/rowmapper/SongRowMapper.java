@@ -30,4 +30,18 @@ public class SongRowMapper implements BiFunction<Row, String, Song> {
         entity.setPlayTime(converter.fromRow(row, prefix + "_play_time", String.class));
         return entity;
     }
+
+    /**
+     * Create a {@link RowDecoder} which extracts all the fields of the columns with the given prefix, reading them by index.
+     * It should be created once and reused for all the rows of the queries.
+     * @return the {@link RowDecoder} of {@link Song}.
+     */
+    public RowDecoder<Song> decoder(String prefix) {
+        return RowDecoder
+            .builder(Song::new, converter, prefix)
+            .column("id", Long.class, Song::setId)
+            .column("title", String.class, Song::setTitle)
+            .column("play_time", String.class, Song::setPlayTime)
+            .build();
+    }
 }
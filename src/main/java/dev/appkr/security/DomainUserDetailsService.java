@@ -2,6 +2,7 @@ package dev.appkr.security;
 
 import dev.appkr.domain.User;
 import dev.appkr.repository.UserRepository;
+import dev.appkr.service.EntityCache;
 import java.util.*;
 import java.util.stream.Collectors;
 import org.hibernate.validator.internal.constraintvalidators.hv.EmailValidator;
@@ -13,43 +14,60 @@ import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Mono;
 
 /**
  * Authenticate a user from the database.
+ * <p>
+ * The users found are cached by lower case login or email, see {@link #cacheKey(String)}, until the
+ * {@link dev.appkr.service.UserService} changes them. Users who aren't found or aren't activated aren't cached.
  */
 @Component("userDetailsService")
 public class DomainUserDetailsService implements ReactiveUserDetailsService {
 
     private final Logger log = LoggerFactory.getLogger(DomainUserDetailsService.class);
 
+    private static final EmailValidator EMAIL_VALIDATOR = new EmailValidator();
+
     private final UserRepository userRepository;
 
-    public DomainUserDetailsService(UserRepository userRepository) {
+    private final EntityCache<String, UserDetails> userDetailsCache;
+
+    public DomainUserDetailsService(UserRepository userRepository, EntityCache<String, UserDetails> userDetailsCache) {
         this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
+    }
+
+    /**
+     * @param login the login or email of a user.
+     * @return the key of the user in the cache.
+     */
+    public static String cacheKey(String login) {
+        return login.toLowerCase(Locale.ENGLISH);
     }
 
     @Override
-    @Transactional
     public Mono<UserDetails> findByUsername(final String login) {
         log.debug("Authenticating {}", login);
+        return userDetailsCache
+            .get(cacheKey(login), key -> loadUserByUsername(login))
+            .switchIfEmpty(Mono.error(() -> new UsernameNotFoundException("User " + login + " was not found in the database")));
+    }
 
-        if (new EmailValidator().isValid(login, null)) {
+    private Mono<UserDetails> loadUserByUsername(String login) {
+        if (EMAIL_VALIDATOR.isValid(login, null)) {
             return userRepository
                 .findOneWithAuthoritiesByEmailIgnoreCase(login)
-                .switchIfEmpty(Mono.error(new UsernameNotFoundException("User with email " + login + " was not found in the database")))
                 .map(user -> createSpringSecurityUser(login, user));
         }
 
         String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
         return userRepository
             .findOneWithAuthoritiesByLogin(lowercaseLogin)
-            .switchIfEmpty(Mono.error(new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the database")))
             .map(user -> createSpringSecurityUser(lowercaseLogin, user));
     }
 
-    private org.springframework.security.core.userdetails.User createSpringSecurityUser(String lowercaseLogin, User user) {
+    private UserDetails createSpringSecurityUser(String lowercaseLogin, User user) {
         if (!user.isActivated()) {
             throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
         }
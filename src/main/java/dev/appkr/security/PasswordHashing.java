@@ -0,0 +1,62 @@
+package dev.appkr.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Utility class for the scheduler the passwords are hashed and verified on.
+ * <p>
+ * BCrypt is CPU-bound and slow on purpose: it must neither run on the event loops nor flood the shared elastic
+ * scheduler. The password hashing scheduler runs it on a fixed number of threads, with a bounded queue in front of
+ * them; when the queue is full, the work is rejected with a {@link RejectedExecutionException}, which is answered with
+ * a {@code 503 Service Unavailable}.
+ * <p>
+ * The queue depth, the time spent waiting in the queue and hashing are metered as the {@code executor.*} metrics tagged
+ * with {@code name=password.hashing}, and the rejections as {@code password.hashing.rejected}.
+ */
+public final class PasswordHashing {
+
+    public static final String SCHEDULER_NAME = "password.hashing";
+
+    private PasswordHashing() {}
+
+    /**
+     * Create the password hashing scheduler.
+     *
+     * @param threads the number of threads hashing at the same time.
+     * @param queueCapacity the number of hashings which can wait for a thread.
+     * @param meterRegistry the registry of the metrics.
+     * @return the scheduler, to dispose when it isn't used anymore.
+     */
+    public static Scheduler newScheduler(int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        Counter rejections = Counter
+            .builder(SCHEDULER_NAME + ".rejected")
+            .description("Number of password hashings rejected because the queue was full")
+            .register(meterRegistry);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new CustomizableThreadFactory("password-hashing-"),
+            (task, pool) -> {
+                rejections.increment();
+                throw new RejectedExecutionException("Too many passwords are being hashed");
+            }
+        );
+        return Schedulers.fromExecutorService(
+            ExecutorServiceMetrics.monitor(meterRegistry, executor, SCHEDULER_NAME, Tags.empty()),
+            "password-hashing"
+        );
+    }
+}
@@ -1,12 +1,22 @@
 package dev.appkr.security.jwt;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import dev.appkr.config.ApplicationProperties;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.jackson.io.JacksonSerializer;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +44,11 @@ public class TokenProvider {
 
     private final long tokenValidityInMillisecondsForRememberMe;
 
-    public TokenProvider(JHipsterProperties jHipsterProperties) {
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    private final Map<String, GrantedAuthority> grantedAuthorities = new ConcurrentHashMap<>();
+
+    public TokenProvider(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
         byte[] keyBytes;
         String secret = jHipsterProperties.getSecurity().getAuthentication().getJwt().getSecret();
         if (!ObjectUtils.isEmpty(secret)) {
@@ -52,6 +66,14 @@ public class TokenProvider {
         this.tokenValidityInMilliseconds = 1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSeconds();
         this.tokenValidityInMillisecondsForRememberMe =
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSecondsForRememberMe();
+        this.verifiedTokens =
+            Caffeine
+                .newBuilder()
+                .maximumSize(applicationProperties.getSecurity().getVerifiedTokenCacheMaxEntries())
+                .expireAfter(new UntilExpiration())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "verified-tokens");
     }
 
     public String createToken(Authentication authentication, boolean rememberMe) {
@@ -76,12 +98,45 @@ public class TokenProvider {
     }
 
     public Authentication getAuthentication(String token) {
-        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        return getAuthentication(jwtParser.parseClaimsJws(token).getBody(), token);
+    }
 
+    /**
+     * Verify a token and get its authentication, parsing it only once.
+     * <p>
+     * The verified tokens are cached by their SHA-256 digest until they expire, so that the next requests with the same
+     * token skip the verification of its signature; they share the same authentication, which mustn't be modified. The
+     * hits and misses are metered as the {@code cache.*} metrics tagged with {@code cache=verified-tokens}.
+     *
+     * @param token the token.
+     * @return the authentication, or empty if the token is invalid.
+     */
+    public Optional<Authentication> getVerifiedAuthentication(String token) {
+        String digest = digest(token);
+        VerifiedToken verified = verifiedTokens.getIfPresent(digest);
+        if (verified != null) {
+            return Optional.of(verified.authentication);
+        }
+        Claims claims;
+        try {
+            claims = jwtParser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.info("Invalid JWT token.");
+            log.trace("Invalid JWT token trace.", e);
+            return Optional.empty();
+        }
+        Authentication authentication = getAuthentication(claims, token);
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(digest, new VerifiedToken(authentication, claims.getExpiration().getTime()));
+        }
+        return Optional.of(authentication);
+    }
+
+    private Authentication getAuthentication(Claims claims, String token) {
         Collection<? extends GrantedAuthority> authorities = Arrays
             .stream(claims.get(AUTHORITIES_KEY).toString().split(","))
             .filter(auth -> !auth.trim().isEmpty())
-            .map(SimpleGrantedAuthority::new)
+            .map(auth -> grantedAuthorities.computeIfAbsent(auth, SimpleGrantedAuthority::new))
             .collect(Collectors.toList());
 
         User principal = new User(claims.getSubject(), "", authorities);
@@ -99,4 +154,45 @@ public class TokenProvider {
         }
         return false;
     }
+
+    private static String digest(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class VerifiedToken {
+
+        private final Authentication authentication;
+        private final long expiresAt;
+
+        private VerifiedToken(Authentication authentication, long expiresAt) {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Keeps the verified tokens until their expiration time.
+     */
+    private static final class UntilExpiration implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String digest, VerifiedToken token, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, token.expiresAt - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String digest, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(digest, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String digest, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
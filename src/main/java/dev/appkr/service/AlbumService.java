@@ -1,14 +1,24 @@
 package dev.appkr.service;
 
 import dev.appkr.domain.Album;
+import dev.appkr.domain.Singer;
+import dev.appkr.domain.Song;
 import dev.appkr.repository.AlbumRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 /**
  * Service Implementation for managing {@link Album}.
@@ -17,12 +27,36 @@ import reactor.core.publisher.Mono;
 @Transactional
 public class AlbumService {
 
+    private static final String ENTITY_NAME = "album";
+
     private final Logger log = LoggerFactory.getLogger(AlbumService.class);
 
     private final AlbumRepository albumRepository;
 
-    public AlbumService(AlbumRepository albumRepository) {
+    private final EntityManager entityManager;
+
+    private final PaginationService paginationService;
+
+    private final BatchLoader<Long, Singer> singerLoader;
+
+    private final BatchLoader<Long, Song> songLoader;
+
+    private final EntityCache<Long, Album> albumCache;
+
+    public AlbumService(
+        AlbumRepository albumRepository,
+        EntityManager entityManager,
+        PaginationService paginationService,
+        BatchLoader<Long, Singer> singerLoader,
+        BatchLoader<Long, Song> songLoader,
+        EntityCache<Long, Album> albumCache
+    ) {
         this.albumRepository = albumRepository;
+        this.entityManager = entityManager;
+        this.paginationService = paginationService;
+        this.singerLoader = singerLoader;
+        this.songLoader = songLoader;
+        this.albumCache = albumCache;
     }
 
     /**
@@ -33,7 +67,10 @@ public class AlbumService {
      */
     public Mono<Album> save(Album album) {
         log.debug("Request to save Album : {}", album);
-        return albumRepository.save(album);
+        return albumRepository
+            .save(album)
+            .flatMap(saved -> albumCache.evict(saved.getId()).thenReturn(saved))
+            .doOnSuccess(saved -> paginationService.evictCount(ENTITY_NAME));
     }
 
     /**
@@ -59,7 +96,8 @@ public class AlbumService {
                     return existingAlbum;
                 }
             )
-            .flatMap(albumRepository::save);
+            .flatMap(albumRepository::save)
+            .flatMap(saved -> albumCache.evict(saved.getId()).thenReturn(saved));
     }
 
     /**
@@ -74,6 +112,59 @@ public class AlbumService {
         return albumRepository.findAllBy(pageable);
     }
 
+    /**
+     * Get a page of albums, along with their count.
+     * <p>
+     * Not transactional: the rows are streamed after the pagination information has been returned, so the count and the
+     * rows are read separately, and the count may miss the albums saved or deleted in between.
+     *
+     * @param pageable the pagination information.
+     * @param countStrategy how to count the albums, or null to use the configured strategy.
+     * @param projection the properties and relations to load.
+     * @return the pagination information, which is a {@link org.springframework.data.domain.Page} if the albums were counted and
+     * a {@link Slice} otherwise, along with the stream of entities.
+     */
+    @Transactional(readOnly = true)
+    public Mono<Tuple2<Slice<Album>, Flux<Album>>> findPage(Pageable pageable, CountStrategy countStrategy, Projection projection) {
+        log.debug("Request to get a page of Albums with {}", projection);
+        return paginationService.findPage(
+            ENTITY_NAME,
+            pageable,
+            countStrategy,
+            page -> loadRelations(albumRepository.findAllBy(page, null, projection), projection),
+            albumRepository::count
+        );
+    }
+
+    /**
+     * Get the albums which come after the given cursor, using keyset pagination.
+     *
+     * @param cursor the cursor of the last album of the previous page, or empty for the first page.
+     * @param pageable the page size and sort information.
+     * @param projection the properties and relations to load.
+     * @return the list of entities.
+     */
+    @Transactional(readOnly = true)
+    public Flux<Album> findAllAfter(String cursor, Pageable pageable, Projection projection) {
+        log.debug("Request to get all Albums after : {}", cursor);
+        return loadRelations(albumRepository.findAllAfter(cursor, pageable, projection), projection);
+    }
+
+    /**
+     * Returns the cursor which points right after the last album of the given page, for keyset pagination.
+     *
+     * @param albums the entities of the current page.
+     * @param pageable the page size and sort information.
+     * @return the cursor, or empty if there is no next page.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Mono<String> createNextCursor(List<Album> albums, Pageable pageable) {
+        if (albums.size() < pageable.getPageSize()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> entityManager.createCursor(albums.get(albums.size() - 1), pageable.getSort()));
+    }
+
     /**
      * Returns the number of albums available.
      * @return the number of entities in the database.
@@ -87,12 +178,55 @@ public class AlbumService {
      * Get one album by id.
      *
      * @param id the id of the entity.
-     * @return the entity.
+     * @param projection the properties and relations to load.
+     * @return the entity, from the cache when it is loaded whole along with its relations.
      */
     @Transactional(readOnly = true)
-    public Mono<Album> findOne(Long id) {
+    public Mono<Album> findOne(Long id, Projection projection) {
         log.debug("Request to get Album : {}", id);
-        return albumRepository.findById(id);
+        if (!Projection.all().equals(projection)) {
+            return loadRelations(albumRepository.findById(id, projection).flux(), projection).next();
+        }
+        return albumCache.get(id, key -> albumRepository.findById(key, projection));
+    }
+
+    /**
+     * Batch-loads the relations expanded with {@link ExpandMode#BATCH}: one query per relation for all the albums, shared
+     * with the concurrent requests.
+     */
+    private Flux<Album> loadRelations(Flux<Album> albums, Projection projection) {
+        boolean singer = projection.getExpandMode() == ExpandMode.BATCH && projection.expands("singer");
+        boolean songs = projection.getExpandMode() == ExpandMode.BATCH && projection.expands("songs");
+        if (!singer && !songs) {
+            return albums;
+        }
+        return albums
+            .collectList()
+            .flatMapMany(
+                list -> {
+                    Mono<Map<Long, Singer>> singers = singer ? singerLoader.loadMany(ids(list, Album::getSingerId)) : Mono.just(Map.of());
+                    Mono<Map<Long, Song>> songsById = songs ? songLoader.loadMany(ids(list, Album::getSongsId)) : Mono.just(Map.of());
+                    return Mono
+                        .zip(singers, songsById)
+                        .flatMapIterable(
+                            loaded -> {
+                                for (Album album : list) {
+                                    if (album.getSingerId() != null && loaded.getT1().containsKey(album.getSingerId())) {
+                                        album.setSinger(loaded.getT1().get(album.getSingerId()));
+                                    }
+                                    if (album.getSongsId() != null && loaded.getT2().containsKey(album.getSongsId())) {
+                                        album.setSongs(loaded.getT2().get(album.getSongsId()));
+                                    }
+                                }
+                                return list;
+                            }
+                        );
+                }
+            );
+    }
+
+    private static List<Long> ids(List<Album> albums, Function<Album, Long> foreignKey) {
+        return albums.stream().map(foreignKey).filter(Objects::nonNull).distinct().collect(Collectors.toList());
     }
 
     /**
@@ -103,6 +237,9 @@ public class AlbumService {
      */
     public Mono<Void> delete(Long id) {
         log.debug("Request to delete Album : {}", id);
-        return albumRepository.deleteById(id);
+        return albumCache
+            .evict(id)
+            .then(albumRepository.deleteById(id))
+            .doOnSuccess(deleted -> paginationService.evictCount(ENTITY_NAME));
     }
 }
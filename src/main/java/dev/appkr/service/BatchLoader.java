@@ -0,0 +1,193 @@
+package dev.appkr.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+/**
+ * Loads entities by key in batches, DataLoader-style.
+ * <p>
+ * The keys requested within the batch window, by one request or several concurrent ones, are coalesced into one call
+ * of the batch function, typically a {@code WHERE id IN (...)} query; a key requested twice in the same window is only
+ * loaded once. A batch is dispatched as soon as it holds the maximum number of keys, or when the window ends.
+ * <p>
+ * The batch function runs apart from the subscribers, so it doesn't take part in their transactions: it should only
+ * read. The batch sizes are recorded as {@code batch.loader.size}, and the requested keys as
+ * {@code batch.loader.keys}, both tagged with the name of the loader.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the entities.
+ */
+public class BatchLoader<K, V> {
+
+    private final Logger log = LoggerFactory.getLogger(BatchLoader.class);
+
+    private final String name;
+    private final Function<Collection<K>, Flux<V>> batchFunction;
+    private final Function<V, K> keyFunction;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final Scheduler scheduler;
+    private final DistributionSummary batchSizes;
+    private final Counter requestedKeys;
+
+    private Map<K, Sinks.One<V>> pending = new LinkedHashMap<>();
+    private Disposable scheduledDispatch;
+
+    public BatchLoader(
+        String name,
+        Function<Collection<K>, Flux<V>> batchFunction,
+        Function<V, K> keyFunction,
+        Duration window,
+        int maxBatchSize,
+        MeterRegistry meterRegistry
+    ) {
+        this(name, batchFunction, keyFunction, window, maxBatchSize, meterRegistry, Schedulers.parallel());
+    }
+
+    /**
+     * @param scheduler the scheduler of the ends of the batch windows.
+     */
+    BatchLoader(
+        String name,
+        Function<Collection<K>, Flux<V>> batchFunction,
+        Function<V, K> keyFunction,
+        Duration window,
+        int maxBatchSize,
+        MeterRegistry meterRegistry,
+        Scheduler scheduler
+    ) {
+        this.name = name;
+        this.batchFunction = batchFunction;
+        this.keyFunction = keyFunction;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+        this.batchSizes = DistributionSummary
+            .builder("batch.loader.size")
+            .description("Number of distinct keys loaded by each batch")
+            .tag("loader", name)
+            .register(meterRegistry);
+        this.requestedKeys = Counter
+            .builder("batch.loader.keys")
+            .description("Number of keys requested from the batch loader")
+            .tag("loader", name)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Load one entity.
+     *
+     * @param key the key of the entity.
+     * @return the entity, or empty if the batch function didn't return it.
+     */
+    public Mono<V> load(K key) {
+        return loadMany(List.of(key)).flatMap(loaded -> Mono.justOrEmpty(loaded.get(key)));
+    }
+
+    /**
+     * Load several entities, in the same batch unless they don't fit in the current one.
+     *
+     * @param keys the keys of the entities, possibly with duplicates.
+     * @return the entities found, by key.
+     */
+    public Mono<Map<K, V>> loadMany(Collection<K> keys) {
+        if (keys.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return Mono.defer(
+            () ->
+                Flux
+                    .fromIterable(enqueue(keys).entrySet())
+                    .flatMap(entry -> entry.getValue().asMono().map(value -> Tuples.of(entry.getKey(), value)))
+                    .collectMap(Tuple2::getT1, Tuple2::getT2)
+        );
+    }
+
+    private Map<K, Sinks.One<V>> enqueue(Collection<K> keys) {
+        Map<K, Sinks.One<V>> sinks = new LinkedHashMap<>();
+        List<Map<K, Sinks.One<V>>> full = new ArrayList<>();
+        synchronized (this) {
+            for (K key : keys) {
+                if (sinks.containsKey(key)) {
+                    continue;
+                }
+                Sinks.One<V> sink = pending.get(key);
+                if (sink == null) {
+                    sink = Sinks.one();
+                    pending.put(key, sink);
+                    if (pending.size() >= maxBatchSize) {
+                        full.add(drain());
+                    }
+                }
+                sinks.put(key, sink);
+            }
+            if (!pending.isEmpty() && scheduledDispatch == null) {
+                scheduledDispatch = scheduler.schedule(this::dispatchPending, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        requestedKeys.increment(keys.size());
+        full.forEach(this::dispatch);
+        return sinks;
+    }
+
+    private Map<K, Sinks.One<V>> drain() {
+        Map<K, Sinks.One<V>> batch = pending;
+        pending = new LinkedHashMap<>();
+        if (scheduledDispatch != null) {
+            scheduledDispatch.dispose();
+            scheduledDispatch = null;
+        }
+        return batch;
+    }
+
+    private void dispatchPending() {
+        Map<K, Sinks.One<V>> batch;
+        synchronized (this) {
+            batch = drain();
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    private void dispatch(Map<K, Sinks.One<V>> batch) {
+        log.debug("Loading a batch of {} {}", batch.size(), name);
+        batchSizes.record(batch.size());
+        batchFunction
+            .apply(new ArrayList<>(batch.keySet()))
+            .collectMap(keyFunction)
+            .subscribe(
+                found ->
+                    batch.forEach(
+                        (key, sink) -> {
+                            V value = found.get(key);
+                            if (value != null) {
+                                sink.tryEmitValue(value);
+                            } else {
+                                sink.tryEmitEmpty();
+                            }
+                        }
+                    ),
+                error -> batch.values().forEach(sink -> sink.tryEmitError(error))
+            );
+    }
+}
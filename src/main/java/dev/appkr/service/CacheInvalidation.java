@@ -0,0 +1,44 @@
+package dev.appkr.service;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The eviction of one entry, or all the entries, of a named cache, as broadcast to the other nodes.
+ */
+public final class CacheInvalidation {
+
+    private final String cacheName;
+
+    private final String key;
+
+    private final Duration lag;
+
+    /**
+     * @param cacheName the name of the cache.
+     * @param key the key of the evicted entry, or null if all the entries are evicted.
+     * @param lag how long ago the invalidation was sent, when it is received.
+     */
+    public CacheInvalidation(String cacheName, String key, Duration lag) {
+        this.cacheName = Objects.requireNonNull(cacheName);
+        this.key = key;
+        this.lag = lag;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Duration getLag() {
+        return lag;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInvalidation{cacheName='" + cacheName + "', key='" + key + "', lag=" + lag + "}";
+    }
+}
@@ -0,0 +1,118 @@
+package dev.appkr.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Broadcasts the evictions of the local caches to the other nodes of the cluster, and applies theirs.
+ * <p>
+ * The caches register under a name, which is shared by all the nodes. Without a {@link CacheInvalidationTransport}, the
+ * bus is local only: nothing is sent, and nothing received.
+ * <p>
+ * An invalidation which can't be applied, such as one with a malformed key, evicts all the entries of its cache
+ * instead, so that the following invalidations are still received.
+ * <p>
+ * The invalidations are counted as {@code cache.invalidation.sent} and {@code cache.invalidation.received}, and the
+ * time between the sending and the eviction on this node is recorded as {@code cache.invalidation.lag}, all of them
+ * tagged with the name of the cache.
+ */
+public class CacheInvalidationBus implements SmartLifecycle {
+
+    private final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private final CacheInvalidationTransport transport;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Consumer<String>> caches = new ConcurrentHashMap<>();
+
+    private volatile Disposable subscription;
+
+    /**
+     * @param transport the transport to the other nodes, or null if there isn't any.
+     * @param meterRegistry the registry of the metrics.
+     */
+    public CacheInvalidationBus(CacheInvalidationTransport transport, MeterRegistry meterRegistry) {
+        this.transport = transport;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Register a cache, to apply the invalidations the other nodes send.
+     *
+     * @param cacheName the name of the cache.
+     * @param invalidation evicts the entry with the given key, or all the entries if the key is null.
+     */
+    public void register(String cacheName, Consumer<String> invalidation) {
+        caches.put(cacheName, invalidation);
+    }
+
+    /**
+     * Send an eviction to the other nodes.
+     *
+     * @param cacheName the name of the cache.
+     * @param key the key of the evicted entry, or null if all the entries are evicted.
+     * @return a Mono which completes once the invalidation has been sent.
+     */
+    public Mono<Void> publish(String cacheName, String key) {
+        if (transport == null) {
+            return Mono.empty();
+        }
+        return transport
+            .send(new CacheInvalidation(cacheName, key, null))
+            .doOnSuccess(sent -> Counter.builder("cache.invalidation.sent").tag("cache", cacheName).register(meterRegistry).increment());
+    }
+
+    private void apply(CacheInvalidation invalidation) {
+        Consumer<String> cache = caches.get(invalidation.getCacheName());
+        if (cache == null) {
+            log.debug("Ignoring {} of an unknown cache", invalidation);
+            return;
+        }
+        log.debug("Applying {}", invalidation);
+        try {
+            cache.accept(invalidation.getKey());
+        } catch (RuntimeException e) {
+            log.warn("Failed to apply {}, evicting all the entries of the cache instead: {}", invalidation, e.getMessage());
+            cache.accept(null);
+        }
+        Counter.builder("cache.invalidation.received").tag("cache", invalidation.getCacheName()).register(meterRegistry).increment();
+        if (invalidation.getLag() != null) {
+            Timer
+                .builder("cache.invalidation.lag")
+                .description("Time between the eviction on one node and on this one")
+                .tag("cache", invalidation.getCacheName())
+                .register(meterRegistry)
+                .record(invalidation.getLag());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (transport != null) {
+            subscription = transport.receive().subscribe(this::apply, e -> log.error("Stopped receiving the cache invalidations", e));
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+            subscription = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null && !subscription.isDisposed();
+    }
+}
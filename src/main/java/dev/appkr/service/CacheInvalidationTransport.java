@@ -0,0 +1,25 @@
+package dev.appkr.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Carries the cache invalidations from one node of the cluster to the others.
+ */
+public interface CacheInvalidationTransport {
+    /**
+     * Send an invalidation to the other nodes, along with the current transaction if there is one: the other nodes
+     * mustn't receive it before the change it follows is visible to them.
+     *
+     * @param invalidation the invalidation.
+     * @return a Mono which completes once the invalidation has been sent.
+     */
+    Mono<Void> send(CacheInvalidation invalidation);
+
+    /**
+     * Receive the invalidations sent by the other nodes, from the time of the subscription on.
+     *
+     * @return the invalidations, with their lag.
+     */
+    Flux<CacheInvalidation> receive();
+}
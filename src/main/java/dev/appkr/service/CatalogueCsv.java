@@ -0,0 +1,84 @@
+package dev.appkr.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reads and writes the lines of the catalogue CSV files, which are separated by semicolons like the Liquibase fake data.
+ * <p>
+ * Values holding a separator, a quote or a line break are quoted, quotes being doubled. A record whose quoted value
+ * holds a line break spans several lines.
+ */
+final class CatalogueCsv {
+
+    static final char SEPARATOR = ';';
+
+    private static final char QUOTE = '"';
+
+    private CatalogueCsv() {}
+
+    static String formatLine(List<String> values) {
+        return values.stream().map(CatalogueCsv::formatValue).collect(Collectors.joining(String.valueOf(SEPARATOR)));
+    }
+
+    /**
+     * Tells whether a record goes on past the given line, a quoted value being open at its end.
+     * @param record the lines of the record read so far.
+     * @return whether the quotes of the record are unbalanced.
+     */
+    static boolean isQuoteOpen(String record) {
+        boolean open = false;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == QUOTE) {
+                // A doubled quote flips it twice
+                open = !open;
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Splits a line into its values.
+     * @param line the line, without its line break, or the lines of a record joined by line breaks.
+     * @return the unquoted values.
+     * @throws IllegalArgumentException if a quoted value is not closed.
+     */
+    static List<String> parseLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != QUOTE) {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == QUOTE) {
+                    value.append(QUOTE);
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == QUOTE) {
+                quoted = true;
+            } else if (c == SEPARATOR) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static String formatValue(String value) {
+        if (value.indexOf(SEPARATOR) < 0 && value.indexOf(QUOTE) < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return QUOTE + value.replace("\"", "\"\"") + QUOTE;
+    }
+}
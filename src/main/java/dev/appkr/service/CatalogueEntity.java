@@ -0,0 +1,38 @@
+package dev.appkr.service;
+
+import dev.appkr.domain.Album;
+import dev.appkr.domain.Singer;
+import dev.appkr.domain.Song;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The entities of the music catalogue which can be exported and imported in bulk.
+ */
+public enum CatalogueEntity {
+    ALBUM(Album.class),
+    SINGER(Singer.class),
+    SONG(Song.class);
+
+    private final Class<?> entityType;
+
+    CatalogueEntity(Class<?> entityType) {
+        this.entityType = entityType;
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * @return the name of the entity, as used in the URLs, such as {@code album}.
+     */
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Optional<CatalogueEntity> fromName(String name) {
+        return Arrays.stream(values()).filter(entity -> entity.getName().equals(name)).findFirst();
+    }
+}
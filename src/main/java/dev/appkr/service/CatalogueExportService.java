@@ -0,0 +1,195 @@
+package dev.appkr.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.appkr.config.ApplicationProperties;
+import dev.appkr.repository.AlbumRepository;
+import dev.appkr.repository.SingerRepository;
+import dev.appkr.repository.SongRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.data.util.Streamable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service streaming the whole music catalogue, one entity type at a time, without ever holding the result set in memory.
+ * <p>
+ * The rows are read with a bounded prefetch ({@code application.catalogue.export-prefetch}), serialized one by one and
+ * optionally gzipped on the fly. The {@code catalogue.export.rows} and {@code catalogue.export.bytes} counters report the
+ * throughput of the exports.
+ */
+@Service
+public class CatalogueExportService {
+
+    private final Logger log = LoggerFactory.getLogger(CatalogueExportService.class);
+
+    private final AlbumRepository albumRepository;
+
+    private final SingerRepository singerRepository;
+
+    private final SongRepository songRepository;
+
+    private final R2dbcConverter r2dbcConverter;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final int prefetch;
+
+    public CatalogueExportService(
+        AlbumRepository albumRepository,
+        SingerRepository singerRepository,
+        SongRepository songRepository,
+        R2dbcConverter r2dbcConverter,
+        ObjectMapper objectMapper,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.albumRepository = albumRepository;
+        this.singerRepository = singerRepository;
+        this.songRepository = songRepository;
+        this.r2dbcConverter = r2dbcConverter;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.prefetch = applicationProperties.getCatalogue().getExportPrefetch();
+    }
+
+    /**
+     * Export all the rows of an entity.
+     *
+     * @param entity the entity to export.
+     * @param format the format of the rows.
+     * @param gzip whether to gzip the output.
+     * @return the chunks of the export, to be written as they come.
+     */
+    public Flux<byte[]> export(CatalogueEntity entity, CatalogueFormat format, boolean gzip) {
+        log.debug("Request to export {} as {}", entity.getName(), format.getName());
+        Counter rows = meterRegistry.counter("catalogue.export.rows", "entity", entity.getName(), "format", format.getName());
+        Counter bytes = meterRegistry.counter("catalogue.export.bytes", "entity", entity.getName(), "format", format.getName());
+
+        Flux<byte[]> lines = findAll(entity)
+            .limitRate(prefetch)
+            .doOnNext(row -> rows.increment())
+            .map(format == CatalogueFormat.CSV ? csvLine(entity) : this::jsonLine);
+        if (format == CatalogueFormat.CSV) {
+            lines = Flux.concat(Mono.fromCallable(() -> csvHeader(entity)), lines);
+        }
+        Flux<byte[]> chunks = gzip ? gzip(lines) : lines;
+        return chunks.doOnNext(chunk -> bytes.increment(chunk.length));
+    }
+
+    private Flux<?> findAll(CatalogueEntity entity) {
+        switch (entity) {
+            case ALBUM:
+                return albumRepository.findAll();
+            case SINGER:
+                return singerRepository.findAll();
+            default:
+                return songRepository.findAll();
+        }
+    }
+
+    private byte[] jsonLine(Object row) {
+        try {
+            return (objectMapper.writeValueAsString(row) + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize " + row, e);
+        }
+    }
+
+    private byte[] csvHeader(CatalogueEntity entity) {
+        List<String> columns = getColumns(entity)
+            .stream()
+            .map(property -> property.getColumnName().getReference())
+            .collect(Collectors.toList());
+        return (CatalogueCsv.formatLine(columns) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Function<Object, byte[]> csvLine(CatalogueEntity entity) {
+        RelationalPersistentEntity<?> persistentEntity = getPersistentEntity(entity);
+        List<RelationalPersistentProperty> columns = getColumns(entity);
+        return row -> {
+            PersistentPropertyAccessor<?> accessor = persistentEntity.getPropertyAccessor(row);
+            List<String> values = columns
+                .stream()
+                .map(accessor::getProperty)
+                .map(value -> value == null ? "" : value.toString())
+                .collect(Collectors.toList());
+            return (CatalogueCsv.formatLine(values) + "\n").getBytes(StandardCharsets.UTF_8);
+        };
+    }
+
+    private List<RelationalPersistentProperty> getColumns(CatalogueEntity entity) {
+        return Streamable.of(getPersistentEntity(entity)).filter(property -> !property.isTransient() && !property.isEntity()).toList();
+    }
+
+    private RelationalPersistentEntity<?> getPersistentEntity(CatalogueEntity entity) {
+        return r2dbcConverter.getMappingContext().getRequiredPersistentEntity(entity.getEntityType());
+    }
+
+    private static Flux<byte[]> gzip(Flux<byte[]> lines) {
+        return Flux.using(
+            GzipBuffer::new,
+            buffer -> lines.map(buffer::write).concatWith(Mono.fromCallable(buffer::finish)).filter(chunk -> chunk.length > 0),
+            GzipBuffer::close
+        );
+    }
+
+    /**
+     * Gzips the lines one after the other, and hands over the compressed bytes as soon as the deflater outputs them.
+     */
+    private static class GzipBuffer {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final GZIPOutputStream gzip;
+
+        GzipBuffer() throws IOException {
+            this.gzip = new GZIPOutputStream(buffer);
+        }
+
+        byte[] write(byte[] line) {
+            try {
+                gzip.write(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return drain();
+        }
+
+        byte[] finish() throws IOException {
+            gzip.finish();
+            return drain();
+        }
+
+        void close() {
+            try {
+                gzip.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private byte[] drain() {
+            byte[] chunk = buffer.toByteArray();
+            buffer.reset();
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package dev.appkr.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * The file formats of the catalogue bulk export and import.
+ */
+public enum CatalogueFormat {
+    /**
+     * One JSON document per line.
+     */
+    NDJSON("application/x-ndjson"),
+
+    /**
+     * Semicolon separated values with a header line of column names, like the Liquibase fake data.
+     */
+    CSV("text/csv");
+
+    private final String mediaType;
+
+    CatalogueFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return the name of the format, which is also its file extension, such as {@code csv}.
+     */
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Optional<CatalogueFormat> fromName(String name) {
+        return Arrays.stream(values()).filter(format -> format.getName().equals(name)).findFirst();
+    }
+}
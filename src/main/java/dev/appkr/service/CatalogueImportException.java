@@ -0,0 +1,10 @@
+package dev.appkr.service;
+
+public class CatalogueImportException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CatalogueImportException(String message) {
+        super(message);
+    }
+}
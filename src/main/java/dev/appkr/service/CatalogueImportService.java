@@ -0,0 +1,356 @@
+package dev.appkr.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.appkr.config.ApplicationProperties;
+import dev.appkr.service.dto.ImportReportDTO;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.data.util.Streamable;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.r2dbc.core.Parameter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service loading the music catalogue in bulk, from NDJSON or CSV lines.
+ * <p>
+ * Each line is validated with the bean validation annotations of the entity. The valid rows are then grouped into
+ * chunks of {@code application.catalogue.import-batch-size}, each chunk being inserted with a single multi-row
+ * {@code INSERT} in its own transaction. Ids are always generated by the database.
+ */
+@Service
+public class CatalogueImportService {
+
+    private final Logger log = LoggerFactory.getLogger(CatalogueImportService.class);
+
+    private final R2dbcEntityTemplate r2dbcEntityTemplate;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final PaginationService paginationService;
+
+    private final int batchSize;
+
+    public CatalogueImportService(
+        R2dbcEntityTemplate r2dbcEntityTemplate,
+        ReactiveTransactionManager transactionManager,
+        ObjectMapper objectMapper,
+        Validator validator,
+        PaginationService paginationService,
+        ApplicationProperties applicationProperties
+    ) {
+        this.r2dbcEntityTemplate = r2dbcEntityTemplate;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.paginationService = paginationService;
+        this.batchSize = applicationProperties.getCatalogue().getImportBatchSize();
+    }
+
+    /**
+     * Import the rows of an entity.
+     *
+     * @param entity the entity to import.
+     * @param format the format of the lines; CSV lines start with a header line of column names.
+     * @param lines the lines to import, without their line breaks; a CSV record spans several lines when a quoted value
+     * holds line breaks.
+     * @return the number of imported rows, and the lines which were rejected.
+     * @throws CatalogueImportException if the CSV header holds an unknown column.
+     */
+    public Mono<ImportReportDTO> importLines(CatalogueEntity entity, CatalogueFormat format, Flux<String> lines) {
+        log.debug("Request to import {} as {}", entity.getName(), format.getName());
+        return Mono
+            .defer(
+                () -> {
+                    Table table = new Table(getPersistentEntity(entity));
+                    LineReader reader = format == CatalogueFormat.CSV ? new CsvLineReader(table) : new JsonLineReader(table);
+                    Flux<ImportLine> numbered = lines.index((index, line) -> new ImportLine(index + 1, line));
+                    return (format == CatalogueFormat.CSV ? joinCsvRecords(numbered) : numbered)
+                        .filter(line -> StringUtils.hasText(line.text))
+                        .<ImportLine>handle(
+                            (line, sink) -> {
+                                ImportLine read = reader.read(line);
+                                if (read != null) {
+                                    sink.next(read);
+                                }
+                            }
+                        )
+                        .buffer(batchSize)
+                        .concatMap(chunk -> insert(table, chunk))
+                        .reduce(new ImportReportDTO(), this::report);
+                }
+            )
+            .doOnSuccess(report -> paginationService.evictCount(entity.getName()));
+    }
+
+    /**
+     * Joins the lines of the CSV records whose quoted values hold line breaks, a record being numbered after its first
+     * line. A record which is still open at the end is passed on as is, to be rejected.
+     */
+    private static Flux<ImportLine> joinCsvRecords(Flux<ImportLine> lines) {
+        return Flux.defer(
+            () -> {
+                AtomicReference<ImportLine> open = new AtomicReference<>();
+                return lines
+                    .<ImportLine>handle(
+                        (line, sink) -> {
+                            ImportLine started = open.getAndSet(null);
+                            ImportLine record = started == null ? line : new ImportLine(started.number, started.text + "\n" + line.text);
+                            if (CatalogueCsv.isQuoteOpen(record.text)) {
+                                open.set(record);
+                            } else {
+                                sink.next(record);
+                            }
+                        }
+                    )
+                    .concatWith(Mono.fromSupplier(open::get));
+            }
+        );
+    }
+
+    private Mono<List<ImportLine>> insert(Table table, List<ImportLine> chunk) {
+        List<ImportLine> rows = chunk.stream().filter(line -> line.error == null).collect(Collectors.toList());
+        if (rows.isEmpty()) {
+            return Mono.just(chunk);
+        }
+        return transactionalOperator
+            .transactional(createInsert(table, rows).fetch().rowsUpdated())
+            .thenReturn(chunk)
+            .onErrorResume(
+                e -> {
+                    log.debug("Chunk of {} rows rejected: {}", rows.size(), e.getMessage());
+                    rows.forEach(row -> row.error = e.getMessage());
+                    return Mono.just(chunk);
+                }
+            );
+    }
+
+    private GenericExecuteSpec createInsert(Table table, List<ImportLine> rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ")
+            .append(table.entity.getTableName().getReference())
+            .append(" (")
+            .append(table.columns.stream().map(column -> column.getColumnName().getReference()).collect(Collectors.joining(", ")))
+            .append(") VALUES ");
+        for (int row = 0; row < rows.size(); row++) {
+            sql.append(row == 0 ? "(" : ", (");
+            for (int column = 0; column < table.columns.size(); column++) {
+                sql.append(column == 0 ? ":" : ", :").append(bindName(row, column));
+            }
+            sql.append(")");
+        }
+
+        GenericExecuteSpec spec = r2dbcEntityTemplate.getDatabaseClient().sql(sql.toString());
+        for (int row = 0; row < rows.size(); row++) {
+            PersistentPropertyAccessor<?> accessor = table.entity.getPropertyAccessor(rows.get(row).entity);
+            for (int column = 0; column < table.columns.size(); column++) {
+                RelationalPersistentProperty property = table.columns.get(column);
+                Parameter value = Parameter.fromOrEmpty(accessor.getProperty(property), property.getType());
+                spec = spec.bind(bindName(row, column), r2dbcEntityTemplate.getDataAccessStrategy().getBindValue(value));
+            }
+        }
+        return spec;
+    }
+
+    private static String bindName(int row, int column) {
+        return "r" + row + "c" + column;
+    }
+
+    private ImportReportDTO report(ImportReportDTO report, List<ImportLine> chunk) {
+        for (ImportLine line : chunk) {
+            if (line.error == null) {
+                report.setImported(report.getImported() + 1);
+            } else {
+                report.getErrors().add(new ImportReportDTO.LineErrorDTO(line.number, line.error));
+            }
+        }
+        return report;
+    }
+
+    private String validate(Object entity) {
+        Set<ConstraintViolation<Object>> violations = validator.validate(entity);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations
+            .stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .sorted(Comparator.naturalOrder())
+            .collect(Collectors.joining(", "));
+    }
+
+    private RelationalPersistentEntity<?> getPersistentEntity(CatalogueEntity entity) {
+        return r2dbcEntityTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(entity.getEntityType());
+    }
+
+    /**
+     * The table of an entity, and its columns which are inserted - all of them but the id.
+     */
+    private static class Table {
+
+        final RelationalPersistentEntity<?> entity;
+        final List<RelationalPersistentProperty> columns;
+
+        Table(RelationalPersistentEntity<?> entity) {
+            this.entity = entity;
+            this.columns =
+                Streamable
+                    .of(entity)
+                    .filter(property -> !property.isIdProperty() && !property.isTransient() && !property.isEntity())
+                    .toList();
+        }
+    }
+
+    /**
+     * A line of the import, and either the entity it holds or the reason why it is rejected.
+     */
+    private static class ImportLine {
+
+        final long number;
+        final String text;
+        Object entity;
+        String error;
+
+        ImportLine(long number, String text) {
+            this.number = number;
+            this.text = text;
+        }
+    }
+
+    private interface LineReader {
+        /**
+         * Reads the entity of a line, and validates it.
+         * @return the line, or null if it doesn't hold an entity.
+         */
+        ImportLine read(ImportLine line);
+    }
+
+    private class JsonLineReader implements LineReader {
+
+        private final Table table;
+
+        JsonLineReader(Table table) {
+            this.table = table;
+        }
+
+        @Override
+        public ImportLine read(ImportLine line) {
+            try {
+                line.entity = objectMapper.readValue(line.text, table.entity.getType());
+                line.error = validate(line.entity);
+            } catch (JsonProcessingException e) {
+                line.error = "Invalid JSON: " + e.getOriginalMessage();
+            }
+            return line;
+        }
+    }
+
+    private class CsvLineReader implements LineReader {
+
+        private final Table table;
+        private List<RelationalPersistentProperty> header;
+
+        CsvLineReader(Table table) {
+            this.table = table;
+        }
+
+        @Override
+        public ImportLine read(ImportLine line) {
+            List<String> values;
+            try {
+                values = CatalogueCsv.parseLine(line.text);
+            } catch (IllegalArgumentException e) {
+                line.error = e.getMessage();
+                return line;
+            }
+            if (header == null) {
+                header = readHeader(values);
+                return null;
+            }
+            if (values.size() != header.size()) {
+                line.error = "Expected " + header.size() + " values, found " + values.size();
+                return line;
+            }
+
+            line.entity = newInstance();
+            PersistentPropertyAccessor<?> accessor = table.entity.getPropertyAccessor(line.entity);
+            for (int i = 0; i < header.size(); i++) {
+                RelationalPersistentProperty property = header.get(i);
+                if (property == null) {
+                    continue;
+                }
+                try {
+                    accessor.setProperty(property, convert(values.get(i), property.getType()));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    line.error = "Invalid value for " + property.getColumnName().getReference() + ": " + values.get(i);
+                    return line;
+                }
+            }
+            line.error = validate(line.entity);
+            return line;
+        }
+
+        private List<RelationalPersistentProperty> readHeader(List<String> columns) {
+            List<RelationalPersistentProperty> properties = new ArrayList<>();
+            for (String column : columns) {
+                String name = column.trim();
+                if (table.entity.getRequiredIdProperty().getColumnName().getReference().equalsIgnoreCase(name)) {
+                    // The id column is accepted, but ignored
+                    properties.add(null);
+                    continue;
+                }
+                properties.add(
+                    table.columns
+                        .stream()
+                        .filter(property -> property.getColumnName().getReference().equalsIgnoreCase(name))
+                        .findFirst()
+                        .orElseThrow(() -> new CatalogueImportException("Unknown column: " + name))
+                );
+            }
+            return properties;
+        }
+
+        private Object newInstance() {
+            try {
+                return table.entity.getType().getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Unable to create a " + table.entity.getType(), e);
+            }
+        }
+
+        private Object convert(String value, Class<?> type) {
+            if (value.isEmpty()) {
+                return null;
+            }
+            if (type == Instant.class) {
+                // The fake data holds local date times, which are in UTC
+                return value.endsWith("Z") ? Instant.parse(value) : LocalDateTime.parse(value).toInstant(ZoneOffset.UTC);
+            }
+            return objectMapper.convertValue(value, type);
+        }
+    }
+}
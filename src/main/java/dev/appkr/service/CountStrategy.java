@@ -0,0 +1,21 @@
+package dev.appkr.service;
+
+/**
+ * How the total number of entities is computed when a page of a list endpoint is returned.
+ */
+public enum CountStrategy {
+    /**
+     * A {@code SELECT COUNT(*)} is run along with every page.
+     */
+    EXACT,
+
+    /**
+     * The count is cached for a while, and evicted whenever an entity is saved or deleted.
+     */
+    APPROXIMATE,
+
+    /**
+     * No count at all: one more row than the page size is fetched to tell whether there is a next page.
+     */
+    NONE,
+}
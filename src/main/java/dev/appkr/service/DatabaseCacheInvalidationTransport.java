@@ -0,0 +1,226 @@
+package dev.appkr.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * {@link CacheInvalidationTransport} through the {@code cache_invalidation} table of the shared database.
+ * <p>
+ * Sending inserts a row, within the transaction of the change it follows, so that it becomes visible along with the
+ * change. Each node polls the rows past its watermark, the highest id it has handled all the rows up to, and applies
+ * those of the other nodes. A row can be committed after a row with a higher id: a missing id holds the watermark back
+ * until it shows up, or for the gap timeout at most, for the ids of the transactions which rolled back.
+ * <p>
+ * The lag of an invalidation is measured with the clock of the database, from the insertion of its row to its polling.
+ * The rows older than the retention are purged. The failures to poll are retried at the next poll, and the failures to
+ * start receiving, such as a database which isn't up yet, with an exponential backoff.
+ */
+public class DatabaseCacheInvalidationTransport implements CacheInvalidationTransport {
+
+    private static final Duration MAX_START_BACKOFF = Duration.ofMinutes(1);
+
+    private final Logger log = LoggerFactory.getLogger(DatabaseCacheInvalidationTransport.class);
+
+    private final DatabaseClient db;
+    private final String nodeId;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final Duration gapTimeout;
+    private final Duration retention;
+
+    public DatabaseCacheInvalidationTransport(
+        DatabaseClient db,
+        String nodeId,
+        Duration pollInterval,
+        int batchSize,
+        Duration gapTimeout,
+        Duration retention
+    ) {
+        this.db = db;
+        this.nodeId = nodeId;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.gapTimeout = gapTimeout;
+        this.retention = retention;
+    }
+
+    @Override
+    public Mono<Void> send(CacheInvalidation invalidation) {
+        DatabaseClient.GenericExecuteSpec insert = db
+            .sql(
+                "INSERT INTO cache_invalidation (node_id, cache_name, cache_key, created_at) " +
+                "VALUES (:nodeId, :cacheName, :cacheKey, LOCALTIMESTAMP(6))"
+            )
+            .bind("nodeId", nodeId)
+            .bind("cacheName", invalidation.getCacheName());
+        if (invalidation.getKey() != null) {
+            return insert.bind("cacheKey", invalidation.getKey()).then();
+        }
+        return insert.bindNull("cacheKey", String.class).then();
+    }
+
+    @Override
+    public Flux<CacheInvalidation> receive() {
+        return db
+            .sql("SELECT MAX(id) AS id FROM cache_invalidation")
+            .map(
+                row -> {
+                    Long id = row.get("id", Long.class);
+                    return id != null ? id : 0L;
+                }
+            )
+            .one()
+            .retryWhen(
+                Retry
+                    .backoff(Long.MAX_VALUE, pollInterval)
+                    .maxBackoff(MAX_START_BACKOFF)
+                    .doBeforeRetry(
+                        signal -> log.warn("Failed to start receiving the cache invalidations: {}", signal.failure().getMessage())
+                    )
+            )
+            .flatMapMany(
+                start -> {
+                    Cursor cursor = new Cursor(start);
+                    return Flux
+                        .interval(pollInterval)
+                        .onBackpressureDrop()
+                        .concatMap(
+                            tick ->
+                                poll(cursor)
+                                    .onErrorResume(
+                                        e -> {
+                                            log.warn("Failed to poll the cache invalidations: {}", e.getMessage());
+                                            return Flux.empty();
+                                        }
+                                    ),
+                            1
+                        );
+                }
+            );
+    }
+
+    private Flux<CacheInvalidation> poll(Cursor cursor) {
+        return db
+            .sql(
+                "SELECT id, node_id, cache_name, cache_key, created_at, LOCALTIMESTAMP(6) AS polled_at FROM cache_invalidation " +
+                "WHERE id > :watermark ORDER BY id LIMIT :limit"
+            )
+            .bind("watermark", cursor.watermark)
+            .bind("limit", batchSize)
+            .map(
+                row ->
+                    new PolledRow(
+                        row.get("id", Long.class),
+                        row.get("node_id", String.class),
+                        new CacheInvalidation(
+                            row.get("cache_name", String.class),
+                            row.get("cache_key", String.class),
+                            Duration.between(row.get("created_at", LocalDateTime.class), row.get("polled_at", LocalDateTime.class))
+                        ),
+                        row.get("polled_at", LocalDateTime.class)
+                    )
+            )
+            .all()
+            .collectList()
+            .flatMapMany(
+                rows -> {
+                    List<CacheInvalidation> received = new ArrayList<>();
+                    for (PolledRow row : rows) {
+                        if (cursor.handle(row.id) && !nodeId.equals(row.nodeId)) {
+                            received.add(row.invalidation);
+                        }
+                    }
+                    cursor.advance(Instant.now(), gapTimeout);
+                    if (rows.isEmpty()) {
+                        return Flux.empty();
+                    }
+                    return Flux.fromIterable(received).concatWith(purge(cursor, rows.get(rows.size() - 1).polledAt));
+                }
+            );
+    }
+
+    private Mono<CacheInvalidation> purge(Cursor cursor, LocalDateTime now) {
+        if (cursor.lastPurge != null && cursor.lastPurge.plus(retention).isAfter(now)) {
+            return Mono.empty();
+        }
+        cursor.lastPurge = now;
+        return db
+            .sql("DELETE FROM cache_invalidation WHERE created_at < :cutoff AND id <= :watermark")
+            .bind("cutoff", now.minus(retention))
+            .bind("watermark", cursor.watermark)
+            .fetch()
+            .rowsUpdated()
+            .doOnNext(purged -> log.debug("Purged {} cache invalidations", purged))
+            .then(Mono.empty());
+    }
+
+    private static final class PolledRow {
+
+        private final long id;
+        private final String nodeId;
+        private final CacheInvalidation invalidation;
+        private final LocalDateTime polledAt;
+
+        private PolledRow(long id, String nodeId, CacheInvalidation invalidation, LocalDateTime polledAt) {
+            this.id = id;
+            this.nodeId = nodeId;
+            this.invalidation = invalidation;
+            this.polledAt = polledAt;
+        }
+    }
+
+    /**
+     * Which rows this node has handled: all of them up to the watermark, and some of them past it.
+     */
+    private static final class Cursor {
+
+        private long watermark;
+        private final NavigableSet<Long> handled = new TreeSet<>();
+        private final Map<Long, Instant> gaps = new HashMap<>();
+        private LocalDateTime lastPurge;
+
+        private Cursor(long watermark) {
+            this.watermark = watermark;
+        }
+
+        /**
+         * @return whether the row wasn't handled yet.
+         */
+        private boolean handle(long id) {
+            return id > watermark && handled.add(id);
+        }
+
+        /**
+         * Moves the watermark past the handled rows, and past the missing ids which didn't show up in time.
+         */
+        private void advance(Instant now, Duration gapTimeout) {
+            while (!handled.isEmpty()) {
+                long next = watermark + 1;
+                if (handled.remove(next)) {
+                    gaps.remove(next);
+                    watermark = next;
+                    continue;
+                }
+                Instant missingSince = gaps.computeIfAbsent(next, id -> now);
+                if (missingSince.plus(gapTimeout).isAfter(now)) {
+                    break;
+                }
+                gaps.remove(next);
+                watermark = next;
+            }
+        }
+    }
+}
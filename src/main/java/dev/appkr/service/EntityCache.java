@@ -0,0 +1,140 @@
+package dev.appkr.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.appkr.config.ReplicaRoutingConnectionFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.function.Function;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Read-through cache of entities by key, backed by Caffeine.
+ * <p>
+ * The concurrent misses of the same id share one load, and so one query. As the other subscribers depend on it too, a
+ * load runs apart from the transaction of the subscriber which triggered it, keeping only whether it may read from a
+ * replica; cancelling one subscriber, which rolls its transaction back, doesn't cancel the load for the others.
+ * <p>
+ * The entities are evicted when they are saved or deleted: right away, and once more when the transaction completes,
+ * so that a read which raced with the write doesn't leave the old version behind. The evictions are also broadcast to
+ * the other nodes through the {@link CacheInvalidationBus}, under the name of the cache. The hits, misses, load times and
+ * evictions are metered as the {@code cache.*} metrics, tagged with the name of the cache.
+ *
+ * @param <K> the type of the ids.
+ * @param <V> the type of the entities.
+ */
+public class EntityCache<K, V> {
+
+    private final String name;
+
+    private final AsyncCache<K, V> cache;
+
+    private final CacheInvalidationBus invalidationBus;
+
+    /**
+     * @param name the name of the cache, shared by the nodes.
+     * @param keyParser parses the keys of the invalidations received from the other nodes.
+     * @param maximumSize the maximum number of entities.
+     * @param timeToLive how long the entities are kept after they were loaded.
+     * @param invalidationBus broadcasts the evictions.
+     * @param meterRegistry the registry of the metrics.
+     */
+    public EntityCache(
+        String name,
+        Function<String, K> keyParser,
+        long maximumSize,
+        Duration timeToLive,
+        CacheInvalidationBus invalidationBus,
+        MeterRegistry meterRegistry
+    ) {
+        this.name = name;
+        this.cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive).recordStats().buildAsync();
+        this.invalidationBus = invalidationBus;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), name);
+        invalidationBus.register(
+            name,
+            key -> {
+                if (key != null) {
+                    cache.synchronous().invalidate(keyParser.apply(key));
+                } else {
+                    cache.synchronous().invalidateAll();
+                }
+            }
+        );
+    }
+
+    /**
+     * Get an entity, loading it on a miss.
+     *
+     * @param key the id of the entity.
+     * @param loader loads the entity; an empty result isn't cached.
+     * @return the entity, or empty if the loader didn't find it.
+     */
+    public Mono<V> get(K key, Function<K, Mono<V>> loader) {
+        return Mono.deferContextual(
+            context ->
+                Mono.fromCompletionStage(
+                    // A dependent stage, so that cancelling this subscriber doesn't cancel the shared load
+                    cache
+                        .get(key, (id, executor) -> loader.apply(id).contextWrite(loadContext(context)).toFuture())
+                        .thenApply(Function.identity())
+                )
+        );
+    }
+
+    /**
+     * @return the context of a load: the read-only flag of the subscriber, without its transaction.
+     */
+    private static Context loadContext(ContextView context) {
+        return context
+            .<Boolean>getOrEmpty(ReplicaRoutingConnectionFactory.READ_ONLY_KEY)
+            .map(readOnly -> ReplicaRoutingConnectionFactory.readOnly(Context.empty(), readOnly))
+            .orElse(Context.empty());
+    }
+
+    /**
+     * Evict an entity which is being saved or deleted.
+     *
+     * @param key the id of the entity.
+     * @return a Mono which completes once the entity has been evicted, and the eviction after the transaction registered.
+     */
+    public Mono<Void> evict(K key) {
+        return evict(() -> cache.synchronous().invalidate(key), String.valueOf(key));
+    }
+
+    /**
+     * Evict all the entities, when some entity they embed is being saved or deleted.
+     *
+     * @return a Mono which completes once the entities have been evicted, and the eviction after the transaction registered.
+     */
+    public Mono<Void> evictAll() {
+        return evict(() -> cache.synchronous().invalidateAll(), null);
+    }
+
+    private Mono<Void> evict(Runnable invalidation, String key) {
+        return Mono
+            .fromRunnable(invalidation)
+            .then(invalidationBus.publish(name, key))
+            .then(TransactionSynchronizationManager.forCurrentTransaction())
+            .filter(TransactionSynchronizationManager::isSynchronizationActive)
+            .doOnNext(
+                synchronizationManager ->
+                    synchronizationManager.registerSynchronization(
+                        new TransactionSynchronization() {
+                            @Override
+                            public Mono<Void> afterCompletion(int status) {
+                                return Mono.fromRunnable(invalidation);
+                            }
+                        }
+                    )
+            )
+            .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+            .then();
+    }
+}
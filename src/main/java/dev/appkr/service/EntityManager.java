@@ -1,32 +1,62 @@
 package dev.appkr.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.appkr.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.validation.constraints.NotNull;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.data.r2dbc.core.StatementMapper;
 import org.springframework.data.r2dbc.mapping.OutboundRow;
 import org.springframework.data.r2dbc.query.UpdateMapper;
 import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
 import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.CriteriaDefinition;
+import org.springframework.data.relational.core.sql.BindMarker;
+import org.springframework.data.relational.core.sql.Column;
+import org.springframework.data.relational.core.sql.Condition;
 import org.springframework.data.relational.core.sql.Conditions;
+import org.springframework.data.relational.core.sql.Expression;
+import org.springframework.data.relational.core.sql.Functions;
 import org.springframework.data.relational.core.sql.OrderByField;
+import org.springframework.data.relational.core.sql.SQL;
 import org.springframework.data.relational.core.sql.Select;
-import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoin;
-import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoinCondition;
 import org.springframework.data.relational.core.sql.SelectBuilder.SelectOrdered;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectWhere;
 import org.springframework.data.relational.core.sql.SqlIdentifier;
 import org.springframework.data.relational.core.sql.Table;
 import org.springframework.data.relational.core.sql.render.SqlRenderer;
+import org.springframework.data.util.Pair;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
 import org.springframework.r2dbc.core.Parameter;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -39,6 +69,12 @@ public class EntityManager {
 
     public static final String ENTITY_ALIAS = "e";
     public static final String ALIAS_PREFIX = "e_";
+    public static final String CURSOR_VALUE = "cursorValue";
+    public static final String CURSOR_ID = "cursorId";
+    public static final String LIMIT = "limit";
+    public static final String OFFSET = "offset";
+    public static final String CRITERIA_PREFIX = "criteria";
+    public static final String SQL_TEMPLATE_CACHE = "sqlTemplates";
 
     public static class LinkTable {
 
@@ -60,74 +96,87 @@ public class EntityManager {
     private final UpdateMapper updateMapper;
     private final R2dbcEntityTemplate r2dbcEntityTemplate;
     private final StatementMapper statementMapper;
+    private final ObjectMapper objectMapper;
+    private final int linkTableBatchSize;
+    private final SqlTemplateCache sqlTemplates;
 
-    public EntityManager(SqlRenderer sqlRenderer, UpdateMapper updateMapper, R2dbcEntityTemplate r2dbcEntityTemplate) {
+    public EntityManager(
+        SqlRenderer sqlRenderer,
+        UpdateMapper updateMapper,
+        R2dbcEntityTemplate r2dbcEntityTemplate,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
         this.sqlRenderer = sqlRenderer;
         this.updateMapper = updateMapper;
         this.r2dbcEntityTemplate = r2dbcEntityTemplate;
         this.statementMapper = r2dbcEntityTemplate.getDataAccessStrategy().getStatementMapper();
+        this.objectMapper = objectMapper;
+        this.linkTableBatchSize = applicationProperties.getPersistence().getLinkTableBatchSize();
+        Assert.isTrue(linkTableBatchSize > 0, "linkTableBatchSize must be positive");
+        this.sqlTemplates = new SqlTemplateCache(applicationProperties.getPersistence().getSqlTemplateCacheSize(), meterRegistry);
     }
 
     /**
-     * Creates an SQL select statement from the given fragment and pagination parameters.
-     * @param selectFrom a representation of a select statement.
+     * Creates an SQL select statement from the given fragment, pagination parameters and criteria, with the limit, the
+     * offset and the criteria values bound, so that the statement text only depends on the shape of the query.
+     * <p>
+     * The SQL is rendered once per entity type, sort, paging and criteria shape, then taken from a bounded cache of
+     * {@code application.persistence.sql-template-cache-size} templates: on a cache hit the select fragment isn't even built.
+     * @param selectFrom creates the representation of the select statement, which must always be the same for the entity type.
      * @param entityType the entity type which holds the table name.
      * @param pageable page parameter, or null, if everything needs to be returned
-     * @return sql select statement
+     * @param criteria the criteria on the properties of the entity, or null.
+     * @return sql select statement, with the limit, offset and criteria values bound.
      */
-    public String createSelect(SelectFromAndJoin selectFrom, Class<?> entityType, Pageable pageable, Criteria criteria) {
-        if (pageable != null) {
-            if (criteria != null) {
-                return createSelectImpl(
-                    selectFrom.limitOffset(pageable.getPageSize(), pageable.getOffset()).where(Conditions.just(criteria.toString())),
-                    entityType,
-                    pageable.getSort()
-                );
-            } else {
-                return createSelectImpl(
-                    selectFrom.limitOffset(pageable.getPageSize(), pageable.getOffset()),
-                    entityType,
-                    pageable.getSort()
-                );
-            }
-        } else {
-            if (criteria != null) {
-                return createSelectImpl(selectFrom.where(Conditions.just(criteria.toString())), entityType, null);
-            } else {
-                return createSelectImpl(selectFrom, entityType, null);
-            }
-        }
+    public GenericExecuteSpec createSelect(
+        Supplier<? extends SelectWhere> selectFrom,
+        Class<?> entityType,
+        Pageable pageable,
+        Criteria criteria
+    ) {
+        return createSelect(selectFrom, entityType, null, pageable, criteria);
     }
 
     /**
-     * Creates an SQL select statement from the given fragment and pagination parameters.
-     * @param selectFrom a representation of a select statement.
+     * Creates an SQL select statement like {@link #createSelect(Supplier, Class, Pageable, Criteria)}, for an entity
+     * type which has several select fragments, such as with or without the joins of its relations.
+     * @param selectFrom creates the representation of the select statement, which must always be the same for the entity type and variant.
      * @param entityType the entity type which holds the table name.
+     * @param variant the name of the select fragment, or null.
      * @param pageable page parameter, or null, if everything needs to be returned
-     * @return sql select statement
+     * @param criteria the criteria on the properties of the entity, or null.
+     * @return sql select statement, with the limit, offset and criteria values bound.
      */
-    public String createSelect(SelectFromAndJoinCondition selectFrom, Class<?> entityType, Pageable pageable, Criteria criteria) {
-        if (pageable != null) {
-            if (criteria != null) {
-                return createSelectImpl(
-                    selectFrom.limitOffset(pageable.getPageSize(), pageable.getOffset()).where(Conditions.just(criteria.toString())),
-                    entityType,
-                    pageable.getSort()
-                );
-            } else {
-                return createSelectImpl(
-                    selectFrom.limitOffset(pageable.getPageSize(), pageable.getOffset()),
-                    entityType,
-                    pageable.getSort()
-                );
+    public GenericExecuteSpec createSelect(
+        Supplier<? extends SelectWhere> selectFrom,
+        Class<?> entityType,
+        String variant,
+        Pageable pageable,
+        Criteria criteria
+    ) {
+        boolean paged = pageable != null && pageable.isPaged();
+        Sort sort = pageable != null ? pageable.getSort() : Sort.unsorted();
+        BoundCriteria bound = criteria != null && !criteria.isEmpty() ? new BoundCriteria(getPersistentEntity(entityType), criteria) : null;
+        String sql = sqlTemplates.get(
+            new SqlTemplateKey(entityType, variant, sort, paged, bound != null ? bound.shape.toString() : null),
+            () -> {
+                SelectWhere select = selectFrom.get();
+                String rendered = createSelectImpl(bound != null ? select.where(bound.condition) : select, entityType, sort);
+                return paged ? rendered + " LIMIT :" + LIMIT + " OFFSET :" + OFFSET : rendered;
             }
-        } else {
-            if (criteria != null) {
-                return createSelectImpl(selectFrom.where(Conditions.just(criteria.toString())), entityType, null);
-            } else {
-                return createSelectImpl(selectFrom, entityType, null);
+        );
+        GenericExecuteSpec spec = r2dbcEntityTemplate.getDatabaseClient().sql(sql);
+        if (bound != null) {
+            for (Entry<String, Object> value : bound.values.entrySet()) {
+                spec = spec.bind(value.getKey(), value.getValue());
             }
         }
+        if (paged) {
+            spec = spec.bind(LIMIT, pageable.getPageSize()).bind(OFFSET, pageable.getOffset());
+        }
+        return spec;
     }
 
     private String createSelectImpl(SelectOrdered selectFrom, Class<?> entityType, Sort sortParameter) {
@@ -142,6 +191,356 @@ public class EntityManager {
         return createSelect(selectFrom.build());
     }
 
+    /**
+     * Creates a keyset (seek) paginated SQL select, which starts right after the row identified by the given cursor,
+     * instead of skipping the rows of the previous pages.
+     * The rows are ordered by the sort property of the pageable, then by id, so that every row has a unique position.
+     * @param selectFrom a representation of a select statement.
+     * @param entityType the entity type which holds the table name.
+     * @param pageable page size and sort parameter, the page number is ignored.
+     * @param after the cursor of the last row of the previous page, or empty for the first page.
+     * @return sql select statement, with the limit and the cursor values bound.
+     * @throws InvalidCursorException if the cursor or the sort parameter can't be used, e.g. sorting by a nullable property.
+     */
+    public GenericExecuteSpec createKeysetSelect(SelectWhere selectFrom, Class<?> entityType, Pageable pageable, String after) {
+        Keyset keyset = createKeyset(entityType, pageable.getSort(), after);
+        SelectOrdered select = keyset.hasPosition() ? selectFrom.where(keyset.condition()) : selectFrom;
+        String sql = createSelectImpl(select, entityType, keyset.sort()) + " LIMIT :" + LIMIT;
+        GenericExecuteSpec spec = r2dbcEntityTemplate.getDatabaseClient().sql(sql).bind(LIMIT, pageable.getPageSize());
+        if (keyset.hasPosition()) {
+            spec = spec.bind(CURSOR_ID, getBindValue(keyset.id));
+            if (keyset.property != null) {
+                spec = spec.bind(CURSOR_VALUE, getBindValue(keyset.value));
+            }
+        }
+        return spec;
+    }
+
+    /**
+     * Creates the opaque cursor which identifies the position of the given entity, for the next keyset paginated select.
+     * @param entity the last entity of a page.
+     * @param sort the sort parameter of the page.
+     * @return the cursor.
+     */
+    public String createCursor(Object entity, Sort sort) {
+        Keyset keyset = createKeyset(entity.getClass(), sort, null);
+        PersistentPropertyAccessor<?> accessor = keyset.entity.getPropertyAccessor(entity);
+        ObjectNode position = objectMapper.createObjectNode();
+        if (keyset.property != null) {
+            position.put("p", keyset.property.getName());
+            position.set("v", objectMapper.valueToTree(accessor.getProperty(keyset.property)));
+        }
+        position.set("id", objectMapper.valueToTree(accessor.getProperty(keyset.entity.getRequiredIdProperty())));
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(position));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create the cursor of " + entity, e);
+        }
+    }
+
+    private Parameter getBindValue(Object value) {
+        return r2dbcEntityTemplate.getDataAccessStrategy().getBindValue(Parameter.from(value));
+    }
+
+    private Keyset createKeyset(Class<?> entityType, Sort sort, String after) {
+        RelationalPersistentEntity<?> entity = getPersistentEntity(entityType);
+        RelationalPersistentProperty idProperty = entity.getRequiredIdProperty();
+        List<Sort.Order> orders = sort.filter(order -> !order.getProperty().equals(idProperty.getName())).toList();
+        if (orders.size() > 1) {
+            throw new InvalidCursorException("Keyset pagination supports a single sort property besides the id");
+        }
+
+        Keyset keyset = new Keyset(entity);
+        if (orders.isEmpty()) {
+            Sort.Order idOrder = sort.getOrderFor(idProperty.getName());
+            keyset.direction = idOrder != null ? idOrder.getDirection() : Sort.Direction.ASC;
+        } else {
+            keyset.property = entity.getPersistentProperty(orders.get(0).getProperty());
+            if (keyset.property == null || keyset.property.isTransient() || keyset.property.isEntity()) {
+                throw new InvalidCursorException("Unsupported sort property for keyset pagination: " + orders.get(0).getProperty());
+            }
+            if (!keyset.property.getType().isPrimitive() && !keyset.property.isAnnotationPresent(NotNull.class)) {
+                // a null value has no position to seek after, the rows holding it would never be reached
+                throw new InvalidCursorException("Keyset pagination needs a non-null sort property: " + keyset.property.getName());
+            }
+            keyset.direction = orders.get(0).getDirection();
+        }
+
+        if (StringUtils.hasText(after)) {
+            JsonNode position = readCursor(after);
+            String property = position.path("p").asText(null);
+            if (!(keyset.property == null ? property == null : keyset.property.getName().equals(property)) || !position.hasNonNull("id")) {
+                throw new InvalidCursorException("The cursor doesn't match the sort parameter");
+            }
+            keyset.id = objectMapper.convertValue(position.get("id"), idProperty.getType());
+            if (keyset.property != null) {
+                keyset.value = objectMapper.convertValue(position.get("v"), keyset.property.getType());
+                if (keyset.value == null) {
+                    throw new InvalidCursorException("Invalid cursor");
+                }
+            }
+        }
+        return keyset;
+    }
+
+    private JsonNode readCursor(String cursor) {
+        try {
+            return objectMapper.readTree(Base64.getUrlDecoder().decode(cursor));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+
+    /**
+     * The condition of a select, translated from criteria with a named bind marker per value, and the values to bind.
+     * The shape holds the columns, comparators and combinators, which are all the condition text depends on.
+     */
+    private class BoundCriteria {
+
+        final RelationalPersistentEntity<?> entity;
+        final Table table;
+        final Map<String, Object> values = new LinkedHashMap<>();
+        final StringBuilder shape = new StringBuilder();
+        final Condition condition;
+
+        BoundCriteria(RelationalPersistentEntity<?> entity, CriteriaDefinition criteria) {
+            this.entity = entity;
+            this.table = Table.create(entity.getTableName()).as(EntityManager.ENTITY_ALIAS);
+            this.condition = toChainCondition(criteria);
+        }
+
+        private Condition toChainCondition(CriteriaDefinition criteria) {
+            Deque<CriteriaDefinition> chain = new ArrayDeque<>();
+            for (CriteriaDefinition current = criteria; current != null; current = current.hasPrevious() ? current.getPrevious() : null) {
+                chain.push(current);
+            }
+            Condition result = null;
+            for (CriteriaDefinition current : chain) {
+                if (current.isEmpty()) {
+                    continue;
+                }
+                if (result != null) {
+                    shape.append(' ').append(current.getCombinator()).append(' ');
+                }
+                Condition next = current.isGroup() ? toGroupCondition(current.getGroup()) : toCondition(current);
+                if (result == null) {
+                    result = next;
+                } else {
+                    result = current.getCombinator() == CriteriaDefinition.Combinator.OR ? result.or(next) : result.and(next);
+                }
+            }
+            Assert.state(result != null, "Empty criteria");
+            return result;
+        }
+
+        private Condition toGroupCondition(List<CriteriaDefinition> group) {
+            // The criteria of a group are combined with AND, each one being nested
+            shape.append('(');
+            Condition result = null;
+            for (CriteriaDefinition criteria : group) {
+                if (criteria.isEmpty()) {
+                    continue;
+                }
+                if (result != null) {
+                    shape.append(" AND ");
+                }
+                Condition next = Conditions.nest(toChainCondition(criteria));
+                result = result == null ? next : result.and(next);
+            }
+            shape.append(')');
+            return Conditions.nest(result);
+        }
+
+        private Condition toCondition(CriteriaDefinition criteria) {
+            RelationalPersistentProperty property = entity.getPersistentProperty(criteria.getColumn().getReference());
+            Column column = table.column(property != null ? property.getColumnName() : criteria.getColumn());
+            boolean ignoreCase = criteria.isIgnoreCase() && criteria.getComparator() != CriteriaDefinition.Comparator.IN;
+            shape.append(column.getName().getReference()).append(' ').append(criteria.getComparator()).append(ignoreCase ? " ic" : "");
+
+            Expression left = ignoreCase ? Functions.upper(column) : column;
+            Object value = criteria.getValue();
+            switch (criteria.getComparator()) {
+                case IS_NULL:
+                    return Conditions.isNull(left);
+                case IS_NOT_NULL:
+                    return Conditions.isNull(left).not();
+                case IS_TRUE:
+                    return Conditions.isEqual(left, bind(true, false));
+                case IS_FALSE:
+                    return Conditions.isEqual(left, bind(false, false));
+                case EQ:
+                    return Conditions.isEqual(left, bind(value, ignoreCase));
+                case NEQ:
+                    return Conditions.isNotEqual(left, bind(value, ignoreCase));
+                case LT:
+                    return Conditions.isLess(left, bind(value, ignoreCase));
+                case LTE:
+                    return Conditions.isLessOrEqualTo(left, bind(value, ignoreCase));
+                case GT:
+                    return Conditions.isGreater(left, bind(value, ignoreCase));
+                case GTE:
+                    return Conditions.isGreaterOrEqualTo(left, bind(value, ignoreCase));
+                case LIKE:
+                    return Conditions.like(left, bind(value, ignoreCase));
+                case NOT_LIKE:
+                    return Conditions.notLike(left, bind(value, ignoreCase));
+                case IN:
+                    return Conditions.in(left, bind(value, false));
+                case NOT_IN:
+                    return Conditions.notIn(left, bind(value, false));
+                case BETWEEN:
+                case NOT_BETWEEN:
+                    Pair<?, ?> range = (Pair<?, ?>) value;
+                    Expression begin = bind(range.getFirst(), ignoreCase);
+                    Expression end = bind(range.getSecond(), ignoreCase);
+                    return criteria.getComparator() == CriteriaDefinition.Comparator.BETWEEN
+                        ? Conditions.between(left, begin, end)
+                        : Conditions.notBetween(left, begin, end);
+                default:
+                    throw new IllegalArgumentException("Unsupported comparator: " + criteria.getComparator());
+            }
+        }
+
+        /**
+         * Binds a value, or each element of a collection which is then expanded in place, to a new bind marker.
+         */
+        private Expression bind(Object value, boolean ignoreCase) {
+            String name = CRITERIA_PREFIX + values.size();
+            if (value instanceof Collection) {
+                List<Object> elements = new ArrayList<>();
+                for (Object element : (Collection<?>) value) {
+                    elements.add(getBindValue(element).getValue());
+                }
+                values.put(name, elements);
+            } else {
+                values.put(name, getBindValue(value));
+            }
+            BindMarker marker = SQL.bindMarker(":" + name);
+            return ignoreCase ? Functions.upper(marker) : marker;
+        }
+    }
+
+    /**
+     * The shape of a select statement: the rendered SQL only depends on it.
+     */
+    private static class SqlTemplateKey {
+
+        final Class<?> entityType;
+        final String variant;
+        final Sort sort;
+        final boolean paged;
+        final String criteria;
+
+        SqlTemplateKey(Class<?> entityType, String variant, Sort sort, boolean paged, String criteria) {
+            this.entityType = entityType;
+            this.variant = variant;
+            this.sort = sort;
+            this.paged = paged;
+            this.criteria = criteria;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SqlTemplateKey)) {
+                return false;
+            }
+            SqlTemplateKey that = (SqlTemplateKey) o;
+            return (
+                paged == that.paged &&
+                entityType.equals(that.entityType) &&
+                Objects.equals(variant, that.variant) &&
+                sort.equals(that.sort) &&
+                Objects.equals(criteria, that.criteria)
+            );
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(entityType, variant, sort, paged, criteria);
+        }
+    }
+
+    /**
+     * A least recently used cache of the rendered SQL templates, which counts its hits and misses.
+     */
+    private static class SqlTemplateCache {
+
+        private final Map<SqlTemplateKey, String> templates;
+        private final Counter hits;
+        private final Counter misses;
+
+        SqlTemplateCache(int maximumSize, MeterRegistry meterRegistry) {
+            this.templates =
+                Collections.synchronizedMap(
+                    new LinkedHashMap<SqlTemplateKey, String>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Entry<SqlTemplateKey, String> eldest) {
+                            return size() > maximumSize;
+                        }
+                    }
+                );
+            this.hits = meterRegistry.counter("cache.gets", "cache", SQL_TEMPLATE_CACHE, "result", "hit");
+            this.misses = meterRegistry.counter("cache.gets", "cache", SQL_TEMPLATE_CACHE, "result", "miss");
+            meterRegistry.gauge("cache.size", Tags.of("cache", SQL_TEMPLATE_CACHE), templates, Map::size);
+        }
+
+        String get(SqlTemplateKey key, Supplier<String> render) {
+            String template = templates.get(key);
+            if (template != null) {
+                hits.increment();
+                return template;
+            }
+            misses.increment();
+            // Rendering twice on a race is harmless, and cheaper than holding the lock while rendering
+            template = render.get();
+            templates.put(key, template);
+            return template;
+        }
+    }
+
+    /**
+     * The position of a row in a keyset paginated select: the value of the sort property (if any) and the id.
+     */
+    private static class Keyset {
+
+        final RelationalPersistentEntity<?> entity;
+        RelationalPersistentProperty property;
+        Sort.Direction direction;
+        Object value;
+        Object id;
+
+        Keyset(RelationalPersistentEntity<?> entity) {
+            this.entity = entity;
+        }
+
+        boolean hasPosition() {
+            return id != null;
+        }
+
+        Sort sort() {
+            String idName = entity.getRequiredIdProperty().getName();
+            return property == null ? Sort.by(direction, idName) : Sort.by(direction, property.getName(), idName);
+        }
+
+        Condition condition() {
+            Table table = Table.create(entity.getTableName()).as(EntityManager.ENTITY_ALIAS);
+            Condition afterId = after(table.column(entity.getRequiredIdProperty().getColumnName()), SQL.bindMarker(":" + CURSOR_ID));
+            if (property == null) {
+                return afterId;
+            }
+            Column column = table.column(property.getColumnName());
+            BindMarker valueMarker = SQL.bindMarker(":" + CURSOR_VALUE);
+            return Conditions.nest(after(column, valueMarker).or(column.isEqualTo(valueMarker).and(afterId)));
+        }
+
+        private Condition after(Column column, BindMarker marker) {
+            return direction.isAscending() ? column.isGreater(marker) : column.isLess(marker);
+        }
+    }
+
     private RelationalPersistentEntity<?> getPersistentEntity(Class<?> entityType) {
         return r2dbcEntityTemplate.getConverter().getMappingContext().getPersistentEntity(entityType);
     }
@@ -186,37 +585,90 @@ public class EntityManager {
 
     /**
      * Updates the table, which links the entity with the referred entities.
+     * <p>
+     * Only the difference with the current links is applied: the links which are gone are deleted, and the new ones
+     * are inserted, both in chunks of {@code application.persistence.link-table-batch-size} rows per statement.
      * @param table describes the link table, it contains a table name, the column name for the id, and for the referred entity id.
      * @param entityId the id of the entity, for which the links are created.
      * @param referencedIds the id of the referred entities.
-     * @return the number of inserted rows.
+     * @return the number of deleted and inserted rows.
      */
     public Mono<Integer> updateLinkTable(LinkTable table, Long entityId, Stream<Long> referencedIds) {
-        return deleteFromLinkTable(table, entityId)
-            .then(
-                Flux
-                    .fromStream(referencedIds)
-                    .flatMap(
-                        (Long referenceId) -> {
-                            StatementMapper.InsertSpec insert = r2dbcEntityTemplate
-                                .getDataAccessStrategy()
-                                .getStatementMapper()
-                                .createInsert(table.tableName)
-                                .withColumn(table.idColumn, Parameter.from(entityId))
-                                .withColumn(table.referenceColumn, Parameter.from(referenceId));
-
-                            return r2dbcEntityTemplate
-                                .getDatabaseClient()
-                                .sql(statementMapper.getMappedObject(insert))
-                                .fetch()
-                                .rowsUpdated();
-                        }
-                    )
-                    .collectList()
-                    .map((List<Integer> updates) -> updates.stream().reduce(Integer::sum).orElse(0))
+        Assert.notNull(entityId, "entityId is null");
+        return Mono
+            .fromCallable(() -> referencedIds.collect(Collectors.toCollection(LinkedHashSet::new)))
+            .zipWith(selectFromLinkTable(table, entityId).collect(Collectors.toSet()))
+            .flatMap(
+                links -> {
+                    Set<Long> wanted = links.getT1();
+                    Set<Long> existing = links.getT2();
+                    List<Long> removed = existing.stream().filter(id -> !wanted.contains(id)).sorted().collect(Collectors.toList());
+                    List<Long> added = wanted.stream().filter(id -> !existing.contains(id)).collect(Collectors.toList());
+                    return Flux
+                        .concat(
+                            Flux.fromIterable(chunk(removed)).concatMap(ids -> deleteFromLinkTable(table, entityId, ids)),
+                            Flux.fromIterable(chunk(added)).concatMap(ids -> insertIntoLinkTable(table, entityId, ids))
+                        )
+                        .reduce(0, Integer::sum);
+                }
             );
     }
 
+    private Flux<Long> selectFromLinkTable(LinkTable table, Long entityId) {
+        String sql = "SELECT " + table.referenceColumn + " FROM " + table.tableName + " WHERE " + table.idColumn + " = :entityId";
+        return r2dbcEntityTemplate
+            .getDatabaseClient()
+            .sql(sql)
+            .bind("entityId", entityId)
+            .map(row -> row.get(0, Long.class))
+            .all();
+    }
+
+    private Mono<Integer> deleteFromLinkTable(LinkTable table, Long entityId, List<Long> referencedIds) {
+        String sql =
+            "DELETE FROM " +
+            table.tableName +
+            " WHERE " +
+            table.idColumn +
+            " = :entityId AND " +
+            table.referenceColumn +
+            " IN (:referencedIds)";
+        return r2dbcEntityTemplate
+            .getDatabaseClient()
+            .sql(sql)
+            .bind("entityId", entityId)
+            .bind("referencedIds", referencedIds)
+            .fetch()
+            .rowsUpdated();
+    }
+
+    private Mono<Integer> insertIntoLinkTable(LinkTable table, Long entityId, List<Long> referencedIds) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ")
+            .append(table.tableName)
+            .append(" (")
+            .append(table.idColumn)
+            .append(", ")
+            .append(table.referenceColumn)
+            .append(") VALUES ");
+        for (int row = 0; row < referencedIds.size(); row++) {
+            sql.append(row == 0 ? "" : ", ").append("(:i").append(row).append(", :r").append(row).append(")");
+        }
+
+        GenericExecuteSpec spec = r2dbcEntityTemplate.getDatabaseClient().sql(sql.toString());
+        for (int row = 0; row < referencedIds.size(); row++) {
+            spec = spec.bind("i" + row, entityId).bind("r" + row, referencedIds.get(row));
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    private List<List<Long>> chunk(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += linkTableBatchSize) {
+            chunks.add(ids.subList(from, Math.min(from + linkTableBatchSize, ids.size())));
+        }
+        return chunks;
+    }
+
     public Mono<Void> deleteFromLinkTable(LinkTable table, Long entityId) {
         Assert.notNull(entityId, "entityId is null");
         StatementMapper.DeleteSpec deleteSpec = r2dbcEntityTemplate
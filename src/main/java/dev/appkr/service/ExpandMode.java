@@ -0,0 +1,17 @@
+package dev.appkr.service;
+
+/**
+ * How the expanded relations of the entities of a list or get endpoint are loaded.
+ */
+public enum ExpandMode {
+    /**
+     * The related entities are left-joined by the query of the entities themselves.
+     */
+    JOIN,
+
+    /**
+     * The related entities are loaded afterwards by one {@code WHERE id IN (...)} query per relation, shared by the
+     * lookups issued within the batch window.
+     */
+    BATCH,
+}
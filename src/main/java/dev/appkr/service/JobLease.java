@@ -0,0 +1,88 @@
+package dev.appkr.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Leases of the jobs which must run on one node at a time, in the {@code job_lease} table.
+ * <p>
+ * A lease expires unless its owner renews it, so that a node which stops while running a job doesn't keep the others
+ * from running it; a job which runs longer than its lease must renew it as it goes, and stop when it can't.
+ */
+public class JobLease {
+
+    private final DatabaseClient db;
+
+    private final String owner;
+
+    /**
+     * @param db the client of the database holding the leases.
+     * @param owner the name of this node.
+     */
+    public JobLease(DatabaseClient db, String owner) {
+        this.db = db;
+        this.owner = owner;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Acquire or renew the lease of a job.
+     *
+     * @param job the name of the job.
+     * @param duration how long the lease lasts from now.
+     * @return whether this node holds the lease, false if another node does.
+     */
+    public Mono<Boolean> acquire(String job, Duration duration) {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        LocalDateTime leaseUntil = now.plus(duration);
+        return db
+            .sql(
+                "UPDATE job_lease SET owner = :owner, lease_until = :leaseUntil " +
+                "WHERE name = :name AND (owner = :owner OR lease_until <= :now)"
+            )
+            .bind("owner", owner)
+            .bind("leaseUntil", leaseUntil)
+            .bind("name", job)
+            .bind("now", now)
+            .fetch()
+            .rowsUpdated()
+            .flatMap(updated -> updated > 0 ? Mono.just(true) : insert(job, leaseUntil));
+    }
+
+    /**
+     * The first lease of a job: only one of the nodes which race to insert it wins.
+     */
+    private Mono<Boolean> insert(String job, LocalDateTime leaseUntil) {
+        return db
+            .sql("INSERT INTO job_lease (name, owner, lease_until) VALUES (:name, :owner, :leaseUntil)")
+            .bind("name", job)
+            .bind("owner", owner)
+            .bind("leaseUntil", leaseUntil)
+            .fetch()
+            .rowsUpdated()
+            .thenReturn(true)
+            .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(false));
+    }
+
+    /**
+     * Release the lease of a job, if this node holds it.
+     *
+     * @param job the name of the job.
+     * @return a Mono which completes once the lease has been released.
+     */
+    public Mono<Void> release(String job) {
+        return db
+            .sql("UPDATE job_lease SET lease_until = :now WHERE name = :name AND owner = :owner")
+            .bind("now", LocalDateTime.now(ZoneOffset.UTC))
+            .bind("name", job)
+            .bind("owner", owner)
+            .then();
+    }
+}
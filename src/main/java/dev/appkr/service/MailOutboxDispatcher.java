@@ -0,0 +1,380 @@
+package dev.appkr.service;
+
+import dev.appkr.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Sends the emails of the {@code mail_outbox} table.
+ * <p>
+ * Each poll claims a batch of the due emails, those due the longest first, by setting its claim token on them and
+ * pushing their next attempt past the lease, so that the other nodes leave them alone; it sends them over one SMTP
+ * connection, then deletes those which were sent. Those which failed are retried after an exponential backoff, until
+ * the maximum number of attempts, after which they are left in the table for inspection. The emails of a node which
+ * stopped while sending them are sent again once their lease expires: an email can be sent twice, but it isn't lost.
+ * <p>
+ * The sending rate of each node is capped by a token bucket which refills at the configured rate, up to a batch.
+ * <p>
+ * The number of emails waiting to be sent is metered as the {@code mail.outbox.backlog} gauge, the emails sent, failed
+ * and abandoned as the {@code mail.outbox.sent}, {@code mail.outbox.failed} and {@code mail.outbox.abandoned}
+ * counters, and the time between the queueing and the sending of the emails as the {@code mail.outbox.delay} timer.
+ */
+public class MailOutboxDispatcher implements SmartLifecycle {
+
+    private final Logger log = LoggerFactory.getLogger(MailOutboxDispatcher.class);
+
+    private final DatabaseClient db;
+    private final JavaMailSender javaMailSender;
+    private final String from;
+    private final ApplicationProperties.MailOutbox properties;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter abandoned;
+    private final Timer delay;
+
+    private double permits;
+    private long refilledAt = System.nanoTime();
+
+    private volatile Disposable subscription;
+
+    /**
+     * @param db the client of the database holding the outbox.
+     * @param javaMailSender the sender of the emails.
+     * @param from the sender address of the emails.
+     * @param properties the polling, rate and retry settings.
+     * @param meterRegistry the registry of the metrics.
+     */
+    public MailOutboxDispatcher(
+        DatabaseClient db,
+        JavaMailSender javaMailSender,
+        String from,
+        ApplicationProperties.MailOutbox properties,
+        MeterRegistry meterRegistry
+    ) {
+        this.db = db;
+        this.javaMailSender = javaMailSender;
+        this.from = from;
+        this.properties = properties;
+        this.permits = properties.getBatchSize();
+        Gauge
+            .builder("mail.outbox.backlog", backlog, AtomicLong::get)
+            .description("Number of emails waiting to be sent")
+            .register(meterRegistry);
+        this.sent = Counter.builder("mail.outbox.sent").description("Number of emails sent").register(meterRegistry);
+        this.failed = Counter
+            .builder("mail.outbox.failed")
+            .description("Number of failed attempts to send an email")
+            .register(meterRegistry);
+        this.abandoned = Counter
+            .builder("mail.outbox.abandoned")
+            .description("Number of emails given up after the maximum number of attempts")
+            .register(meterRegistry);
+        this.delay = Timer
+            .builder("mail.outbox.delay")
+            .description("Time between the queueing and the sending of the emails")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Send a batch of the due emails.
+     *
+     * @return the number of emails sent.
+     */
+    public Mono<Integer> dispatch() {
+        int limit = acquirePermits();
+        if (limit == 0) {
+            return refreshBacklog().thenReturn(0);
+        }
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        String claimToken = UUID.randomUUID().toString();
+        return db
+            .sql(
+                "SELECT id FROM mail_outbox WHERE next_attempt_at <= :now AND attempts < :maxAttempts " +
+                "ORDER BY next_attempt_at LIMIT :limit"
+            )
+            .bind("now", now)
+            .bind("maxAttempts", properties.getMaxAttempts())
+            .bind("limit", limit)
+            .map(row -> row.get("id", Long.class))
+            .all()
+            .collectList()
+            .filter(ids -> !ids.isEmpty())
+            .flatMap(ids -> claim(ids, claimToken, now))
+            .flatMapMany(claimed -> claimed(claimToken))
+            .collectList()
+            .doOnNext(emails -> releasePermits(limit - emails.size()))
+            .filter(emails -> !emails.isEmpty())
+            .flatMap(this::send)
+            .defaultIfEmpty(0)
+            .flatMap(count -> refreshBacklog().thenReturn(count));
+    }
+
+    private Mono<Integer> claim(List<Long> ids, String claimToken, LocalDateTime now) {
+        return db
+            .sql(
+                "UPDATE mail_outbox SET claim_token = :claimToken, attempts = attempts + 1, next_attempt_at = :leaseUntil " +
+                "WHERE id IN (:ids) AND next_attempt_at <= :now AND attempts < :maxAttempts"
+            )
+            .bind("claimToken", claimToken)
+            .bind("leaseUntil", now.plus(properties.getLease()))
+            .bind("ids", ids)
+            .bind("now", now)
+            .bind("maxAttempts", properties.getMaxAttempts())
+            .fetch()
+            .rowsUpdated();
+    }
+
+    private Flux<OutboxEmail> claimed(String claimToken) {
+        return db
+            .sql(
+                "SELECT id, recipient, subject, content, multipart, html, attempts, created_at FROM mail_outbox " +
+                "WHERE claim_token = :claimToken ORDER BY id"
+            )
+            .bind("claimToken", claimToken)
+            .map(
+                row ->
+                    new OutboxEmail(
+                        row.get("id", Long.class),
+                        row.get("recipient", String.class),
+                        row.get("subject", String.class),
+                        row.get("content", String.class),
+                        Boolean.TRUE.equals(row.get("multipart", Boolean.class)),
+                        Boolean.TRUE.equals(row.get("html", Boolean.class)),
+                        row.get("attempts", Integer.class),
+                        row.get("created_at", LocalDateTime.class)
+                    )
+            )
+            .all();
+    }
+
+    private Mono<Integer> send(List<OutboxEmail> emails) {
+        return Mono
+            .fromCallable(() -> sendOverOneConnection(emails))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(
+                failures -> {
+                    LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+                    List<Long> sentIds = new ArrayList<>();
+                    List<Mono<Integer>> updates = new ArrayList<>();
+                    for (OutboxEmail email : emails) {
+                        Exception failure = failures.get(email);
+                        if (failure == null) {
+                            sentIds.add(email.id);
+                            delay.record(Duration.between(email.createdAt, now));
+                        } else {
+                            updates.add(reschedule(email, failure, now));
+                        }
+                    }
+                    Mono<Integer> deletion = sentIds.isEmpty()
+                        ? Mono.just(0)
+                        : db.sql("DELETE FROM mail_outbox WHERE id IN (:ids)").bind("ids", sentIds).fetch().rowsUpdated();
+                    return deletion
+                        .thenMany(Flux.concat(updates))
+                        .then(Mono.just(sentIds.size()))
+                        .doOnNext(
+                            count -> {
+                                sent.increment(count);
+                                log.debug("Sent {} of {} emails", count, emails.size());
+                            }
+                        );
+                }
+            );
+    }
+
+    /**
+     * @return the emails which failed, with the reason why.
+     */
+    private Map<OutboxEmail, Exception> sendOverOneConnection(List<OutboxEmail> emails) {
+        Map<OutboxEmail, Exception> failures = new IdentityHashMap<>();
+        // In order, the messages being compared by identity
+        Map<MimeMessage, OutboxEmail> messages = new LinkedHashMap<>();
+        for (OutboxEmail email : emails) {
+            try {
+                messages.put(createMessage(email), email);
+            } catch (MessagingException e) {
+                // Such as a malformed recipient, only this email fails
+                failures.put(email, e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return failures;
+        }
+        try {
+            javaMailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                // The messages were sent, only closing the connection failed
+                log.warn("Failed to close the connection to the mail server: {}", e.getMessage());
+            }
+            e.getFailedMessages().forEach((message, failure) -> failures.put(messages.get(message), failure));
+        } catch (MailException e) {
+            messages.values().forEach(email -> failures.put(email, e));
+        }
+        return failures;
+    }
+
+    private MimeMessage createMessage(OutboxEmail email) throws MessagingException {
+        MimeMessage message = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, email.multipart, StandardCharsets.UTF_8.name());
+        helper.setTo(email.recipient);
+        helper.setFrom(from);
+        helper.setSubject(email.subject);
+        helper.setText(email.content, email.html);
+        return message;
+    }
+
+    private Mono<Integer> reschedule(OutboxEmail email, Exception failure, LocalDateTime now) {
+        failed.increment();
+        String error = abbreviate(String.valueOf(failure.getMessage()));
+        if (email.attempts >= properties.getMaxAttempts()) {
+            abandoned.increment();
+            log.error("Gave up sending email {} to '{}' after {} attempts: {}", email.id, email.recipient, email.attempts, error);
+        } else {
+            log.warn("Failed to send email {} to '{}', attempt {}: {}", email.id, email.recipient, email.attempts, error);
+        }
+        return db
+            .sql("UPDATE mail_outbox SET claim_token = NULL, next_attempt_at = :nextAttemptAt, last_error = :lastError WHERE id = :id")
+            .bind("nextAttemptAt", now.plus(backoff(email.attempts)))
+            .bind("lastError", error)
+            .bind("id", email.id)
+            .fetch()
+            .rowsUpdated();
+    }
+
+    /**
+     * @return the delay before the next attempt: the initial backoff, doubled after each failed attempt.
+     */
+    Duration backoff(int attempts) {
+        Duration backoff = properties.getInitialBackoff();
+        for (int i = 1; i < attempts && backoff.compareTo(properties.getMaxBackoff()) < 0; i++) {
+            backoff = backoff.multipliedBy(2);
+        }
+        return backoff.compareTo(properties.getMaxBackoff()) < 0 ? backoff : properties.getMaxBackoff();
+    }
+
+    private static String abbreviate(String message) {
+        return message.length() <= 255 ? message : message.substring(0, 252) + "...";
+    }
+
+    private Mono<Long> refreshBacklog() {
+        return db
+            .sql("SELECT COUNT(*) AS backlog FROM mail_outbox WHERE attempts < :maxAttempts")
+            .bind("maxAttempts", properties.getMaxAttempts())
+            .map(row -> row.get("backlog", Long.class))
+            .one()
+            .doOnNext(backlog::set);
+    }
+
+    /**
+     * Take the permits of the emails the next batch may send, at most a batch.
+     */
+    private synchronized int acquirePermits() {
+        long now = System.nanoTime();
+        permits = Math.min(properties.getBatchSize(), permits + properties.getRate() * (now - refilledAt) / 1e9);
+        refilledAt = now;
+        int acquired = (int) permits;
+        permits -= acquired;
+        return acquired;
+    }
+
+    /**
+     * Give back the permits which weren't used, as there were fewer emails due.
+     */
+    private synchronized void releasePermits(int unused) {
+        permits = Math.min(properties.getBatchSize(), permits + unused);
+    }
+
+    @Override
+    public void start() {
+        subscription =
+            Flux
+                .interval(properties.getPollInterval())
+                .onBackpressureDrop()
+                .concatMap(
+                    tick ->
+                        dispatch()
+                            .onErrorResume(
+                                e -> {
+                                    log.warn("Failed to dispatch the emails: {}", e.getMessage());
+                                    return Mono.empty();
+                                }
+                            ),
+                    1
+                )
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+            subscription = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null && !subscription.isDisposed();
+    }
+
+    private static final class OutboxEmail {
+
+        private final long id;
+        private final String recipient;
+        private final String subject;
+        private final String content;
+        private final boolean multipart;
+        private final boolean html;
+        private final int attempts;
+        private final LocalDateTime createdAt;
+
+        private OutboxEmail(
+            long id,
+            String recipient,
+            String subject,
+            String content,
+            boolean multipart,
+            boolean html,
+            int attempts,
+            LocalDateTime createdAt
+        ) {
+            this.id = id;
+            this.recipient = recipient;
+            this.subject = subject;
+            this.content = content;
+            this.multipart = multipart;
+            this.html = html;
+            this.attempts = attempts;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -1,26 +1,27 @@
 package dev.appkr.service;
 
+import dev.appkr.config.Constants;
 import dev.appkr.domain.User;
-import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Locale;
-import javax.mail.MessagingException;
-import javax.mail.internet.MimeMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
-import org.springframework.mail.MailException;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring5.SpringTemplateEngine;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import tech.jhipster.config.JHipsterProperties;
 
 /**
  * Service for sending emails.
  * <p>
- * We use the {@link Async} annotation to send emails asynchronously.
+ * The emails are written to the {@code mail_outbox} table, within the transaction of the caller if there is one, so
+ * that they are sent if and only if the change they follow is committed, even if the application restarts in between.
+ * The {@link MailOutboxDispatcher} sends them.
  */
 @Service
 public class MailService {
@@ -33,80 +34,80 @@ public class MailService {
 
     private final JHipsterProperties jHipsterProperties;
 
-    private final JavaMailSender javaMailSender;
-
     private final MessageSource messageSource;
 
     private final SpringTemplateEngine templateEngine;
 
+    private final DatabaseClient db;
+
     public MailService(
         JHipsterProperties jHipsterProperties,
-        JavaMailSender javaMailSender,
         MessageSource messageSource,
-        SpringTemplateEngine templateEngine
+        SpringTemplateEngine templateEngine,
+        DatabaseClient db
     ) {
         this.jHipsterProperties = jHipsterProperties;
-        this.javaMailSender = javaMailSender;
         this.messageSource = messageSource;
         this.templateEngine = templateEngine;
+        this.db = db;
     }
 
-    @Async
-    public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
+    public Mono<Void> sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
         log.debug(
-            "Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
+            "Queue email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
             isMultipart,
             isHtml,
             to,
             subject,
             content
         );
-
-        // Prepare message using a Spring helper
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        try {
-            MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, StandardCharsets.UTF_8.name());
-            message.setTo(to);
-            message.setFrom(jHipsterProperties.getMail().getFrom());
-            message.setSubject(subject);
-            message.setText(content, isHtml);
-            javaMailSender.send(mimeMessage);
-            log.debug("Sent email to User '{}'", to);
-        } catch (MailException | MessagingException e) {
-            log.warn("Email could not be sent to user '{}'", to, e);
-        }
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        return db
+            .sql(
+                "INSERT INTO mail_outbox (recipient, subject, content, multipart, html, attempts, next_attempt_at, created_at) " +
+                "VALUES (:recipient, :subject, :content, :multipart, :html, 0, :now, :now)"
+            )
+            .bind("recipient", to)
+            .bind("subject", subject)
+            .bind("content", content)
+            .bind("multipart", isMultipart)
+            .bind("html", isHtml)
+            .bind("now", now)
+            .then();
     }
 
-    @Async
-    public void sendEmailFromTemplate(User user, String templateName, String titleKey) {
+    public Mono<Void> sendEmailFromTemplate(User user, String templateName, String titleKey) {
         if (user.getEmail() == null) {
             log.debug("Email doesn't exist for user '{}'", user.getLogin());
-            return;
+            return Mono.empty();
         }
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
-        Context context = new Context(locale);
-        context.setVariable(USER, user);
-        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
-        String content = templateEngine.process(templateName, context);
-        String subject = messageSource.getMessage(titleKey, null, locale);
-        sendEmail(user.getEmail(), subject, content, false, true);
+        // The template and the messages may be read from the classpath the first time
+        return Mono
+            .fromCallable(
+                () -> {
+                    Locale locale = Locale.forLanguageTag(user.getLangKey() != null ? user.getLangKey() : Constants.DEFAULT_LANGUAGE);
+                    Context context = new Context(locale);
+                    context.setVariable(USER, user);
+                    context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
+                    return new String[] { messageSource.getMessage(titleKey, null, locale), templateEngine.process(templateName, context) };
+                }
+            )
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(email -> sendEmail(user.getEmail(), email[0], email[1], false, true));
     }
 
-    @Async
-    public void sendActivationEmail(User user) {
+    public Mono<Void> sendActivationEmail(User user) {
         log.debug("Sending activation email to '{}'", user.getEmail());
-        sendEmailFromTemplate(user, "mail/activationEmail", "email.activation.title");
+        return sendEmailFromTemplate(user, "mail/activationEmail", "email.activation.title");
     }
 
-    @Async
-    public void sendCreationEmail(User user) {
+    public Mono<Void> sendCreationEmail(User user) {
         log.debug("Sending creation email to '{}'", user.getEmail());
-        sendEmailFromTemplate(user, "mail/creationEmail", "email.activation.title");
+        return sendEmailFromTemplate(user, "mail/creationEmail", "email.activation.title");
     }
 
-    @Async
-    public void sendPasswordResetMail(User user) {
+    public Mono<Void> sendPasswordResetMail(User user) {
         log.debug("Sending password reset email to '{}'", user.getEmail());
-        sendEmailFromTemplate(user, "mail/passwordResetEmail", "email.reset.title");
+        return sendEmailFromTemplate(user, "mail/passwordResetEmail", "email.reset.title");
     }
 }
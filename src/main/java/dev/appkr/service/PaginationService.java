@@ -0,0 +1,177 @@
+package dev.appkr.service;
+
+import dev.appkr.config.ApplicationProperties;
+import dev.appkr.config.ReplicaRoutingConnectionFactory;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+/**
+ * Helper class to fetch a page of entities along with its total count, computed with a {@link CountStrategy}.
+ * <p>
+ * Approximate counts are kept per entity name for {@code application.pagination.approximate-count-ttl}, and
+ * the services evict them whenever an entity is saved or deleted.
+ */
+@Service
+public class PaginationService {
+
+    private final ApplicationProperties.Pagination properties;
+
+    private final Map<String, Mono<Long>> approximateCounts = new ConcurrentHashMap<>();
+
+    public PaginationService(ApplicationProperties applicationProperties) {
+        this.properties = applicationProperties.getPagination();
+    }
+
+    /**
+     * Returns the count strategy to use for the given entity.
+     * @param entityName the name of the entity.
+     * @param requested the strategy requested by the client, or null to use the configured one.
+     * @return the count strategy.
+     */
+    public CountStrategy getCountStrategy(String entityName, CountStrategy requested) {
+        if (requested != null) {
+            return requested;
+        }
+        return properties.getCountStrategy().getOrDefault(entityName, properties.getDefaultCountStrategy());
+    }
+
+    /**
+     * Fetches a page of entities, whose rows are streamed once the pagination information is known.
+     * <p>
+     * The count and the rows are separate queries, which don't share a transaction: the rows are only read once the
+     * caller subscribes to them, after the returned Mono has completed. Both are marked read-only in the Reactor context,
+     * as no read-only transaction surrounds them by then, so that they are routed to the replicas when some are
+     * configured.
+     * @param <T> the type of the entities.
+     * @param entityName the name of the entity, which keys the configuration and the approximate counts.
+     * @param pageable the pagination information.
+     * @param requested the count strategy requested by the client, or null to use the configured one.
+     * @param query fetches the entities of the given page.
+     * @param count counts all the entities.
+     * @return the pagination information, which is a {@link org.springframework.data.domain.Page} if the entities were
+     * counted and a {@link Slice} otherwise, along with the entities of the page.
+     */
+    public <T> Mono<Tuple2<Slice<T>, Flux<T>>> findPage(
+        String entityName,
+        Pageable pageable,
+        CountStrategy requested,
+        Function<Pageable, Flux<T>> query,
+        Supplier<Mono<Long>> count
+    ) {
+        Function<Pageable, Flux<T>> rows = page -> query.apply(page).contextWrite(PaginationService::readOnly);
+        Supplier<Mono<Long>> total = () -> count.get().contextWrite(PaginationService::readOnly);
+        switch (getCountStrategy(entityName, requested)) {
+            case APPROXIMATE:
+                return getApproximateCount(entityName, total)
+                    .map(approximate -> page(new PageImpl<>(Collections.emptyList(), pageable, approximate), rows.apply(pageable)));
+            case NONE:
+                // Whether there is a next page is only known once the page has been read
+                return rows
+                    .apply(new LookaheadPageable(pageable))
+                    .collectList()
+                    .map(
+                        content -> {
+                            boolean hasNext = content.size() > pageable.getPageSize();
+                            List<T> page = hasNext ? content.subList(0, pageable.getPageSize()) : content;
+                            return page(new SliceImpl<>(page, pageable, hasNext), Flux.fromIterable(page));
+                        }
+                    );
+            default:
+                return total
+                    .get()
+                    .map(exact -> page(new PageImpl<>(Collections.emptyList(), pageable, exact), rows.apply(pageable)));
+        }
+    }
+
+    /**
+     * Evicts the approximate count of the given entity, after one has been saved or deleted.
+     * @param entityName the name of the entity.
+     */
+    public void evictCount(String entityName) {
+        approximateCounts.remove(entityName);
+    }
+
+    private Mono<Long> getApproximateCount(String entityName, Supplier<Mono<Long>> count) {
+        Duration ttl = properties.getApproximateCountTtl();
+        return approximateCounts.computeIfAbsent(
+            entityName,
+            name -> count.get().cache(total -> ttl, error -> Duration.ZERO, () -> Duration.ZERO)
+        );
+    }
+
+    private static Context readOnly(Context context) {
+        return ReplicaRoutingConnectionFactory.readOnly(context, true);
+    }
+
+    private static <T> Tuple2<Slice<T>, Flux<T>> page(Slice<T> slice, Flux<T> content) {
+        return Tuples.of(slice, content);
+    }
+
+    /**
+     * A page request which fetches one more row than its page size, to tell whether a next page exists.
+     */
+    private static class LookaheadPageable implements Pageable {
+
+        private final Pageable pageable;
+
+        LookaheadPageable(Pageable pageable) {
+            this.pageable = pageable;
+        }
+
+        @Override
+        public int getPageNumber() {
+            return pageable.getPageNumber();
+        }
+
+        @Override
+        public int getPageSize() {
+            return pageable.getPageSize() + 1;
+        }
+
+        @Override
+        public long getOffset() {
+            return pageable.getOffset();
+        }
+
+        @Override
+        public Sort getSort() {
+            return pageable.getSort();
+        }
+
+        @Override
+        public Pageable next() {
+            return new LookaheadPageable(pageable.next());
+        }
+
+        @Override
+        public Pageable previousOrFirst() {
+            return new LookaheadPageable(pageable.previousOrFirst());
+        }
+
+        @Override
+        public Pageable first() {
+            return new LookaheadPageable(pageable.first());
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return pageable.hasPrevious();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package dev.appkr.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Which parts of an entity a query has to load: the selected properties (a sparse fieldset), and the related entities,
+ * which are only loaded when they are expanded, either joined or batch-loaded according to the {@link ExpandMode}.
+ */
+public final class Projection {
+
+    public static final String FIELDS_PARAMETER = "fields";
+
+    public static final String EXPAND_PARAMETER = "expand";
+
+    public static final String EXPAND_MODE_PARAMETER = "expandMode";
+
+    private static final Projection ALL = new Projection(null, null, ExpandMode.JOIN);
+
+    /**
+     * The selected properties and relations, in the requested order, or null if they all are.
+     */
+    private final Set<String> fields;
+
+    /**
+     * The expanded relations, or null if they are given by the fields.
+     */
+    private final Set<String> expanded;
+
+    private final ExpandMode expandMode;
+
+    private Projection(Set<String> fields, Set<String> expanded, ExpandMode expandMode) {
+        this.fields = fields;
+        this.expanded = expanded;
+        this.expandMode = expandMode;
+    }
+
+    /**
+     * @return the projection which loads the entities along with all their related entities.
+     */
+    public static Projection all() {
+        return ALL;
+    }
+
+    /**
+     * @param relations the names of the relations to load, the other ones are left {@code null}.
+     * @return the projection which loads all the properties, and only the given related entities.
+     */
+    public static Projection expand(Collection<String> relations) {
+        return of(null, relations);
+    }
+
+    /**
+     * @param fields the names of the properties and relations to load, or null for all of them.
+     * @param relations the names of the relations to load, or null for those listed in the fields.
+     * @return the projection.
+     */
+    public static Projection of(Collection<String> fields, Collection<String> relations) {
+        if (fields == null && relations == null) {
+            return ALL;
+        }
+        return new Projection(names(fields), names(relations), ExpandMode.JOIN);
+    }
+
+    /**
+     * @param expandMode how to load the expanded relations, or null for the default one.
+     * @return this projection, which loads the expanded relations as given.
+     */
+    public Projection with(ExpandMode expandMode) {
+        ExpandMode mode = expandMode != null ? expandMode : ExpandMode.JOIN;
+        if (mode == this.expandMode) {
+            return this;
+        }
+        return new Projection(fields, expanded, mode);
+    }
+
+    private static Set<String> names(Collection<String> names) {
+        if (names == null) {
+            return null;
+        }
+        Set<String> result = new LinkedHashSet<>();
+        for (String name : names) {
+            if (name != null && !name.isBlank()) {
+                result.add(name.trim());
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * @param property the name of a property of the entity.
+     * @return whether the property has to be loaded.
+     */
+    public boolean includes(String property) {
+        return fields == null || fields.contains(property);
+    }
+
+    /**
+     * @param relation the name of a relation of the entity.
+     * @return whether the related entity has to be loaded.
+     */
+    public boolean expands(String relation) {
+        if (expanded != null) {
+            return expanded.contains(relation);
+        }
+        return includes(relation);
+    }
+
+    /**
+     * @param relation the name of a relation of the entity.
+     * @return whether the related entity has to be joined by the query of the entity itself.
+     */
+    public boolean joins(String relation) {
+        return expandMode == ExpandMode.JOIN && expands(relation);
+    }
+
+    /**
+     * @return how the expanded relations are loaded.
+     */
+    public ExpandMode getExpandMode() {
+        return expandMode;
+    }
+
+    /**
+     * @return whether only some properties are loaded, and should be written.
+     */
+    public boolean hasFields() {
+        return fields != null;
+    }
+
+    /**
+     * @return the properties and relations to write, in the requested order, when {@link #hasFields()}.
+     */
+    public Set<String> getWrittenFields() {
+        if (fields == null) {
+            return Collections.emptySet();
+        }
+        Set<String> written = new LinkedHashSet<>(fields);
+        if (expanded != null) {
+            written.addAll(expanded);
+        }
+        return written;
+    }
+
+    /**
+     * @param sort a sort parameter.
+     * @return this projection, which also loads the properties the entities are sorted by.
+     */
+    public Projection including(Sort sort) {
+        if (fields == null || sort.stream().allMatch(order -> fields.contains(order.getProperty()))) {
+            return this;
+        }
+        Set<String> including = new LinkedHashSet<>(fields);
+        sort.forEach(order -> including.add(order.getProperty()));
+        return new Projection(Collections.unmodifiableSet(including), expanded, expandMode);
+    }
+
+    /**
+     * @param properties the properties of the entity.
+     * @param relations the relations of the entity.
+     * @return whether all the fields are properties or relations of the entity, and all the expanded relations are relations of it.
+     */
+    public boolean isValid(Set<String> properties, Set<String> relations) {
+        boolean validFields = fields == null || fields.stream().allMatch(field -> properties.contains(field) || relations.contains(field));
+        return validFields && (expanded == null || relations.containsAll(expanded));
+    }
+
+    /**
+     * @return a name of the shape of the queries with this projection.
+     */
+    public String getKey() {
+        return (
+            FIELDS_PARAMETER +
+            "=" +
+            (fields == null ? "*" : String.join(",", new TreeSet<>(fields))) +
+            "&" +
+            EXPAND_PARAMETER +
+            "=" +
+            (expanded == null ? "*" : String.join(",", new TreeSet<>(expanded))) +
+            "&" +
+            EXPAND_MODE_PARAMETER +
+            "=" +
+            expandMode.name().toLowerCase(Locale.ROOT)
+        );
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Projection)) {
+            return false;
+        }
+        Projection that = (Projection) o;
+        return Objects.equals(fields, that.fields) && Objects.equals(expanded, that.expanded) && expandMode == that.expandMode;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fields, expanded, expandMode);
+    }
+
+    @Override
+    public String toString() {
+        return "Projection{" + getKey() + "}";
+    }
+}
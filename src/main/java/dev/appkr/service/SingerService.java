@@ -1,14 +1,19 @@
 package dev.appkr.service;
 
+import dev.appkr.domain.Album;
 import dev.appkr.domain.Singer;
 import dev.appkr.repository.SingerRepository;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 /**
  * Service Implementation for managing {@link Singer}.
@@ -17,12 +22,32 @@ import reactor.core.publisher.Mono;
 @Transactional
 public class SingerService {
 
+    private static final String ENTITY_NAME = "singer";
+
     private final Logger log = LoggerFactory.getLogger(SingerService.class);
 
     private final SingerRepository singerRepository;
 
-    public SingerService(SingerRepository singerRepository) {
+    private final EntityManager entityManager;
+
+    private final PaginationService paginationService;
+
+    private final EntityCache<Long, Singer> singerCache;
+
+    private final EntityCache<Long, Album> albumCache;
+
+    public SingerService(
+        SingerRepository singerRepository,
+        EntityManager entityManager,
+        PaginationService paginationService,
+        EntityCache<Long, Singer> singerCache,
+        EntityCache<Long, Album> albumCache
+    ) {
         this.singerRepository = singerRepository;
+        this.entityManager = entityManager;
+        this.paginationService = paginationService;
+        this.singerCache = singerCache;
+        this.albumCache = albumCache;
     }
 
     /**
@@ -33,7 +58,10 @@ public class SingerService {
      */
     public Mono<Singer> save(Singer singer) {
         log.debug("Request to save Singer : {}", singer);
-        return singerRepository.save(singer);
+        return singerRepository
+            .save(singer)
+            .flatMap(saved -> evict(saved.getId()).thenReturn(saved))
+            .doOnSuccess(saved -> paginationService.evictCount(ENTITY_NAME));
     }
 
     /**
@@ -56,7 +84,8 @@ public class SingerService {
                     return existingSinger;
                 }
             )
-            .flatMap(singerRepository::save);
+            .flatMap(singerRepository::save)
+            .flatMap(saved -> evict(saved.getId()).thenReturn(saved));
     }
 
     /**
@@ -71,6 +100,59 @@ public class SingerService {
         return singerRepository.findAllBy(pageable);
     }
 
+    /**
+     * Get a page of singers, along with their count.
+     * <p>
+     * Not transactional: the rows are streamed after the pagination information has been returned, so the count and the
+     * rows are read separately, and the count may miss the singers saved or deleted in between.
+     *
+     * @param pageable the pagination information.
+     * @param countStrategy how to count the singers, or null to use the configured strategy.
+     * @param projection the properties to load.
+     * @return the pagination information, which is a {@link org.springframework.data.domain.Page} if the singers were counted and
+     * a {@link Slice} otherwise, along with the stream of entities.
+     */
+    @Transactional(readOnly = true)
+    public Mono<Tuple2<Slice<Singer>, Flux<Singer>>> findPage(Pageable pageable, CountStrategy countStrategy, Projection projection) {
+        log.debug("Request to get a page of Singers with {}", projection);
+        return paginationService.findPage(
+            ENTITY_NAME,
+            pageable,
+            countStrategy,
+            page -> singerRepository.findAllBy(page, null, projection),
+            singerRepository::count
+        );
+    }
+
+    /**
+     * Get the singers which come after the given cursor, using keyset pagination.
+     *
+     * @param cursor the cursor of the last singer of the previous page, or empty for the first page.
+     * @param pageable the page size and sort information.
+     * @param projection the properties to load.
+     * @return the list of entities.
+     */
+    @Transactional(readOnly = true)
+    public Flux<Singer> findAllAfter(String cursor, Pageable pageable, Projection projection) {
+        log.debug("Request to get all Singers after : {}", cursor);
+        return singerRepository.findAllAfter(cursor, pageable, projection);
+    }
+
+    /**
+     * Returns the cursor which points right after the last singer of the given page, for keyset pagination.
+     *
+     * @param singers the entities of the current page.
+     * @param pageable the page size and sort information.
+     * @return the cursor, or empty if there is no next page.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Mono<String> createNextCursor(List<Singer> singers, Pageable pageable) {
+        if (singers.size() < pageable.getPageSize()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> entityManager.createCursor(singers.get(singers.size() - 1), pageable.getSort()));
+    }
+
     /**
      * Returns the number of singers available.
      * @return the number of entities in the database.
@@ -84,12 +166,16 @@ public class SingerService {
      * Get one singer by id.
      *
      * @param id the id of the entity.
-     * @return the entity.
+     * @param projection the properties to load.
+     * @return the entity, from the cache when it is loaded whole.
      */
     @Transactional(readOnly = true)
-    public Mono<Singer> findOne(Long id) {
+    public Mono<Singer> findOne(Long id, Projection projection) {
         log.debug("Request to get Singer : {}", id);
-        return singerRepository.findById(id);
+        if (!Projection.all().equals(projection)) {
+            return singerRepository.findById(id, projection);
+        }
+        return singerCache.get(id, key -> singerRepository.findById(key, projection));
     }
 
     /**
@@ -100,6 +186,13 @@ public class SingerService {
      */
     public Mono<Void> delete(Long id) {
         log.debug("Request to delete Singer : {}", id);
-        return singerRepository.deleteById(id);
+        return evict(id).then(singerRepository.deleteById(id)).doOnSuccess(deleted -> paginationService.evictCount(ENTITY_NAME));
+    }
+
+    /**
+     * Evicts the cached singer, and the cached albums which may embed it.
+     */
+    private Mono<Void> evict(Long id) {
+        return Mono.when(singerCache.evict(id), albumCache.evictAll());
     }
 }
@@ -1,14 +1,19 @@
 package dev.appkr.service;
 
+import dev.appkr.domain.Album;
 import dev.appkr.domain.Song;
 import dev.appkr.repository.SongRepository;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 /**
  * Service Implementation for managing {@link Song}.
@@ -17,12 +22,32 @@ import reactor.core.publisher.Mono;
 @Transactional
 public class SongService {
 
+    private static final String ENTITY_NAME = "song";
+
     private final Logger log = LoggerFactory.getLogger(SongService.class);
 
     private final SongRepository songRepository;
 
-    public SongService(SongRepository songRepository) {
+    private final EntityManager entityManager;
+
+    private final PaginationService paginationService;
+
+    private final EntityCache<Long, Song> songCache;
+
+    private final EntityCache<Long, Album> albumCache;
+
+    public SongService(
+        SongRepository songRepository,
+        EntityManager entityManager,
+        PaginationService paginationService,
+        EntityCache<Long, Song> songCache,
+        EntityCache<Long, Album> albumCache
+    ) {
         this.songRepository = songRepository;
+        this.entityManager = entityManager;
+        this.paginationService = paginationService;
+        this.songCache = songCache;
+        this.albumCache = albumCache;
     }
 
     /**
@@ -33,7 +58,10 @@ public class SongService {
      */
     public Mono<Song> save(Song song) {
         log.debug("Request to save Song : {}", song);
-        return songRepository.save(song);
+        return songRepository
+            .save(song)
+            .flatMap(saved -> evict(saved.getId()).thenReturn(saved))
+            .doOnSuccess(saved -> paginationService.evictCount(ENTITY_NAME));
     }
 
     /**
@@ -59,7 +87,8 @@ public class SongService {
                     return existingSong;
                 }
             )
-            .flatMap(songRepository::save);
+            .flatMap(songRepository::save)
+            .flatMap(saved -> evict(saved.getId()).thenReturn(saved));
     }
 
     /**
@@ -74,6 +103,59 @@ public class SongService {
         return songRepository.findAllBy(pageable);
     }
 
+    /**
+     * Get a page of songs, along with their count.
+     * <p>
+     * Not transactional: the rows are streamed after the pagination information has been returned, so the count and the
+     * rows are read separately, and the count may miss the songs saved or deleted in between.
+     *
+     * @param pageable the pagination information.
+     * @param countStrategy how to count the songs, or null to use the configured strategy.
+     * @param projection the properties to load.
+     * @return the pagination information, which is a {@link org.springframework.data.domain.Page} if the songs were counted and
+     * a {@link Slice} otherwise, along with the stream of entities.
+     */
+    @Transactional(readOnly = true)
+    public Mono<Tuple2<Slice<Song>, Flux<Song>>> findPage(Pageable pageable, CountStrategy countStrategy, Projection projection) {
+        log.debug("Request to get a page of Songs with {}", projection);
+        return paginationService.findPage(
+            ENTITY_NAME,
+            pageable,
+            countStrategy,
+            page -> songRepository.findAllBy(page, null, projection),
+            songRepository::count
+        );
+    }
+
+    /**
+     * Get the songs which come after the given cursor, using keyset pagination.
+     *
+     * @param cursor the cursor of the last song of the previous page, or empty for the first page.
+     * @param pageable the page size and sort information.
+     * @param projection the properties to load.
+     * @return the list of entities.
+     */
+    @Transactional(readOnly = true)
+    public Flux<Song> findAllAfter(String cursor, Pageable pageable, Projection projection) {
+        log.debug("Request to get all Songs after : {}", cursor);
+        return songRepository.findAllAfter(cursor, pageable, projection);
+    }
+
+    /**
+     * Returns the cursor which points right after the last song of the given page, for keyset pagination.
+     *
+     * @param songs the entities of the current page.
+     * @param pageable the page size and sort information.
+     * @return the cursor, or empty if there is no next page.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Mono<String> createNextCursor(List<Song> songs, Pageable pageable) {
+        if (songs.size() < pageable.getPageSize()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> entityManager.createCursor(songs.get(songs.size() - 1), pageable.getSort()));
+    }
+
     /**
      * Returns the number of songs available.
      * @return the number of entities in the database.
@@ -87,12 +169,16 @@ public class SongService {
      * Get one song by id.
      *
      * @param id the id of the entity.
-     * @return the entity.
+     * @param projection the properties to load.
+     * @return the entity, from the cache when it is loaded whole.
      */
     @Transactional(readOnly = true)
-    public Mono<Song> findOne(Long id) {
+    public Mono<Song> findOne(Long id, Projection projection) {
         log.debug("Request to get Song : {}", id);
-        return songRepository.findById(id);
+        if (!Projection.all().equals(projection)) {
+            return songRepository.findById(id, projection);
+        }
+        return songCache.get(id, key -> songRepository.findById(key, projection));
     }
 
     /**
@@ -103,6 +189,13 @@ public class SongService {
      */
     public Mono<Void> delete(Long id) {
         log.debug("Request to delete Song : {}", id);
-        return songRepository.deleteById(id);
+        return evict(id).then(songRepository.deleteById(id)).doOnSuccess(deleted -> paginationService.evictCount(ENTITY_NAME));
+    }
+
+    /**
+     * Evicts the cached song, and the cached albums which may embed it.
+     */
+    private Mono<Void> evict(Long id) {
+        return Mono.when(songCache.evict(id), albumCache.evictAll());
     }
 }
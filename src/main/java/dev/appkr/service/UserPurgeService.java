@@ -0,0 +1,155 @@
+package dev.appkr.service;
+
+import dev.appkr.config.ApplicationProperties;
+import dev.appkr.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
+
+/**
+ * Service class for purging the users which weren't activated in time.
+ * <p>
+ * The users are deleted in chunks, each one in its own transaction: first a chunk of their authorities, then a chunk
+ * of the users which have none left, until there aren't any. Only one node purges at a time, the one which holds the
+ * lease of the purge; it renews the lease after each chunk, and stops if it lost it.
+ * <p>
+ * The purges are timed as {@code user.purge}, and the users and chunks deleted so far counted as
+ * {@code user.purge.deleted} and {@code user.purge.chunks}; the purges left to another node are counted as
+ * {@code user.purge.skipped}.
+ */
+@Service
+public class UserPurgeService {
+
+    static final String JOB_NAME = "purge-not-activated-users";
+
+    private final Logger log = LoggerFactory.getLogger(UserPurgeService.class);
+
+    private final UserRepository userRepository;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final JobLease jobLease;
+
+    private final int chunkSize;
+
+    private final Duration lease;
+
+    private final Timer purges;
+
+    private final Counter deleted;
+
+    private final Counter chunks;
+
+    private final Counter skipped;
+
+    public UserPurgeService(
+        UserRepository userRepository,
+        ReactiveTransactionManager transactionManager,
+        JobLease jobLease,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.userRepository = userRepository;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        this.jobLease = jobLease;
+        this.chunkSize = applicationProperties.getUserPurge().getChunkSize();
+        this.lease = applicationProperties.getUserPurge().getLease();
+        this.purges = Timer.builder("user.purge").description("Duration of the purges of the not activated users").register(meterRegistry);
+        this.deleted = Counter.builder("user.purge.deleted").description("Number of not activated users purged").register(meterRegistry);
+        this.chunks = Counter
+            .builder("user.purge.chunks")
+            .description("Number of chunks of not activated users purged")
+            .register(meterRegistry);
+        this.skipped = Counter
+            .builder("user.purge.skipped")
+            .description("Number of purges left to the node holding the lease")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Not activated users should be automatically deleted after 3 days.
+     * <p>
+     * This is scheduled to get fired everyday, at 01:00 (am).
+     */
+    @Scheduled(cron = "0 0 1 * * ?")
+    public void removeNotActivatedUsers() {
+        purgeNotActivatedUsers().subscribe(null, e -> log.error("Failed to purge the not activated users", e));
+    }
+
+    /**
+     * Delete the users which weren't activated within 3 days, unless another node is doing it.
+     *
+     * @return the number of users deleted.
+     */
+    public Mono<Long> purgeNotActivatedUsers() {
+        return jobLease
+            .acquire(JOB_NAME, lease)
+            .flatMap(
+                acquired -> {
+                    if (!acquired) {
+                        log.debug("Not purging the not activated users, another node is");
+                        skipped.increment();
+                        return Mono.just(0L);
+                    }
+                    LocalDateTime createdBefore = LocalDateTime.ofInstant(Instant.now().minus(3, ChronoUnit.DAYS), ZoneOffset.UTC);
+                    long start = System.nanoTime();
+                    return purgeChunks(createdBefore, 0L)
+                        .flatMap(total -> jobLease.release(JOB_NAME).thenReturn(total))
+                        .doOnSuccess(
+                            total -> {
+                                purges.record(Duration.ofNanos(System.nanoTime() - start));
+                                log.info("Purged {} not activated users", total);
+                            }
+                        );
+                }
+            );
+    }
+
+    private Mono<Long> purgeChunks(LocalDateTime createdBefore, long total) {
+        return transactionalOperator
+            .transactional(
+                userRepository
+                    .deleteAuthoritiesOfNotActivatedUsers(createdBefore, chunkSize)
+                    .flatMap(
+                        authorities ->
+                            userRepository.deleteNotActivatedUsers(createdBefore, chunkSize).map(users -> Tuples.of(authorities, users))
+                    )
+            )
+            .flatMap(
+                chunk -> {
+                    int authorities = chunk.getT1();
+                    int users = chunk.getT2();
+                    if (authorities == 0 && users == 0) {
+                        return Mono.just(total);
+                    }
+                    chunks.increment();
+                    deleted.increment(users);
+                    log.debug("Purged a chunk of {} not activated users, and {} authorities", users, authorities);
+                    return jobLease
+                        .acquire(JOB_NAME, lease)
+                        .flatMap(
+                            renewed -> {
+                                if (!renewed) {
+                                    log.warn("Lost the lease of the purge of the not activated users, after {} of them", total + users);
+                                    return Mono.just(total + users);
+                                }
+                                return purgeChunks(createdBefore, total + users);
+                            }
+                        );
+                }
+            );
+    }
+}
@@ -6,23 +6,22 @@ import dev.appkr.domain.User;
 import dev.appkr.repository.AuthorityRepository;
 import dev.appkr.repository.UserRepository;
 import dev.appkr.security.AuthoritiesConstants;
+import dev.appkr.security.DomainUserDetailsService;
 import dev.appkr.security.SecurityUtils;
 import dev.appkr.service.dto.AdminUserDTO;
 import dev.appkr.service.dto.UserDTO;
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 import tech.jhipster.security.RandomUtil;
 
@@ -40,10 +39,26 @@ public class UserService {
 
     private final AuthorityRepository authorityRepository;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRepository authorityRepository) {
+    private final EntityCache<String, UserDetails> userDetailsCache;
+
+    private final Scheduler passwordHashingScheduler;
+
+    private final MailService mailService;
+
+    public UserService(
+        UserRepository userRepository,
+        PasswordEncoder passwordEncoder,
+        AuthorityRepository authorityRepository,
+        EntityCache<String, UserDetails> userDetailsCache,
+        Scheduler passwordHashingScheduler,
+        MailService mailService
+    ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authorityRepository = authorityRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.passwordHashingScheduler = passwordHashingScheduler;
+        this.mailService = mailService;
     }
 
     @Transactional
@@ -68,7 +83,7 @@ public class UserService {
         return userRepository
             .findOneByResetKey(key)
             .filter(user -> user.getResetDate().isAfter(Instant.now().minusSeconds(86400)))
-            .publishOn(Schedulers.boundedElastic())
+            .publishOn(passwordHashingScheduler)
             .map(
                 user -> {
                     user.setPassword(passwordEncoder.encode(newPassword));
@@ -93,7 +108,8 @@ public class UserService {
                     return user;
                 }
             )
-            .flatMap(this::saveUser);
+            .flatMap(this::saveUser)
+            .flatMap(user -> mailService.sendPasswordResetMail(user).thenReturn(user));
     }
 
     @Transactional
@@ -119,7 +135,7 @@ public class UserService {
                     }
                 }
             )
-            .publishOn(Schedulers.boundedElastic())
+            .publishOn(passwordHashingScheduler)
             .then(
                 Mono.fromCallable(
                     () -> {
@@ -154,7 +170,8 @@ public class UserService {
                         .flatMap(this::saveUser)
                         .doOnNext(user -> log.debug("Created Information for User: {}", user));
                 }
-            );
+            )
+            .flatMap(user -> mailService.sendActivationEmail(user).thenReturn(user));
     }
 
     @Transactional
@@ -177,7 +194,7 @@ public class UserService {
             .flatMap(authorityRepository::findById)
             .doOnNext(authority -> user.getAuthorities().add(authority))
             .then(Mono.just(user))
-            .publishOn(Schedulers.boundedElastic())
+            .publishOn(passwordHashingScheduler)
             .map(
                 newUser -> {
                     String encryptedPassword = passwordEncoder.encode(RandomUtil.generatePassword());
@@ -189,7 +206,8 @@ public class UserService {
                 }
             )
             .flatMap(this::saveUser)
-            .doOnNext(user1 -> log.debug("Created Information for User: {}", user1));
+            .doOnNext(user1 -> log.debug("Created Information for User: {}", user1))
+            .flatMap(user1 -> mailService.sendCreationEmail(user1).thenReturn(user1));
     }
 
     /**
@@ -202,6 +220,7 @@ public class UserService {
     public Mono<AdminUserDTO> updateUser(AdminUserDTO userDTO) {
         return userRepository
             .findById(userDTO.getId())
+            .flatMap(user -> evictUserDetails(user).thenReturn(user))
             .flatMap(
                 user -> {
                     user.setLogin(userDTO.getLogin().toLowerCase());
@@ -232,7 +251,7 @@ public class UserService {
     public Mono<Void> deleteUser(String login) {
         return userRepository
             .findOneByLogin(login)
-            .flatMap(user -> userRepository.delete(user).thenReturn(user))
+            .flatMap(user -> userRepository.delete(user).then(evictUserDetails(user)).thenReturn(user))
             .doOnNext(user -> log.debug("Deleted User: {}", user))
             .then();
     }
@@ -252,6 +271,7 @@ public class UserService {
         return SecurityUtils
             .getCurrentUserLogin()
             .flatMap(userRepository::findOneByLogin)
+            .flatMap(user -> evictUserDetails(user).thenReturn(user))
             .flatMap(
                 user -> {
                     user.setFirstName(firstName);
@@ -288,18 +308,31 @@ public class UserService {
                                 Flux
                                     .fromIterable(user.getAuthorities())
                                     .flatMap(authority -> userRepository.saveUserAuthority(savedUser.getId(), authority.getName()))
+                                    .then(evictUserDetails(savedUser))
                                     .then(Mono.just(savedUser))
                         );
                 }
             );
     }
 
+    /**
+     * Evicts the user from the cache of the authentication, by login and by email: every change of the password, the
+     * activation or the authorities goes through {@link #saveUser(User)} or a deletion.
+     */
+    private Mono<Void> evictUserDetails(User user) {
+        Mono<Void> byLogin = userDetailsCache.evict(DomainUserDetailsService.cacheKey(user.getLogin()));
+        if (user.getEmail() == null) {
+            return byLogin;
+        }
+        return Mono.when(byLogin, userDetailsCache.evict(DomainUserDetailsService.cacheKey(user.getEmail())));
+    }
+
     @Transactional
     public Mono<Void> changePassword(String currentClearTextPassword, String newPassword) {
         return SecurityUtils
             .getCurrentUserLogin()
             .flatMap(userRepository::findOneByLogin)
-            .publishOn(Schedulers.boundedElastic())
+            .publishOn(passwordHashingScheduler)
             .map(
                 user -> {
                     String currentEncryptedPassword = user.getPassword();
@@ -341,26 +374,6 @@ public class UserService {
         return SecurityUtils.getCurrentUserLogin().flatMap(userRepository::findOneWithAuthoritiesByLogin);
     }
 
-    /**
-     * Not activated users should be automatically deleted after 3 days.
-     * <p>
-     * This is scheduled to get fired everyday, at 01:00 (am).
-     */
-    @Scheduled(cron = "0 0 1 * * ?")
-    public void removeNotActivatedUsers() {
-        removeNotActivatedUsersReactively().blockLast();
-    }
-
-    @Transactional
-    public Flux<User> removeNotActivatedUsersReactively() {
-        return userRepository
-            .findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(
-                LocalDateTime.ofInstant(Instant.now().minus(3, ChronoUnit.DAYS), ZoneOffset.UTC)
-            )
-            .flatMap(user -> userRepository.delete(user).thenReturn(user))
-            .doOnNext(user -> log.debug("Deleted User: {}", user));
-    }
-
     /**
      * Gets a list of all the authorities.
      * @return a list of all the authorities.
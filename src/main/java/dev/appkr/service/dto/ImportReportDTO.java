@@ -0,0 +1,83 @@
+package dev.appkr.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO representing the outcome of a bulk import: the number of imported rows, and the lines which could not be imported.
+ */
+public class ImportReportDTO {
+
+    private long imported;
+
+    private List<LineErrorDTO> errors = new ArrayList<>();
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public List<LineErrorDTO> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<LineErrorDTO> errors) {
+        this.errors = errors;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ImportReportDTO{" +
+            "imported=" + imported +
+            ", errors=" + errors.size() +
+            "}";
+    }
+
+    /**
+     * A line of the import which was rejected, and why.
+     */
+    public static class LineErrorDTO {
+
+        private long line;
+
+        private String message;
+
+        public LineErrorDTO() {
+            // Empty constructor needed for Jackson.
+        }
+
+        public LineErrorDTO(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public void setLine(long line) {
+            this.line = line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+
+        // prettier-ignore
+        @Override
+        public String toString() {
+            return "LineErrorDTO{" +
+                "line=" + line +
+                ", message='" + message + '\'' +
+                "}";
+        }
+    }
+}
@@ -3,20 +3,27 @@ package dev.appkr.web.rest;
 import dev.appkr.domain.Album;
 import dev.appkr.repository.AlbumRepository;
 import dev.appkr.service.AlbumService;
+import dev.appkr.service.CountStrategy;
+import dev.appkr.service.ExpandMode;
+import dev.appkr.service.InvalidCursorException;
+import dev.appkr.service.Projection;
 import dev.appkr.web.rest.errors.BadRequestAlertException;
+import dev.appkr.web.util.KeysetPaginationUtil;
+import dev.appkr.web.util.SlicePaginationUtil;
+import dev.appkr.web.util.SparseFieldsetUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -29,7 +36,6 @@ import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tech.jhipster.web.util.HeaderUtil;
-import tech.jhipster.web.util.PaginationUtil;
 import tech.jhipster.web.util.reactive.ResponseUtil;
 
 /**
@@ -43,6 +49,10 @@ public class AlbumResource {
 
     private static final String ENTITY_NAME = "album";
 
+    private static final Set<String> PROPERTIES = Set.of("id", "title", "publishedAt", "singerId", "songsId");
+
+    private static final Set<String> RELATIONS = Set.of("singer", "songs");
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -184,43 +194,103 @@ public class AlbumResource {
      * {@code GET  /albums} : get all the albums.
      *
      * @param pageable the pagination information.
+     * @param count how to count the albums: {@code exact}, {@code approximate} or {@code none} (defaults to the configured strategy).
+     * @param after the cursor of the last album of the previous page, for keyset pagination (empty for the first page).
+     * @param fields the properties and relations to return, such as {@code id,title} (defaults to all of them).
+     * @param expand the relations to load along with the albums: {@code singer} and {@code songs} (defaults to those in the fields).
+     * @param expandMode how to load them: {@code join} (default) or {@code batch}, one query per relation for the whole page.
      * @param request a {@link ServerHttpRequest} request.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of albums in body.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of albums in body, streamed as JSON or NDJSON.
      */
-    @GetMapping("/albums")
-    public Mono<ResponseEntity<List<Album>>> getAllAlbums(Pageable pageable, ServerHttpRequest request) {
+    @GetMapping(value = "/albums", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public Mono<ResponseEntity<Flux<Object>>> getAllAlbums(
+        Pageable pageable,
+        @RequestParam(value = SlicePaginationUtil.COUNT_PARAMETER, required = false) CountStrategy count,
+        @RequestParam(value = KeysetPaginationUtil.AFTER_PARAMETER, required = false) String after,
+        @RequestParam(value = Projection.FIELDS_PARAMETER, required = false) List<String> fields,
+        @RequestParam(value = Projection.EXPAND_PARAMETER, required = false) List<String> expand,
+        @RequestParam(value = Projection.EXPAND_MODE_PARAMETER, required = false) ExpandMode expandMode,
+        ServerHttpRequest request
+    ) {
         log.debug("REST request to get a page of Albums");
+        Projection projection = getProjection(fields, expand, expandMode);
+        if (after != null) {
+            return getAllAlbumsAfter(after, pageable, projection, request);
+        }
         return albumService
-            .countAll()
-            .zipWith(albumService.findAll(pageable).collectList())
+            .findPage(pageable, count, projection)
             .map(
-                countWithEntities -> {
-                    return ResponseEntity
+                page ->
+                    ResponseEntity
                         .ok()
                         .headers(
-                            PaginationUtil.generatePaginationHttpHeaders(
-                                UriComponentsBuilder.fromHttpRequest(request),
-                                new PageImpl<>(countWithEntities.getT2(), pageable, countWithEntities.getT1())
-                            )
+                            SlicePaginationUtil.generatePaginationHttpHeaders(UriComponentsBuilder.fromHttpRequest(request), page.getT1())
                         )
-                        .body(countWithEntities.getT2());
-                }
+                        .body(page.getT2().map(SparseFieldsetUtil.writer(Album.class, projection)))
             );
     }
 
+    private Mono<ResponseEntity<Flux<Object>>> getAllAlbumsAfter(
+        String after,
+        Pageable pageable,
+        Projection projection,
+        ServerHttpRequest request
+    ) {
+        return albumService
+            .findAllAfter(after, pageable, projection)
+            .collectList()
+            .flatMap(
+                albums ->
+                    albumService
+                        .createNextCursor(albums, pageable)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .map(
+                            nextCursor ->
+                                ResponseEntity
+                                    .ok()
+                                    .headers(
+                                        KeysetPaginationUtil.generateKeysetPaginationHttpHeaders(
+                                            UriComponentsBuilder.fromHttpRequest(request),
+                                            nextCursor.orElse(null)
+                                        )
+                                    )
+                                    .body(Flux.fromIterable(albums).map(SparseFieldsetUtil.writer(Album.class, projection)))
+                        )
+            )
+            .onErrorMap(InvalidCursorException.class, e -> new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "cursorinvalid"));
+    }
+
     /**
      * {@code GET  /albums/:id} : get the "id" album.
      *
      * @param id the id of the album to retrieve.
+     * @param fields the properties and relations to return, such as {@code id,title} (defaults to all of them).
+     * @param expand the relations to load along with the album: {@code singer} and {@code songs} (defaults to those in the fields).
+     * @param expandMode how to load them: {@code join} (default) or {@code batch}.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the album, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/albums/{id}")
-    public Mono<ResponseEntity<Album>> getAlbum(@PathVariable Long id) {
+    public Mono<ResponseEntity<Object>> getAlbum(
+        @PathVariable Long id,
+        @RequestParam(value = Projection.FIELDS_PARAMETER, required = false) List<String> fields,
+        @RequestParam(value = Projection.EXPAND_PARAMETER, required = false) List<String> expand,
+        @RequestParam(value = Projection.EXPAND_MODE_PARAMETER, required = false) ExpandMode expandMode
+    ) {
         log.debug("REST request to get Album : {}", id);
-        Mono<Album> album = albumService.findOne(id);
+        Projection projection = getProjection(fields, expand, expandMode);
+        Mono<Object> album = albumService.findOne(id, projection).map(SparseFieldsetUtil.writer(Album.class, projection));
         return ResponseUtil.wrapOrNotFound(album);
     }
 
+    private Projection getProjection(List<String> fields, List<String> expand, ExpandMode expandMode) {
+        Projection projection = Projection.of(fields, expand).with(expandMode);
+        if (!projection.isValid(PROPERTIES, RELATIONS)) {
+            throw new BadRequestAlertException("Unknown field or relation", ENTITY_NAME, "projectioninvalid");
+        }
+        return projection;
+    }
+
     /**
      * {@code DELETE  /albums/:id} : delete the "id" album.
      *
@@ -0,0 +1,159 @@
+package dev.appkr.web.rest;
+
+import dev.appkr.security.AuthoritiesConstants;
+import dev.appkr.service.CatalogueEntity;
+import dev.appkr.service.CatalogueExportService;
+import dev.appkr.service.CatalogueFormat;
+import dev.appkr.service.CatalogueImportException;
+import dev.appkr.service.CatalogueImportService;
+import dev.appkr.service.dto.ImportReportDTO;
+import dev.appkr.web.rest.errors.BadRequestAlertException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * REST controller for the bulk export and import of the music catalogue.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class CatalogueResource {
+
+    private static final String ENTITY_NAME = "catalogue";
+
+    private static final String GZIP = "gzip";
+
+    private final Logger log = LoggerFactory.getLogger(CatalogueResource.class);
+
+    private final CatalogueExportService catalogueExportService;
+
+    private final CatalogueImportService catalogueImportService;
+
+    public CatalogueResource(CatalogueExportService catalogueExportService, CatalogueImportService catalogueImportService) {
+        this.catalogueExportService = catalogueExportService;
+        this.catalogueImportService = catalogueImportService;
+    }
+
+    /**
+     * {@code GET  /admin/export/:entity} : export all the rows of an entity.
+     * <p>
+     * The rows are streamed as they are read, and gzipped on the fly if the client accepts it.
+     *
+     * @param entity the entity to export: {@code album}, {@code singer} or {@code song}.
+     * @param format the format of the export: {@code ndjson} or {@code csv}.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the rows in body, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/export/{entity}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public Mono<ResponseEntity<Flux<byte[]>>> exportEntity(
+        @PathVariable String entity,
+        @RequestParam(defaultValue = "ndjson") String format,
+        ServerHttpRequest request
+    ) {
+        log.debug("REST request to export {} as {}", entity, format);
+        CatalogueEntity catalogueEntity = getCatalogueEntity(entity);
+        CatalogueFormat catalogueFormat = CatalogueFormat
+            .fromName(format)
+            .orElseThrow(() -> new BadRequestAlertException("Unsupported format", ENTITY_NAME, "formatinvalid"));
+        boolean gzip = acceptsGzip(request.getHeaders().getOrEmpty(HttpHeaders.ACCEPT_ENCODING));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(catalogueFormat.getMediaType()));
+        headers.setContentDisposition(
+            ContentDisposition.attachment().filename(catalogueEntity.getName() + "." + catalogueFormat.getName()).build()
+        );
+        headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING));
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return Mono.just(ResponseEntity.ok().headers(headers).body(catalogueExportService.export(catalogueEntity, catalogueFormat, gzip)));
+    }
+
+    /**
+     * {@code POST  /admin/import/:entity} : import rows of an entity.
+     * <p>
+     * The body holds one row per line, as NDJSON or, with a {@code text/csv} content type, as CSV with a header line.
+     * Invalid lines are skipped and reported, the other ones are inserted in chunks.
+     *
+     * @param entity the entity to import: {@code album}, {@code singer} or {@code song}.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the import report in body,
+     * or with status {@code 400 (Bad Request)} if the CSV header is invalid, or with status {@code 404 (Not Found)}.
+     */
+    @PostMapping("/import/{entity}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public Mono<ResponseEntity<ImportReportDTO>> importEntity(@PathVariable String entity, ServerHttpRequest request) {
+        log.debug("REST request to import {}", entity);
+        CatalogueEntity catalogueEntity = getCatalogueEntity(entity);
+        MediaType contentType = request.getHeaders().getContentType();
+        boolean csv = contentType != null && MediaType.parseMediaType(CatalogueFormat.CSV.getMediaType()).isCompatibleWith(contentType);
+        CatalogueFormat catalogueFormat = csv ? CatalogueFormat.CSV : CatalogueFormat.NDJSON;
+        Flux<String> lines = StringDecoder
+            .allMimeTypes()
+            .decode(request.getBody(), ResolvableType.forClass(String.class), contentType, Collections.emptyMap());
+        return catalogueImportService
+            .importLines(catalogueEntity, catalogueFormat, lines)
+            .map(ResponseEntity::ok)
+            .onErrorMap(CatalogueImportException.class, e -> new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "importinvalid"));
+    }
+
+    /**
+     * Tells whether the {@code Accept-Encoding} header gives gzip, or else any coding, a quality above zero.
+     */
+    private static boolean acceptsGzip(List<String> acceptEncoding) {
+        Double gzip = null;
+        Double any = null;
+        for (String value : acceptEncoding) {
+            for (String coding : value.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                if (GZIP.equals(name) || "x-gzip".equals(name)) {
+                    gzip = quality(parts);
+                } else if ("*".equals(name)) {
+                    any = quality(parts);
+                }
+            }
+        }
+        double quality = gzip != null ? gzip : any != null ? any : 0;
+        return quality > 0;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private CatalogueEntity getCatalogueEntity(String entity) {
+        return CatalogueEntity.fromName(entity).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+}
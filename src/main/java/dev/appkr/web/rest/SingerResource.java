@@ -2,21 +2,28 @@ package dev.appkr.web.rest;
 
 import dev.appkr.domain.Singer;
 import dev.appkr.repository.SingerRepository;
+import dev.appkr.service.CountStrategy;
+import dev.appkr.service.InvalidCursorException;
+import dev.appkr.service.Projection;
 import dev.appkr.service.SingerService;
 import dev.appkr.web.rest.errors.BadRequestAlertException;
+import dev.appkr.web.util.KeysetPaginationUtil;
+import dev.appkr.web.util.SlicePaginationUtil;
+import dev.appkr.web.util.SparseFieldsetUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -29,7 +36,6 @@ import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tech.jhipster.web.util.HeaderUtil;
-import tech.jhipster.web.util.PaginationUtil;
 import tech.jhipster.web.util.reactive.ResponseUtil;
 
 /**
@@ -43,6 +49,8 @@ public class SingerResource {
 
     private static final String ENTITY_NAME = "singer";
 
+    private static final Set<String> PROPERTIES = Set.of("id", "name");
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -184,43 +192,95 @@ public class SingerResource {
      * {@code GET  /singers} : get all the singers.
      *
      * @param pageable the pagination information.
+     * @param count how to count the singers: {@code exact}, {@code approximate} or {@code none} (defaults to the configured strategy).
+     * @param after the cursor of the last singer of the previous page, for keyset pagination (empty for the first page).
+     * @param fields the properties to return, such as {@code id,name} (defaults to all of them).
      * @param request a {@link ServerHttpRequest} request.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of singers in body.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of singers in body, streamed as JSON or NDJSON.
      */
-    @GetMapping("/singers")
-    public Mono<ResponseEntity<List<Singer>>> getAllSingers(Pageable pageable, ServerHttpRequest request) {
+    @GetMapping(value = "/singers", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public Mono<ResponseEntity<Flux<Object>>> getAllSingers(
+        Pageable pageable,
+        @RequestParam(value = SlicePaginationUtil.COUNT_PARAMETER, required = false) CountStrategy count,
+        @RequestParam(value = KeysetPaginationUtil.AFTER_PARAMETER, required = false) String after,
+        @RequestParam(value = Projection.FIELDS_PARAMETER, required = false) List<String> fields,
+        ServerHttpRequest request
+    ) {
         log.debug("REST request to get a page of Singers");
+        Projection projection = getProjection(fields);
+        if (after != null) {
+            return getAllSingersAfter(after, pageable, projection, request);
+        }
         return singerService
-            .countAll()
-            .zipWith(singerService.findAll(pageable).collectList())
+            .findPage(pageable, count, projection)
             .map(
-                countWithEntities -> {
-                    return ResponseEntity
+                page ->
+                    ResponseEntity
                         .ok()
                         .headers(
-                            PaginationUtil.generatePaginationHttpHeaders(
-                                UriComponentsBuilder.fromHttpRequest(request),
-                                new PageImpl<>(countWithEntities.getT2(), pageable, countWithEntities.getT1())
-                            )
+                            SlicePaginationUtil.generatePaginationHttpHeaders(UriComponentsBuilder.fromHttpRequest(request), page.getT1())
                         )
-                        .body(countWithEntities.getT2());
-                }
+                        .body(page.getT2().map(SparseFieldsetUtil.writer(Singer.class, projection)))
             );
     }
 
+    private Mono<ResponseEntity<Flux<Object>>> getAllSingersAfter(
+        String after,
+        Pageable pageable,
+        Projection projection,
+        ServerHttpRequest request
+    ) {
+        return singerService
+            .findAllAfter(after, pageable, projection)
+            .collectList()
+            .flatMap(
+                singers ->
+                    singerService
+                        .createNextCursor(singers, pageable)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .map(
+                            nextCursor ->
+                                ResponseEntity
+                                    .ok()
+                                    .headers(
+                                        KeysetPaginationUtil.generateKeysetPaginationHttpHeaders(
+                                            UriComponentsBuilder.fromHttpRequest(request),
+                                            nextCursor.orElse(null)
+                                        )
+                                    )
+                                    .body(Flux.fromIterable(singers).map(SparseFieldsetUtil.writer(Singer.class, projection)))
+                        )
+            )
+            .onErrorMap(InvalidCursorException.class, e -> new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "cursorinvalid"));
+    }
+
     /**
      * {@code GET  /singers/:id} : get the "id" singer.
      *
      * @param id the id of the singer to retrieve.
+     * @param fields the properties to return, such as {@code id,name} (defaults to all of them).
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the singer, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/singers/{id}")
-    public Mono<ResponseEntity<Singer>> getSinger(@PathVariable Long id) {
+    public Mono<ResponseEntity<Object>> getSinger(
+        @PathVariable Long id,
+        @RequestParam(value = Projection.FIELDS_PARAMETER, required = false) List<String> fields
+    ) {
         log.debug("REST request to get Singer : {}", id);
-        Mono<Singer> singer = singerService.findOne(id);
+        Projection projection = getProjection(fields);
+        Mono<Object> singer = singerService.findOne(id, projection).map(SparseFieldsetUtil.writer(Singer.class, projection));
         return ResponseUtil.wrapOrNotFound(singer);
     }
 
+    private Projection getProjection(List<String> fields) {
+        Projection projection = Projection.of(fields, null);
+        if (!projection.isValid(PROPERTIES, Collections.emptySet())) {
+            throw new BadRequestAlertException("Unknown field", ENTITY_NAME, "projectioninvalid");
+        }
+        return projection;
+    }
+
     /**
      * {@code DELETE  /singers/:id} : delete the "id" singer.
      *
@@ -4,7 +4,6 @@ import dev.appkr.config.Constants;
 import dev.appkr.domain.User;
 import dev.appkr.repository.UserRepository;
 import dev.appkr.security.AuthoritiesConstants;
-import dev.appkr.service.MailService;
 import dev.appkr.service.UserService;
 import dev.appkr.service.dto.AdminUserDTO;
 import dev.appkr.web.rest.errors.BadRequestAlertException;
@@ -77,12 +76,9 @@ public class UserResource {
 
     private final UserRepository userRepository;
 
-    private final MailService mailService;
-
-    public UserResource(UserService userService, UserRepository userRepository, MailService mailService) {
+    public UserResource(UserService userService, UserRepository userRepository) {
         this.userService = userService;
         this.userRepository = userRepository;
-        this.mailService = mailService;
     }
 
     /**
@@ -125,7 +121,6 @@ public class UserResource {
                     return userService.createUser(userDTO);
                 }
             )
-            .doOnSuccess(mailService::sendCreationEmail)
             .map(
                 user -> {
                     try {
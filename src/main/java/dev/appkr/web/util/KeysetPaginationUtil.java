@@ -0,0 +1,35 @@
+package dev.appkr.web.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling keyset (cursor based) pagination.
+ * <p>
+ * The client asks for the first page with an empty {@code after} parameter, and then follows the {@code next} link of the
+ * {@code Link} header, which carries the cursor of the last row of the current page.
+ */
+public final class KeysetPaginationUtil {
+
+    public static final String AFTER_PARAMETER = "after";
+
+    private static final String HEADER_LINK_FORMAT = "<%s>; rel=\"%s\"";
+
+    private KeysetPaginationUtil() {}
+
+    /**
+     * Generate pagination headers for a keyset paginated list.
+     *
+     * @param uriBuilder the URI builder of the current request.
+     * @param nextCursor the cursor of the next page, or {@code null} if the current page is the last one.
+     * @return http header.
+     */
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(UriComponentsBuilder uriBuilder, String nextCursor) {
+        HttpHeaders headers = new HttpHeaders();
+        if (nextCursor != null) {
+            String next = uriBuilder.replaceQueryParam("page").replaceQueryParam(AFTER_PARAMETER, nextCursor).toUriString();
+            headers.add(HttpHeaders.LINK, String.format(HEADER_LINK_FORMAT, next, "next"));
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,65 @@
+package dev.appkr.web.util;
+
+import java.text.MessageFormat;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+import tech.jhipster.web.util.PaginationUtil;
+
+/**
+ * Utility class for handling pagination when the total count may be omitted.
+ * <p>
+ * A counted {@link Page} gets the usual {@code X-Total-Count} and {@code Link} headers. A {@link Slice} only knows
+ * whether a next page exists, which is told by the {@code X-Has-Next-Page} header and the {@code next} link.
+ */
+public final class SlicePaginationUtil {
+
+    public static final String COUNT_PARAMETER = "count";
+
+    private static final String HEADER_HAS_NEXT_PAGE = "X-Has-Next-Page";
+    private static final String HEADER_LINK_FORMAT = "<{0}>; rel=\"{1}\"";
+
+    private SlicePaginationUtil() {}
+
+    /**
+     * Generate pagination headers for a Spring Data {@link Slice} object.
+     *
+     * @param uriBuilder The URI builder.
+     * @param slice The slice, which may be a counted {@link Page}.
+     * @param <T> The type of object.
+     * @return http header.
+     */
+    public static <T> HttpHeaders generatePaginationHttpHeaders(UriComponentsBuilder uriBuilder, Slice<T> slice) {
+        if (slice instanceof Page) {
+            return PaginationUtil.generatePaginationHttpHeaders(uriBuilder, (Page<T>) slice);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HEADER_HAS_NEXT_PAGE, Boolean.toString(slice.hasNext()));
+        int pageNumber = slice.getNumber();
+        int pageSize = slice.getSize();
+        StringBuilder link = new StringBuilder();
+        if (slice.hasNext()) {
+            link.append(prepareLink(uriBuilder, pageNumber + 1, pageSize, "next")).append(",");
+        }
+        if (slice.hasPrevious()) {
+            link.append(prepareLink(uriBuilder, pageNumber - 1, pageSize, "prev")).append(",");
+        }
+        link.append(prepareLink(uriBuilder, 0, pageSize, "first"));
+        headers.add(HttpHeaders.LINK, link.toString());
+        return headers;
+    }
+
+    private static String prepareLink(UriComponentsBuilder uriBuilder, int pageNumber, int pageSize, String relType) {
+        return MessageFormat.format(HEADER_LINK_FORMAT, preparePageUri(uriBuilder, pageNumber, pageSize), relType);
+    }
+
+    private static String preparePageUri(UriComponentsBuilder uriBuilder, int pageNumber, int pageSize) {
+        return uriBuilder
+            .replaceQueryParam("page", Integer.toString(pageNumber))
+            .replaceQueryParam("size", Integer.toString(pageSize))
+            .toUriString()
+            .replace(",", "%2C")
+            .replace(";", "%3B");
+    }
+}
@@ -0,0 +1,54 @@
+package dev.appkr.web.util;
+
+import dev.appkr.service.Projection;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Utility class for writing sparse fieldsets.
+ * <p>
+ * When the client asks for some fields only, with the {@code fields} parameter, the entities are written as maps which
+ * only hold those fields, instead of through their full JSON representation.
+ */
+public final class SparseFieldsetUtil {
+
+    private SparseFieldsetUtil() {}
+
+    /**
+     * Create the function which turns an entity into its written representation.
+     *
+     * @param type the type of the entities.
+     * @param projection the projection the entities were loaded with.
+     * @param <T> the type of the entities.
+     * @return the function which returns the entity itself, or a map of its fields if the projection has fields.
+     * @throws IllegalArgumentException if a field isn't a readable property of the type.
+     */
+    public static <T> Function<T, Object> writer(Class<T> type, Projection projection) {
+        if (!projection.hasFields()) {
+            return entity -> entity;
+        }
+        Set<String> fields = projection.getWrittenFields();
+        String[] names = fields.toArray(new String[0]);
+        Method[] getters = new Method[names.length];
+        for (int i = 0; i < names.length; i++) {
+            PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, names[i]);
+            if (descriptor == null || descriptor.getReadMethod() == null) {
+                throw new IllegalArgumentException("Unknown property " + names[i] + " of " + type.getSimpleName());
+            }
+            getters[i] = descriptor.getReadMethod();
+        }
+        return entity -> {
+            Map<String, Object> written = new LinkedHashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                written.put(names[i], ReflectionUtils.invokeMethod(getters[i], entity));
+            }
+            return written;
+        };
+    }
+}
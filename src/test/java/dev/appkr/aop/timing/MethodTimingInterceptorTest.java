@@ -0,0 +1,134 @@
+package dev.appkr.aop.timing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import dev.appkr.aop.logging.LoggingAspect;
+import dev.appkr.service.MethodTimingTestService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.core.env.Environment;
+import reactor.core.publisher.Mono;
+
+class MethodTimingInterceptorTest {
+
+    private static final Logger log = LoggerFactory.getLogger(MethodTimingInterceptorTest.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MethodTimingInterceptor interceptor = new MethodTimingInterceptor(() -> meterRegistry, Map.of());
+
+    private final MethodTimingTestService service = timed(new MethodTimingTestService());
+
+    @Test
+    void timesTheSubscriptionsOfTheResult() throws InterruptedException {
+        Mono<String> found = service.findLater("name", Duration.ofMillis(50));
+
+        assertThat(meterRegistry.find(MethodTimingInterceptor.TIMER_NAME).timers()).allMatch(timer -> timer.count() == 0);
+        assertThat(found.block()).isEqualTo("name");
+        assertThat(found.block()).isEqualTo("name");
+        assertThat(service.findAll(3).collectList().block()).containsExactly(0, 1, 2);
+
+        Timer timer = timer("findLater", "success");
+        // Recorded on the timer thread once the result has terminated, which can be right after block() returned
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (timer.count() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(timer.count()).isEqualTo(2);
+        assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(100);
+        assertThat(timer("findAll", "success").count()).isEqualTo(1);
+    }
+
+    @Test
+    void timesTheOutcomes() {
+        assertThatThrownBy(() -> service.fail().block()).isInstanceOf(IllegalStateException.class);
+        service.findLater("name", Duration.ofSeconds(1)).subscribe().dispose();
+        assertThat(service.findNow("name")).isEqualTo("name");
+
+        assertThat(timer("fail", "error").count()).isEqualTo(1);
+        assertThat(timer("findLater", "cancel").count()).isEqualTo(1);
+        assertThat(timer("findNow", "success").count()).isEqualTo(1);
+    }
+
+    @Test
+    void switchesTheTimingByPackageAtRuntime() {
+        interceptor.setSwitch("dev.appkr.service", false);
+        service.find("name").block();
+
+        assertThat(interceptor.isEnabled(MethodTimingTestService.class.getName())).isFalse();
+        assertThat(meterRegistry.find(MethodTimingInterceptor.TIMER_NAME).timers()).isEmpty();
+
+        interceptor.setSwitch(MethodTimingTestService.class.getName(), true);
+        service.find("name").block();
+        interceptor.setSwitch(MethodTimingTestService.class.getName(), null);
+        service.find("name").block();
+
+        assertThat(interceptor.getSwitches()).containsOnly(Map.entry("dev.appkr.service", false));
+        assertThat(timer("find", "success").count()).isEqualTo(1);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void timingBenchmark() {
+        MethodTimingTestService plain = new MethodTimingTestService();
+        AspectJProxyFactory loggingProxyFactory = new AspectJProxyFactory(new MethodTimingTestService());
+        loggingProxyFactory.addAspect(new LoggingAspect(mock(Environment.class)));
+        MethodTimingTestService logged = loggingProxyFactory.getProxy();
+
+        int iterations = 100_000;
+        long[] last = null;
+        // A few rounds, the last one with a warm JIT
+        for (int round = 0; round < 5; round++) {
+            last =
+                new long[] {
+                    callNanos(plain, iterations),
+                    callNanos(logged, iterations),
+                    callNanos(service, iterations),
+                };
+        }
+        log.info(
+            "{} calls and subscriptions: plain {} ns, logging aspect {} ns, timing interceptor {} ns",
+            iterations,
+            last[0] / iterations,
+            last[1] / iterations,
+            last[2] / iterations
+        );
+        assertThat(timer("find", "success").count()).isEqualTo(5L * iterations);
+    }
+
+    private static long callNanos(MethodTimingTestService service, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            service.find("name").subscribe();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private Timer timer(String method, String outcome) {
+        return meterRegistry
+            .get(MethodTimingInterceptor.TIMER_NAME)
+            .tag("class", MethodTimingTestService.class.getSimpleName())
+            .tag("method", method)
+            .tag("outcome", outcome)
+            .timer();
+    }
+
+    private MethodTimingTestService timed(MethodTimingTestService target) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return (MethodTimingTestService) proxyFactory.getProxy();
+    }
+}
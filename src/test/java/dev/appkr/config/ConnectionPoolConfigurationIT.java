@@ -0,0 +1,37 @@
+package dev.appkr.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.appkr.IntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+
+/**
+ * Integration tests for the {@link ConnectionPoolConfiguration}.
+ */
+@IntegrationTest
+class ConnectionPoolConfigurationIT {
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private ConnectionPoolHealthIndicator connectionPoolHealthIndicator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void connectionPoolIsMetered() {
+        assertThat(connectionFactory).isInstanceOf(MeteredConnectionPool.class);
+        ((MeteredConnectionPool) connectionFactory).warmup().block(Duration.ofSeconds(5));
+
+        assertThat(connectionPoolHealthIndicator.health().block(Duration.ofSeconds(5)).getStatus()).isEqualTo(Status.UP);
+        assertThat(meterRegistry.find("r2dbc.pool.acquire").timers()).isNotEmpty();
+        assertThat(meterRegistry.find("r2dbc.pool.idle").gauge()).isNotNull();
+    }
+}
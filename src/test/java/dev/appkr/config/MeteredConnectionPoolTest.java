@@ -0,0 +1,75 @@
+package dev.appkr.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+class MeteredConnectionPoolTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MeteredConnectionPool pool = new MeteredConnectionPool(
+        new ConnectionPool(ConnectionPoolConfiguration.builder(H2ConnectionFactory.inMemory("pool")).initialSize(2).maxSize(2).build()),
+        "pool",
+        meterRegistry
+    );
+
+    private final ConnectionPoolHealthIndicator healthIndicator = new ConnectionPoolHealthIndicator(pool, true);
+
+    @AfterEach
+    public void dispose() {
+        pool.dispose();
+    }
+
+    @Test
+    void timesConnectionAcquisition() {
+        Connection connection = pool.create().block(Duration.ofSeconds(5));
+        Mono.from(connection.close()).block(Duration.ofSeconds(5));
+
+        assertThat(meterRegistry.get("r2dbc.pool.acquire").tags("name", "pool", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("r2dbc.pool.acquired").tag("name", "pool").gauge().value()).isZero();
+    }
+
+    @Test
+    void isDownUntilWarmedUp() {
+        assertThat(health().getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health().getDetails()).containsEntry("reason", "warming up");
+
+        assertThat(pool.warmup().block(Duration.ofSeconds(5))).isEqualTo(2);
+
+        assertThat(health().getStatus()).isEqualTo(Status.UP);
+        assertThat(health().getDetails()).containsEntry("idle", 2);
+    }
+
+    @Test
+    void isDownWhileSaturated() {
+        pool.warmup().block(Duration.ofSeconds(5));
+        Connection first = pool.create().block(Duration.ofSeconds(5));
+        Connection second = pool.create().block(Duration.ofSeconds(5));
+        assertThat(health().getStatus()).isEqualTo(Status.UP);
+
+        Disposable pending = pool.create().subscribe();
+        assertThat(health().getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health().getDetails()).containsEntry("reason", "saturated").containsEntry("pending", 1);
+
+        pending.dispose();
+        Mono.from(first.close()).then(Mono.from(second.close())).block(Duration.ofSeconds(5));
+        assertThat(health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    private Health health() {
+        return healthIndicator.health().block(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,70 @@
+package dev.appkr.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.appkr.IntegrationTest;
+import dev.appkr.aop.timing.MethodTimingEndpoint;
+import dev.appkr.aop.timing.MethodTimingInterceptor;
+import dev.appkr.repository.SingerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Integration tests for the {@link MethodTimingConfiguration}.
+ */
+@IntegrationTest
+class MethodTimingConfigurationIT {
+
+    @Autowired
+    private SingerRepository singerRepository;
+
+    @Autowired
+    private MethodTimingInterceptor methodTimingInterceptor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MethodTimingEndpoint methodTimingEndpoint;
+
+    @AfterEach
+    void resetSwitches() {
+        methodTimingInterceptor.setSwitch("dev.appkr.repository", null);
+    }
+
+    @Test
+    void repositoriesAreTimedUntilSwitchedOff() throws InterruptedException {
+        singerRepository.count().block(Duration.ofSeconds(5));
+        assertThat(awaitTimedCount(1)).isEqualTo(1);
+
+        methodTimingEndpoint.configure("dev.appkr.repository", false);
+        assertThat(methodTimingEndpoint.timing(SingerRepository.class.getName())).containsEntry("effective", false);
+
+        singerRepository.count().block(Duration.ofSeconds(5));
+        assertThat(timedCount()).isEqualTo(1);
+    }
+
+    /**
+     * The timer is recorded once the result has terminated, which can be right after the subscriber got it.
+     */
+    private long awaitTimedCount(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (timedCount() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return timedCount();
+    }
+
+    private long timedCount() {
+        return meterRegistry
+            .get(MethodTimingInterceptor.TIMER_NAME)
+            .tag("class", SingerRepository.class.getSimpleName())
+            .tag("method", "count")
+            .tag("outcome", "success")
+            .timer()
+            .count();
+    }
+}
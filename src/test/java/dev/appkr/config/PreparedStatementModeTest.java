@@ -0,0 +1,34 @@
+package dev.appkr.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.miku.r2dbc.mysql.MySqlConnectionFactoryProvider;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.junit.jupiter.api.Test;
+
+class PreparedStatementModeTest {
+
+    @Test
+    void customizerEnablesServerPreparedStatementsForMysql() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getPersistence().setPreparedStatements(PreparedStatementMode.SERVER);
+
+        assertThat(customize(applicationProperties, "mysql").getValue(MySqlConnectionFactoryProvider.USE_SERVER_PREPARE_STATEMENT))
+            .isEqualTo(true);
+        assertThat(customize(applicationProperties, "h2").hasOption(MySqlConnectionFactoryProvider.USE_SERVER_PREPARE_STATEMENT)).isFalse();
+    }
+
+    @Test
+    void customizerLeavesClientPreparedStatementsAlone() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+
+        assertThat(customize(applicationProperties, "mysql").hasOption(MySqlConnectionFactoryProvider.USE_SERVER_PREPARE_STATEMENT))
+            .isFalse();
+    }
+
+    private ConnectionFactoryOptions customize(ApplicationProperties applicationProperties, String driver) {
+        ConnectionFactoryOptions.Builder builder = ConnectionFactoryOptions.builder().option(ConnectionFactoryOptions.DRIVER, driver);
+        new DatabaseConfiguration().preparedStatementCustomizer(applicationProperties).customize(builder);
+        return builder.build();
+    }
+}
@@ -0,0 +1,149 @@
+package dev.appkr.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.appkr.aop.routing.ReadOnlyRoutingAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import java.time.Duration;
+import java.util.Arrays;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+class ReplicaRoutingConnectionFactoryTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MeteredConnectionPool primary = pool("primary", H2ConnectionFactory.inMemory("primary"));
+
+    private final MeteredConnectionPool first = pool("replica-0", H2ConnectionFactory.inMemory("replica-0"));
+
+    private final MeteredConnectionPool second = pool("replica-1", H2ConnectionFactory.inMemory("replica-1"));
+
+    private final MeteredConnectionPool broken = pool("broken", new BrokenConnectionFactory());
+
+    private ReplicaRoutingConnectionFactory routing;
+
+    @AfterEach
+    public void dispose() {
+        routing(ReplicaSelection.ROUND_ROBIN, primary, first, second, broken).dispose();
+    }
+
+    @Test
+    void sendsReadOnlyTransactionsToTheReplicasInTurn() {
+        routing = routing(ReplicaSelection.ROUND_ROBIN, primary, first, second);
+
+        for (int i = 0; i < 4; i++) {
+            close(connect(true));
+        }
+        close(connect(false));
+
+        assertThat(connections("primary")).isEqualTo(1);
+        assertThat(connections("replica-0")).isEqualTo(2);
+        assertThat(connections("replica-1")).isEqualTo(2);
+    }
+
+    @Test
+    void sendsReadOnlyTransactionsToTheLeastLoadedReplica() {
+        routing = routing(ReplicaSelection.LEAST_LOADED, primary, first, second);
+
+        Connection held = connect(true);
+        for (int i = 0; i < 3; i++) {
+            close(connect(true));
+        }
+        close(held);
+
+        assertThat(connections("replica-0")).isEqualTo(1);
+        assertThat(connections("replica-1")).isEqualTo(3);
+    }
+
+    @Test
+    void fallsBackToThePrimary() {
+        routing = routing(ReplicaSelection.ROUND_ROBIN, primary, broken);
+
+        close(connect(true));
+
+        assertThat(meterRegistry.get("r2dbc.routing.connections").tags("target", "broken", "outcome", "error").counter().count())
+            .isEqualTo(1);
+        assertThat(connections("primary")).isEqualTo(1);
+    }
+
+    @Test
+    void aspectMarksReadOnlyTransactions() {
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Reads());
+        factory.addAspect(new ReadOnlyRoutingAspect());
+        Reads reads = factory.getProxy();
+
+        assertThat(reads.readOnly().contextWrite(context -> ReplicaRoutingConnectionFactory.readOnly(context, false)).block())
+            .isTrue();
+        assertThat(reads.readWrite().contextWrite(context -> ReplicaRoutingConnectionFactory.readOnly(context, true)).block())
+            .isFalse();
+    }
+
+    private ReplicaRoutingConnectionFactory routing(
+        ReplicaSelection selection,
+        MeteredConnectionPool primary,
+        MeteredConnectionPool... replicas
+    ) {
+        return new ReplicaRoutingConnectionFactory(primary, Arrays.asList(replicas), selection, meterRegistry);
+    }
+
+    private MeteredConnectionPool pool(String name, ConnectionFactory connectionFactory) {
+        return new MeteredConnectionPool(
+            new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory).initialSize(0).maxSize(2).build()),
+            name,
+            meterRegistry
+        );
+    }
+
+    private Connection connect(boolean readOnly) {
+        return routing
+            .create()
+            .contextWrite(Context.of(ReplicaRoutingConnectionFactory.READ_ONLY_KEY, readOnly))
+            .block(Duration.ofSeconds(5));
+    }
+
+    private void close(Connection connection) {
+        Mono.from(connection.close()).block(Duration.ofSeconds(5));
+    }
+
+    private double connections(String target) {
+        return meterRegistry.counter("r2dbc.routing.connections", "target", target, "outcome", "success").count();
+    }
+
+    @Transactional
+    public static class Reads {
+
+        @Transactional(readOnly = true)
+        public Mono<Boolean> readOnly() {
+            return Mono.deferContextual(context -> Mono.just(context.get(ReplicaRoutingConnectionFactory.READ_ONLY_KEY)));
+        }
+
+        public Mono<Boolean> readWrite() {
+            return Mono.deferContextual(context -> Mono.just(context.get(ReplicaRoutingConnectionFactory.READ_ONLY_KEY)));
+        }
+    }
+
+    private static class BrokenConnectionFactory implements ConnectionFactory {
+
+        @Override
+        public Mono<Connection> create() {
+            return Mono.error(new IllegalStateException("replica is down"));
+        }
+
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return () -> "broken";
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package dev.appkr.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.startsWith;
+
+import dev.appkr.IntegrationTest;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import java.util.List;
+import java.util.Objects;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * Integration tests of the routing of the reads to a replica, which is a second database holding other rows than the
+ * primary one: a response shows which database it was read from.
+ */
+@IntegrationTest
+@AutoConfigureWebTestClient
+@WithMockUser
+@TestPropertySource(properties = "application.persistence.replica-urls[0]=" + ReplicaRoutingIT.REPLICA_URL)
+class ReplicaRoutingIT {
+
+    static final String REPLICA_URL = "r2dbc:h2:mem:///replica;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+    @Autowired
+    private DatabaseClient db;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private R2dbcProperties r2dbcProperties;
+
+    private DatabaseClient replica;
+
+    private long albumId;
+
+    @BeforeEach
+    public void copyTheSchemaToTheReplica() {
+        replica =
+            DatabaseClient.create(
+                ConnectionFactories.get(
+                    ConnectionFactoryOptions
+                        .parse(REPLICA_URL)
+                        .mutate()
+                        .option(ConnectionFactoryOptions.USER, r2dbcProperties.getUsername())
+                        .option(ConnectionFactoryOptions.PASSWORD, Objects.toString(r2dbcProperties.getPassword(), ""))
+                        .build()
+                )
+            );
+        List<String> schema = db.sql("SCRIPT NODATA").map(row -> row.get(0, String.class)).all().collectList().block();
+        if (replica.sql("SHOW TABLES").fetch().all().hasElements().block()) {
+            cleanUp();
+        } else {
+            schema.forEach(statement -> replica.sql(statement).then().block());
+        }
+        insert(db, "primary");
+        albumId = insert(replica, "replica");
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        for (DatabaseClient database : List.of(db, replica)) {
+            database.sql("DELETE FROM album WHERE title LIKE 'primary-%' OR title LIKE 'replica-%'").then().block();
+            database.sql("DELETE FROM singer WHERE name LIKE 'primary-%' OR name LIKE 'replica-%'").then().block();
+            database.sql("DELETE FROM song WHERE title LIKE 'primary-%' OR title LIKE 'replica-%'").then().block();
+        }
+    }
+
+    @Test
+    void readsThePagesFromTheReplica() {
+        for (String count : List.of("exact", "approximate", "none")) {
+            webTestClient
+                .get()
+                .uri("/api/albums?size=100&sort=id&count={count}", count)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.[*].title")
+                .value(everyItem(startsWith("replica-")));
+        }
+        webTestClient
+            .get()
+            .uri("/api/albums?size=100&count=exact")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", String.valueOf(count(replica, "album")));
+        webTestClient
+            .get()
+            .uri("/api/singers?size=100&sort=id")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.[*].name")
+            .value(everyItem(startsWith("replica-")));
+        webTestClient
+            .get()
+            .uri("/api/songs?size=100&sort=id")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.[*].title")
+            .value(everyItem(startsWith("replica-")));
+    }
+
+    @Test
+    void readsTheKeysetPagesFromTheReplica() {
+        webTestClient
+            .get()
+            .uri("/api/albums?after=&size=100&sort=id")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.[*].title")
+            .value(everyItem(startsWith("replica-")));
+    }
+
+    @Test
+    void readsAnAlbumFromTheReplica() {
+        for (String query : List.of("", "?expand=singer", "?fields=title")) {
+            webTestClient
+                .get()
+                .uri("/api/albums/{id}" + query, albumId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.title")
+                .isEqualTo("replica-album");
+        }
+    }
+
+    @Test
+    void writesToThePrimary() {
+        webTestClient
+            .post()
+            .uri("/api/singers")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"name\":\"primary-written\"}")
+            .exchange()
+            .expectStatus()
+            .isCreated();
+
+        assertThat(count(db, "singer WHERE name = 'primary-written'")).isEqualTo(1);
+        assertThat(count(replica, "singer WHERE name = 'primary-written'")).isZero();
+    }
+
+    /**
+     * @return the id of the album inserted, along with its singer and song.
+     */
+    private static long insert(DatabaseClient database, String prefix) {
+        database.sql("INSERT INTO singer (name) VALUES ('" + prefix + "-singer')").then().block();
+        database.sql("INSERT INTO song (title, play_time) VALUES ('" + prefix + "-song', '3:00')").then().block();
+        database
+            .sql(
+                "INSERT INTO album (title, published_at, singer_id, songs_id) SELECT '" +
+                prefix +
+                "-album', CURRENT_TIMESTAMP, s.id, so.id FROM singer s, song so WHERE s.name = '" +
+                prefix +
+                "-singer' AND so.title = '" +
+                prefix +
+                "-song'"
+            )
+            .then()
+            .block();
+        return database
+            .sql("SELECT id FROM album WHERE title = '" + prefix + "-album'")
+            .map(row -> row.get("id", Long.class))
+            .one()
+            .block();
+    }
+
+    private static long count(DatabaseClient database, String from) {
+        return database.sql("SELECT COUNT(*) AS count FROM " + from).map(row -> row.get("count", Long.class)).one().block();
+    }
+}
@@ -0,0 +1,82 @@
+package dev.appkr.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class StreamingJackson2JsonEncoderTest {
+
+    private final StreamingJackson2JsonEncoder encoder = new StreamingJackson2JsonEncoder(new ObjectMapper());
+
+    @Test
+    void encodesFluxAsJsonArray() {
+        assertThat(encode(Flux.just("a", "b", "c"), MediaType.APPLICATION_JSON)).isEqualTo("[\"a\",\"b\",\"c\"]");
+    }
+
+    @Test
+    void encodesEmptyFluxAsEmptyArray() {
+        assertThat(encode(Flux.empty(), MediaType.APPLICATION_JSON)).isEqualTo("[]");
+    }
+
+    @Test
+    void encodesMonoAsSingleValue() {
+        assertThat(encode(Mono.just("a"), MediaType.APPLICATION_JSON)).isEqualTo("\"a\"");
+    }
+
+    @Test
+    void encodesNdjsonAsLines() {
+        assertThat(encode(Flux.just("a", "b"), MediaType.APPLICATION_NDJSON)).isEqualTo("\"a\"\n\"b\"\n");
+    }
+
+    @Test
+    void writesElementsBeforeTheSourceCompletes() {
+        List<String> firstBuffers = encoder
+            .encode(
+                Flux.concat(Flux.just("a"), Flux.never()),
+                DefaultDataBufferFactory.sharedInstance,
+                ResolvableType.forClass(String.class),
+                MediaType.APPLICATION_JSON,
+                Collections.emptyMap()
+            )
+            .take(2)
+            .map(StreamingJackson2JsonEncoderTest::release)
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+        assertThat(firstBuffers).containsExactly("[", "\"a\"");
+    }
+
+    private String encode(Publisher<String> source, MediaType mediaType) {
+        return encoder
+            .encode(
+                source,
+                DefaultDataBufferFactory.sharedInstance,
+                ResolvableType.forClass(String.class),
+                mediaType,
+                Collections.emptyMap()
+            )
+            .map(StreamingJackson2JsonEncoderTest::release)
+            .collect(Collectors.joining())
+            .block(Duration.ofSeconds(5));
+    }
+
+    private static String release(DataBuffer buffer) {
+        String value = buffer.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(buffer);
+        return value;
+    }
+}
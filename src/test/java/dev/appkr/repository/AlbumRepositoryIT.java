@@ -0,0 +1,296 @@
+package dev.appkr.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.data.relational.core.query.Criteria.where;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.appkr.IntegrationTest;
+import dev.appkr.config.ApplicationProperties;
+import dev.appkr.domain.Album;
+import dev.appkr.domain.Singer;
+import dev.appkr.domain.Song;
+import dev.appkr.repository.rowmapper.AlbumRowMapper;
+import dev.appkr.repository.rowmapper.RowDecoder;
+import dev.appkr.repository.rowmapper.SingerRowMapper;
+import dev.appkr.repository.rowmapper.SongRowMapper;
+import dev.appkr.service.EntityManager;
+import dev.appkr.service.Projection;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.R2dbcDialect;
+import org.springframework.data.r2dbc.query.UpdateMapper;
+import org.springframework.data.relational.core.sql.render.SqlRenderer;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+/**
+ * Integration tests for the {@link AlbumRepository} custom queries.
+ */
+@IntegrationTest
+class AlbumRepositoryIT {
+
+    private static final Logger log = LoggerFactory.getLogger(AlbumRepositoryIT.class);
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private SingerRepository singerRepository;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private R2dbcEntityTemplate r2dbcEntityTemplate;
+
+    @Autowired
+    private R2dbcDialect dialect;
+
+    @Autowired
+    private SqlRenderer sqlRenderer;
+
+    @Autowired
+    private UpdateMapper updateMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SingerRowMapper singerMapper;
+
+    @Autowired
+    private SongRowMapper songMapper;
+
+    @Autowired
+    private AlbumRowMapper albumMapper;
+
+    private QueryRecorder queryRecorder;
+
+    private AlbumRepositoryInternalImpl recordedRepository;
+
+    @BeforeEach
+    public void init() {
+        queryRecorder = new QueryRecorder();
+        DatabaseClient db = DatabaseClient
+            .builder()
+            .connectionFactory(queryRecorder.wrap(connectionFactory))
+            .bindMarkers(dialect.getBindMarkersFactory())
+            .build();
+        R2dbcEntityTemplate template = new R2dbcEntityTemplate(db, r2dbcEntityTemplate.getDataAccessStrategy());
+        EntityManager entityManager = new EntityManager(
+            sqlRenderer,
+            updateMapper,
+            template,
+            objectMapper,
+            applicationProperties,
+            meterRegistry
+        );
+        recordedRepository = new AlbumRepositoryInternalImpl(template, entityManager, singerMapper, songMapper, albumMapper);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        albumRepository.deleteAll().block();
+        singerRepository.deleteAll().block();
+    }
+
+    @Test
+    void findByIdUsesASingleStatementText() {
+        Singer singer = singerRepository.save(new Singer().name("singer")).block();
+        List<Album> albums = Flux
+            .range(0, 50)
+            .concatMap(i -> albumRepository.save(new Album().title("album-" + i).publishedAt(Instant.now()).singer(singer)))
+            .collectList()
+            .block();
+
+        queryRecorder.reset();
+        List<Album> found = Flux
+            .fromIterable(albums)
+            .flatMap(album -> recordedRepository.findById(album.getId()))
+            .collectList()
+            .block();
+
+        assertThat(found).extracting(Album::getTitle).hasSize(50).doesNotHaveDuplicates();
+        assertThat(found).allSatisfy(album -> assertThat(album.getSinger().getName()).isEqualTo("singer"));
+        assertThat(queryRecorder.getQueries()).hasSize(50);
+        assertThat(new HashSet<>(queryRecorder.getQueries())).hasSize(1);
+    }
+
+    @Test
+    void findAllByFiltersBeforeSortingAndPaging() {
+        for (String title : new String[] { "a1", "b1", "a2", "a3", "b2" }) {
+            albumRepository.save(new Album().title(title).publishedAt(Instant.now())).block();
+        }
+
+        List<Album> albums = recordedRepository
+            .findAllBy(PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "title")), where("title").like("a%"))
+            .collectList()
+            .block();
+
+        assertThat(albums).extracting(Album::getTitle).containsExactly("a1");
+    }
+
+    @Test
+    void findAllJoinsTheExpandedRelationsOnly() {
+        Singer singer = singerRepository.save(new Singer().name("singer")).block();
+        albumRepository.save(new Album().title("with singer").publishedAt(Instant.now()).singer(singer)).block();
+        albumRepository.save(new Album().title("alone").publishedAt(Instant.now())).block();
+
+        queryRecorder.reset();
+        List<Album> albums = recordedRepository.findAllBy(null, null, Projection.all()).collectList().block();
+        assertThat(queryRecorder.getQueries()).singleElement().asString().contains("JOIN singer", "JOIN song");
+        // Nothing is materialized when the joins found nothing
+        assertThat(albums)
+            .extracting(Album::getTitle, album -> album.getSinger() != null ? album.getSinger().getName() : null)
+            .containsExactlyInAnyOrder(tuple("with singer", "singer"), tuple("alone", null));
+        assertThat(albums).extracting(Album::getSongs).containsOnlyNulls();
+
+        queryRecorder.reset();
+        albums = recordedRepository.findAllBy(null, null, Projection.expand(List.of())).collectList().block();
+        assertThat(queryRecorder.getQueries()).singleElement().asString().doesNotContain("JOIN");
+        assertThat(albums).extracting(Album::getSingerId).containsExactlyInAnyOrder(singer.getId(), null);
+        assertThat(albums).extracting(Album::getSinger).containsOnlyNulls();
+
+        queryRecorder.reset();
+        Album album = recordedRepository.findById(albums.get(0).getId(), Projection.expand(List.of("singer"))).block();
+        assertThat(queryRecorder.getQueries()).singleElement().asString().contains("JOIN singer").doesNotContain("JOIN song");
+        assertThat(album.getSongs()).isNull();
+    }
+
+    @Test
+    void findAllSelectsTheRequestedFieldsOnly() {
+        albumRepository.save(new Album().title("sparse").publishedAt(Instant.now())).block();
+
+        queryRecorder.reset();
+        List<Album> albums = recordedRepository.findAllBy(null, null, Projection.of(List.of("id", "title"), null)).collectList().block();
+        assertThat(queryRecorder.getQueries())
+            .singleElement()
+            .asString()
+            .contains("e.title AS e_title")
+            .doesNotContain("published_at", "singer_id", "JOIN");
+        assertThat(albums).extracting(Album::getTitle, Album::getPublishedAt).containsExactly(tuple("sparse", null));
+    }
+
+    @Test
+    void decodesTheResultSetsReadAtTheSameTime() {
+        for (int i = 0; i < 5; i++) {
+            singerRepository.save(new Singer().name("singer-" + i)).block();
+        }
+        RowDecoder<Singer> decoder = singerMapper.decoder("e");
+        DatabaseClient db = r2dbcEntityTemplate.getDatabaseClient();
+        Flux<Singer> byName = db
+            .sql("SELECT e.name AS e_name, e.id AS e_id FROM singer e WHERE e.name LIKE 'singer-%' ORDER BY e.id")
+            .map(decoder)
+            .all();
+        Flux<Singer> byId = db
+            .sql("SELECT e.id AS e_id, e.name AS e_name FROM singer e WHERE e.name LIKE 'singer-%' ORDER BY e.id")
+            .map(decoder)
+            .all();
+
+        // The rows of both result sets, one after the other
+        List<Singer> singers = Flux.zip(byName, byId).flatMap(pair -> Flux.just(pair.getT1(), pair.getT2())).collectList().block();
+
+        assertThat(singers).hasSize(10);
+        for (int i = 0; i < 10; i += 2) {
+            assertThat(singers.get(i)).usingRecursiveComparison().isEqualTo(singers.get(i + 1));
+            assertThat(singers.get(i).getName()).isEqualTo("singer-" + i / 2);
+        }
+    }
+
+    @Test
+    void decodesLikeTheRowMappers() {
+        Singer singer = singerRepository.save(new Singer().name("singer")).block();
+        for (int i = 0; i < 3; i++) {
+            albumRepository.save(new Album().title("album-" + i).publishedAt(Instant.now()).singer(i == 0 ? null : singer)).block();
+        }
+        queryRecorder.reset();
+        recordedRepository.findAll().blockLast();
+        String sql = queryRecorder.getQueries().get(0);
+
+        RowDecoder<Album> albumDecoder = albumMapper.decoder("e");
+        RowDecoder<Singer> singerDecoder = singerMapper.decoder("singer");
+        List<Album> decoded = r2dbcEntityTemplate
+            .getDatabaseClient()
+            .sql(sql)
+            .map(
+                (row, metadata) -> {
+                    Album album = albumDecoder.apply(row, metadata);
+                    assertThat(album).usingRecursiveComparison().isEqualTo(albumMapper.apply(row, "e"));
+                    assertThat(singerDecoder.apply(row, metadata))
+                        .usingRecursiveComparison()
+                        .isEqualTo(singerMapper.apply(row, "singer"));
+                    return album;
+                }
+            )
+            .all()
+            .collectList()
+            .block();
+
+        assertThat(decoded).extracting(Album::getTitle).containsExactlyInAnyOrder("album-0", "album-1", "album-2");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void rowDecoderBenchmark() {
+        Singer singer = singerRepository.save(new Singer().name("singer")).block();
+        for (int i = 0; i < 10; i++) {
+            albumRepository.save(new Album().title("album-" + i).publishedAt(Instant.now()).singer(singer)).block();
+        }
+        queryRecorder.reset();
+        recordedRepository.findAll().blockLast();
+        String sql = queryRecorder.getQueries().get(0);
+
+        RowDecoder<Album> albumDecoder = albumMapper.decoder("e");
+        RowDecoder<Singer> singerDecoder = singerMapper.decoder("singer");
+        RowDecoder<Song> songDecoder = songMapper.decoder("songs");
+        int iterations = 10_000;
+        List<long[]> timings = r2dbcEntityTemplate
+            .getDatabaseClient()
+            .sql(sql)
+            .map(
+                (row, metadata) -> {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < iterations; i++) {
+                        albumMapper.apply(row, "e").singer(singerMapper.apply(row, "singer")).songs(songMapper.apply(row, "songs"));
+                    }
+                    long mapperNanos = System.nanoTime() - start;
+                    start = System.nanoTime();
+                    for (int i = 0; i < iterations; i++) {
+                        albumDecoder
+                            .apply(row, metadata)
+                            .singer(singerDecoder.apply(row, metadata))
+                            .songs(songDecoder.apply(row, metadata));
+                    }
+                    return new long[] { mapperNanos, System.nanoTime() - start };
+                }
+            )
+            .all()
+            .collectList()
+            .block();
+
+        assertThat(timings).hasSize(10);
+        // The first rows warm the JIT up
+        long[] last = timings.get(timings.size() - 1);
+        log.info("{} decodes of a row: row mapper {} ns, row decoder {} ns", iterations, last[0] / iterations, last[1] / iterations);
+    }
+}
@@ -0,0 +1,468 @@
+package dev.appkr.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.appkr.IntegrationTest;
+import dev.appkr.config.ApplicationProperties;
+import dev.appkr.repository.QueryRecorder.RecordedStatement;
+import dev.appkr.repository.rowmapper.AlbumRowMapper;
+import dev.appkr.repository.rowmapper.SingerRowMapper;
+import dev.appkr.repository.rowmapper.SongRowMapper;
+import dev.appkr.service.CacheInvalidation;
+import dev.appkr.service.DatabaseCacheInvalidationTransport;
+import dev.appkr.service.EntityManager;
+import dev.appkr.service.JobLease;
+import dev.appkr.service.MailOutboxDispatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.proxy.core.Binding;
+import io.r2dbc.proxy.core.BoundValue;
+import io.r2dbc.spi.ConnectionFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.function.Executable;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.R2dbcDialect;
+import org.springframework.data.r2dbc.query.UpdateMapper;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.data.relational.core.sql.render.SqlRenderer;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+
+/**
+ * Query plan regression tests of the repositories: their queries are run against a seeded dataset, the statements they
+ * execute are recorded with the values bound to them, then explained, and fail on a full scan, or a sort which doesn't
+ * come from an index, of a table of {@link #THRESHOLD} rows or more.
+ * <p>
+ * With the {@code testcontainers} profile, the plans are read from the {@code EXPLAIN FORMAT=JSON} of MySQL; otherwise
+ * from the {@code EXPLAIN} of H2, which tells the index a table is read with, and whether the order comes from it.
+ */
+@IntegrationTest
+class QueryPlanIT {
+
+    private static final int THRESHOLD = 100;
+
+    private static final int SEED_SIZE = 500;
+
+    private static final Pattern H2_TABLE_SCAN = Pattern.compile("/\\* PUBLIC\\.(\\w+)\\.tableScan");
+
+    private static final Pattern H2_SCAN_COUNT = Pattern.compile("/\\* scanCount: (\\d+) \\*/");
+
+    @Autowired
+    private DatabaseClient db;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private R2dbcDialect dialect;
+
+    @Autowired
+    private R2dbcEntityTemplate r2dbcEntityTemplate;
+
+    @Autowired
+    private R2dbcConverter r2dbcConverter;
+
+    @Autowired
+    private SqlRenderer sqlRenderer;
+
+    @Autowired
+    private UpdateMapper updateMapper;
+
+    @Autowired
+    private ObjectMapper jsonMapper;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private SingerRowMapper singerMapper;
+
+    @Autowired
+    private SongRowMapper songMapper;
+
+    @Autowired
+    private AlbumRowMapper albumMapper;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private QueryRecorder queryRecorder;
+
+    private ConnectionFactory recordedConnectionFactory;
+
+    private DatabaseClient recordedDb;
+
+    private EntityManager entityManager;
+
+    private UserRepository userRepository;
+
+    private AlbumRepository albumRepository;
+
+    private SingerRepository singerRepository;
+
+    private SongRepository songRepository;
+
+    private MailOutboxDispatcher mailOutboxDispatcher;
+
+    private JobLease jobLease;
+
+    @BeforeEach
+    public void init() {
+        queryRecorder = new QueryRecorder();
+        recordedConnectionFactory = queryRecorder.wrap(connectionFactory);
+        recordedDb =
+            DatabaseClient.builder().connectionFactory(recordedConnectionFactory).bindMarkers(dialect.getBindMarkersFactory()).build();
+        R2dbcEntityTemplate template = new R2dbcEntityTemplate(recordedDb, r2dbcEntityTemplate.getDataAccessStrategy());
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        entityManager = new EntityManager(sqlRenderer, updateMapper, template, jsonMapper, applicationProperties, meterRegistry);
+        R2dbcRepositoryFactory repositoryFactory = new R2dbcRepositoryFactory(template);
+        userRepository =
+            repositoryFactory.getRepository(UserRepository.class, new UserRepositoryInternalImpl(recordedDb, template, r2dbcConverter));
+        albumRepository =
+            repositoryFactory.getRepository(
+                AlbumRepository.class,
+                new AlbumRepositoryInternalImpl(template, entityManager, singerMapper, songMapper, albumMapper)
+            );
+        singerRepository =
+            repositoryFactory.getRepository(
+                SingerRepository.class,
+                new SingerRepositoryInternalImpl(template, entityManager, singerMapper)
+            );
+        songRepository =
+            repositoryFactory.getRepository(SongRepository.class, new SongRepositoryInternalImpl(template, entityManager, songMapper));
+        JavaMailSender javaMailSender = mock(JavaMailSender.class);
+        when(javaMailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        mailOutboxDispatcher =
+            new MailOutboxDispatcher(recordedDb, javaMailSender, "audit@localhost", new ApplicationProperties.MailOutbox(), meterRegistry);
+        jobLease = new JobLease(recordedDb, "audit");
+    }
+
+    @BeforeEach
+    public void seed() {
+        cleanUp();
+        insert(
+            "INSERT INTO jhi_user (login, password_hash, email, activated, lang_key, activation_key, reset_key, created_by, created_date)",
+            // A quarter of the users waiting for their activation
+            i ->
+                String.format(
+                    "('audit-%d', '%s', 'audit-%d@localhost', %s, 'en', %s, 'audit-rk-%d', 'system', '2020-01-%02d 00:00:00')",
+                    i,
+                    "x".repeat(60),
+                    i,
+                    i % 4 == 0 ? "FALSE" : "TRUE",
+                    i % 4 == 0 ? "'audit-ak-" + i + "'" : "NULL",
+                    i,
+                    i % 28 + 1
+                )
+        );
+        db
+            .sql(
+                "INSERT INTO jhi_user_authority (user_id, authority_name) SELECT id, 'ROLE_USER' FROM jhi_user WHERE login LIKE 'audit-%'"
+            )
+            .then()
+            .block();
+        insert("INSERT INTO singer (name)", i -> String.format("('audit-%d')", i));
+        insert("INSERT INTO song (title, play_time)", i -> String.format("('audit-%d', '3:00')", i));
+        db
+            .sql(
+                "INSERT INTO album (title, published_at, singer_id, songs_id) " +
+                "SELECT s.name, '2020-01-01 00:00:00', CASE WHEN MOD(s.id, 10) = 0 THEN NULL ELSE s.id END, so.id " +
+                "FROM singer s JOIN song so ON so.title = s.name WHERE s.name LIKE 'audit-%'"
+            )
+            .then()
+            .block();
+        insert(
+            "INSERT INTO mail_outbox (recipient, subject, content, multipart, html, attempts, next_attempt_at, created_at)",
+            // A fifth of the emails given up on
+            i ->
+                String.format(
+                    "('audit-%d@localhost', 'subject', 'content', FALSE, FALSE, %d, '2020-01-01 00:00:00', '2020-01-01 00:00:00')",
+                    i,
+                    i % 5 == 0 ? 10 : 0
+                )
+        );
+        insert(
+            "INSERT INTO cache_invalidation (node_id, cache_name, cache_key, created_at)",
+            i -> String.format("('audit', 'audit', 'key-%d', '2020-01-01 00:00:00')", i)
+        );
+        if (isMySql()) {
+            db.sql("ANALYZE TABLE jhi_user, jhi_user_authority, singer, song, album, mail_outbox, cache_invalidation").then().block();
+        } else {
+            db.sql("ANALYZE").then().block();
+        }
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        db.sql("DELETE FROM album WHERE title LIKE 'audit-%'").then().block();
+        db.sql("DELETE FROM singer WHERE name LIKE 'audit-%'").then().block();
+        db.sql("DELETE FROM song WHERE title LIKE 'audit-%'").then().block();
+        db
+            .sql("DELETE FROM jhi_user_authority WHERE user_id IN (SELECT id FROM jhi_user WHERE login LIKE 'audit-%')")
+            .then()
+            .block();
+        db.sql("DELETE FROM jhi_user WHERE login LIKE 'audit-%'").then().block();
+        db.sql("DELETE FROM mail_outbox WHERE recipient LIKE 'audit-%'").then().block();
+        db.sql("DELETE FROM cache_invalidation WHERE node_id LIKE 'audit%'").then().block();
+    }
+
+    @TestFactory
+    Stream<DynamicTest> theRepositoryQueriesUseIndexes() {
+        LocalDateTime createdBefore = LocalDateTime.of(2020, 1, 3, 0, 0);
+        PageRequest page = PageRequest.of(0, 20, Sort.by("id"));
+        return Stream
+            .of(
+                query("UserRepository.findOneByLogin", () -> userRepository.findOneByLogin("audit-1")),
+                query("UserRepository.findOneByEmailIgnoreCase", () -> userRepository.findOneByEmailIgnoreCase("AUDIT-1@localhost")),
+                query("UserRepository.findOneByActivationKey", () -> userRepository.findOneByActivationKey("audit-ak-4")),
+                query("UserRepository.findOneByResetKey", () -> userRepository.findOneByResetKey("audit-rk-1")),
+                query("UserRepository.findOneWithAuthoritiesByLogin", () -> userRepository.findOneWithAuthoritiesByLogin("audit-1")),
+                query("UserRepository.findAllByIdNotNull", () -> userRepository.findAllByIdNotNull(page)),
+                // H2 reads the activated users with the index of the purge, then sorts them; MySQL reads the primary key in order
+                query(
+                    "UserRepository.findAllByIdNotNullAndActivatedIsTrue",
+                    () -> userRepository.findAllByIdNotNullAndActivatedIsTrue(page)
+                )
+                    .sortedByH2(),
+                query(
+                    "UserRepository.findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore",
+                    () -> userRepository.findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(createdBefore)
+                ),
+                query("UserRepository.findAllWithAuthorities", () -> userRepository.findAllWithAuthorities(page)),
+                query(
+                    "UserRepository.deleteAuthoritiesOfNotActivatedUsers",
+                    () -> userRepository.deleteAuthoritiesOfNotActivatedUsers(createdBefore, 500)
+                ),
+                query("UserRepository.deleteNotActivatedUsers", () -> userRepository.deleteNotActivatedUsers(createdBefore, 500)),
+                query("AlbumRepository.findAllBy", () -> albumRepository.findAllBy(page)),
+                query(
+                    "AlbumRepository.findAllAfter",
+                    () ->
+                        albumRepository
+                            .findAllBy(page)
+                            .last()
+                            .flatMapMany(album -> albumRepository.findAllAfter(entityManager.createCursor(album, page.getSort()), page))
+                ),
+                query("AlbumRepository.findBySinger", () -> albumRepository.findBySinger(1L)),
+                query("AlbumRepository.findAllWhereSingerIsNull", () -> albumRepository.findAllWhereSingerIsNull()),
+                query("AlbumRepository.findBySongs", () -> albumRepository.findBySongs(1L)),
+                query("SingerRepository.findAllBy", () -> singerRepository.findAllBy(page)),
+                query("SongRepository.findAllBy", () -> songRepository.findAllBy(page)),
+                query("MailOutboxDispatcher.dispatch", () -> mailOutboxDispatcher.dispatch()),
+                query("JobLease.acquire", () -> jobLease.acquire("audit", Duration.ofMinutes(1))),
+                new RepositoryQuery("DatabaseCacheInvalidationTransport.receive", this::receiveAnInvalidation)
+            )
+            .map(query -> DynamicTest.dynamicTest(query.name, () -> assertThat(findings(query)).isEmpty()));
+    }
+
+    /**
+     * A query run in a transaction which is rolled back, so that the seeded dataset is the same for every query.
+     */
+    private RepositoryQuery query(String name, Supplier<Publisher<?>> query) {
+        TransactionalOperator rollingBack = TransactionalOperator.create(new R2dbcTransactionManager(recordedConnectionFactory));
+        return new RepositoryQuery(
+            name,
+            () ->
+                rollingBack
+                    .execute(
+                        transaction -> {
+                            transaction.setRollbackOnly();
+                            return query.get();
+                        }
+                    )
+                    .then()
+                    .block()
+        );
+    }
+
+    /**
+     * Receive an invalidation sent by another node, which the first poll after the start reads, and then purges.
+     */
+    private void receiveAnInvalidation() {
+        DatabaseCacheInvalidationTransport receiver = new DatabaseCacheInvalidationTransport(
+            recordedDb,
+            "audit",
+            Duration.ofMillis(10),
+            50,
+            Duration.ofSeconds(1),
+            Duration.ofDays(3650)
+        );
+        DatabaseCacheInvalidationTransport sender = new DatabaseCacheInvalidationTransport(
+            db,
+            "audit-sender",
+            Duration.ofMillis(10),
+            50,
+            Duration.ofSeconds(1),
+            Duration.ofDays(3650)
+        );
+        Disposable receiving = receiver.receive().subscribe();
+        try {
+            await(() -> !queryRecorder.getQueries().isEmpty());
+            sender.send(new CacheInvalidation("audit", "key", Duration.ZERO)).block();
+            await(() -> queryRecorder.getQueries().stream().anyMatch(query -> query.startsWith("DELETE")));
+        } finally {
+            receiving.dispose();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    /**
+     * @return the full scans and sorts of the tables of {@link #THRESHOLD} rows or more in the plans of the statements
+     * the query ran.
+     */
+    private List<String> findings(RepositoryQuery query) throws Throwable {
+        queryRecorder.reset();
+        query.run.execute();
+        assertThat(queryRecorder.getStatements()).isNotEmpty();
+        List<String> findings = new ArrayList<>();
+        for (RecordedStatement statement : queryRecorder.getStatements()) {
+            findings.addAll(findings(statement, query.sortedByH2));
+        }
+        return findings;
+    }
+
+    private List<String> findings(RecordedStatement statement, boolean sortedByH2) throws Exception {
+        List<String> findings = new ArrayList<>();
+        if (isMySql()) {
+            collectMySqlFindings(objectMapper.readTree(explain("EXPLAIN FORMAT=JSON ", statement)), findings);
+            return findings;
+        }
+        // Only the plan of a query which was run tells the rows it read
+        String plan = explain(statement.getSql().startsWith("SELECT") ? "EXPLAIN ANALYZE " : "EXPLAIN ", statement);
+        Matcher tableScan = H2_TABLE_SCAN.matcher(plan);
+        // An aggregate such as MAX(id) is a direct lookup of the first or last entry of an index, whatever the plan says
+        while (!plan.contains("/* direct lookup */") && tableScan.find()) {
+            String table = tableScan.group(1).toLowerCase(Locale.ROOT);
+            if (count(table) >= THRESHOLD) {
+                findings.add("full scan of " + table + ": " + plan);
+            }
+        }
+        if (!sortedByH2 && plan.contains("ORDER BY") && !plan.contains("/* index sorted */") && maxScanCount(plan) >= THRESHOLD) {
+            findings.add("sort: " + plan);
+        }
+        return findings;
+    }
+
+    private void collectMySqlFindings(JsonNode node, List<String> findings) {
+        if (
+            node.has("table_name") &&
+            "ALL".equals(node.path("access_type").asText()) &&
+            node.path("rows_examined_per_scan").asLong() >= THRESHOLD
+        ) {
+            findings.add("full scan of " + node.get("table_name").asText() + ": " + node);
+        }
+        if (node.path("using_filesort").asBoolean() && maxRowsExamined(node) >= THRESHOLD) {
+            findings.add("filesort: " + node);
+        }
+        node.forEach(child -> collectMySqlFindings(child, findings));
+    }
+
+    private static long maxRowsExamined(JsonNode node) {
+        long rows = node.path("rows_examined_per_scan").asLong();
+        for (JsonNode child : node) {
+            rows = Math.max(rows, maxRowsExamined(child));
+        }
+        return rows;
+    }
+
+    private static long maxScanCount(String plan) {
+        long rows = 0;
+        Matcher scanCount = H2_SCAN_COUNT.matcher(plan);
+        while (scanCount.find()) {
+            rows = Math.max(rows, Long.parseLong(scanCount.group(1)));
+        }
+        return rows;
+    }
+
+    /**
+     * Explain a statement with the values which were bound to it.
+     */
+    private String explain(String explain, RecordedStatement statement) {
+        GenericExecuteSpec spec = db.sql(explain + statement.getSql());
+        for (Binding binding : statement.getBindings().getIndexBindings()) {
+            int index = (Integer) binding.getKey();
+            BoundValue value = binding.getBoundValue();
+            spec = value.isNull() ? spec.bindNull(index, value.getNullType()) : spec.bind(index, value.getValue());
+        }
+        for (Binding binding : statement.getBindings().getNamedBindings()) {
+            String name = (String) binding.getKey();
+            BoundValue value = binding.getBoundValue();
+            spec = value.isNull() ? spec.bindNull(name, value.getNullType()) : spec.bind(name, value.getValue());
+        }
+        return spec.map(row -> row.get(0, String.class)).one().block();
+    }
+
+    private boolean isMySql() {
+        return connectionFactory.getMetadata().getName().toLowerCase(Locale.ROOT).contains("mysql");
+    }
+
+    private long count(String table) {
+        return db.sql("SELECT COUNT(*) AS count FROM " + table).map(row -> row.get("count", Long.class)).one().block();
+    }
+
+    private void insert(String insert, IntFunction<String> values) {
+        String rows = IntStream.range(0, SEED_SIZE).mapToObj(values).collect(Collectors.joining(", "));
+        db.sql(insert + " VALUES " + rows).then().block();
+    }
+
+    private static class RepositoryQuery {
+
+        private final String name;
+
+        private final Executable run;
+
+        private boolean sortedByH2;
+
+        private RepositoryQuery(String name, Executable run) {
+            this.name = name;
+            this.run = run;
+        }
+
+        /**
+         * Don't fail on the sorts of H2, which picks the index of a table by the conditions alone.
+         */
+        private RepositoryQuery sortedByH2() {
+            this.sortedByH2 = true;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package dev.appkr.repository;
+
+import io.r2dbc.proxy.ProxyConnectionFactory;
+import io.r2dbc.proxy.core.Bindings;
+import io.r2dbc.proxy.core.QueryExecutionInfo;
+import io.r2dbc.proxy.core.QueryInfo;
+import io.r2dbc.proxy.listener.ProxyExecutionListener;
+import io.r2dbc.spi.ConnectionFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the statements executed, with the values bound to them, and the rows read, through a proxied {@link ConnectionFactory}.
+ */
+public class QueryRecorder implements ProxyExecutionListener {
+
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+
+    private final List<RecordedStatement> statements = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong rowCount = new AtomicLong();
+
+    public ConnectionFactory wrap(ConnectionFactory connectionFactory) {
+        return ProxyConnectionFactory.builder(connectionFactory).listener(this).build();
+    }
+
+    @Override
+    public void afterQuery(QueryExecutionInfo execInfo) {
+        execInfo.getQueries().stream().map(QueryInfo::getQuery).forEach(queries::add);
+        execInfo.getQueries().stream().map(RecordedStatement::new).forEach(statements::add);
+    }
+
+    @Override
+    public void eachQueryResult(QueryExecutionInfo execInfo) {
+        rowCount.incrementAndGet();
+    }
+
+    public List<String> getQueries() {
+        return queries;
+    }
+
+    public List<RecordedStatement> getStatements() {
+        return statements;
+    }
+
+    public long getRowCount() {
+        return rowCount.get();
+    }
+
+    public void reset() {
+        queries.clear();
+        statements.clear();
+        rowCount.set(0);
+    }
+
+    /**
+     * A statement executed, with the values bound to its first execution.
+     */
+    public static class RecordedStatement {
+
+        private final String sql;
+
+        private final Bindings bindings;
+
+        private RecordedStatement(QueryInfo queryInfo) {
+            this.sql = queryInfo.getQuery();
+            this.bindings = queryInfo.getBindingsList().isEmpty() ? new Bindings() : queryInfo.getBindingsList().get(0);
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public Bindings getBindings() {
+            return bindings;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package dev.appkr.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import dev.appkr.IntegrationTest;
+import dev.appkr.config.Constants;
+import dev.appkr.domain.Authority;
+import dev.appkr.domain.User;
+import dev.appkr.security.AuthoritiesConstants;
+import io.r2dbc.spi.ConnectionFactory;
+import java.util.List;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.R2dbcDialect;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+/**
+ * Integration tests for the {@link UserRepository} custom queries.
+ */
+@IntegrationTest
+class UserRepositoryIT {
+
+    private static final int PAGE_SIZE = 5;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private R2dbcEntityTemplate r2dbcEntityTemplate;
+
+    @Autowired
+    private R2dbcConverter r2dbcConverter;
+
+    @Autowired
+    private R2dbcDialect dialect;
+
+    private QueryRecorder queryRecorder;
+
+    private UserRepositoryInternalImpl recordedRepository;
+
+    @BeforeEach
+    public void init() {
+        userRepository.deleteAllUserAuthorities().block();
+        userRepository.deleteAll().block();
+
+        queryRecorder = new QueryRecorder();
+        DatabaseClient db = DatabaseClient
+            .builder()
+            .connectionFactory(queryRecorder.wrap(connectionFactory))
+            .bindMarkers(dialect.getBindMarkersFactory())
+            .build();
+        recordedRepository =
+            new UserRepositoryInternalImpl(db, new R2dbcEntityTemplate(db, r2dbcEntityTemplate.getDataAccessStrategy()), r2dbcConverter);
+    }
+
+    @Test
+    void findAllWithAuthoritiesCostDoesNotGrowWithUserCount() {
+        createUsers(0, 20);
+        long rowsReadWithFewUsers = readSecondPage();
+
+        createUsers(20, 300);
+        long rowsReadWithManyUsers = readSecondPage();
+
+        assertThat(rowsReadWithFewUsers).isEqualTo(2 * PAGE_SIZE);
+        assertThat(rowsReadWithManyUsers).isEqualTo(rowsReadWithFewUsers);
+    }
+
+    @Test
+    void findAllWithAuthoritiesRejectsUnknownSortProperty() {
+        PageRequest byTransientProperty = PageRequest.of(0, PAGE_SIZE, Sort.by("authorities"));
+        assertThatThrownBy(() -> recordedRepository.findAllWithAuthorities(byTransientProperty).blockLast())
+            .isInstanceOf(IllegalArgumentException.class);
+        PageRequest byUnknownProperty = PageRequest.of(0, PAGE_SIZE, Sort.by("unknown"));
+        assertThatThrownBy(() -> recordedRepository.findAllWithAuthorities(byUnknownProperty).blockLast())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(queryRecorder.getQueries()).isEmpty();
+    }
+
+    private long readSecondPage() {
+        queryRecorder.reset();
+        List<User> users = recordedRepository
+            .findAllWithAuthorities(PageRequest.of(1, PAGE_SIZE, Sort.by(Sort.Direction.DESC, "login")))
+            .collectList()
+            .block();
+
+        assertThat(users).hasSize(PAGE_SIZE);
+        assertThat(users).extracting(User::getLogin).isSortedAccordingTo((a, b) -> b.compareTo(a));
+        assertThat(users)
+            .allSatisfy(
+                user -> assertThat(user.getAuthorities()).extracting(Authority::getName).containsExactly(AuthoritiesConstants.USER)
+            );
+        // one query for the page of users, and one for their authorities
+        assertThat(queryRecorder.getQueries()).hasSize(2);
+        return queryRecorder.getRowCount();
+    }
+
+    private void createUsers(int from, int to) {
+        Flux
+            .range(from, to - from)
+            .concatMap(
+                i -> {
+                    User user = new User();
+                    user.setLogin(String.format("user-%05d", i));
+                    user.setPassword(RandomStringUtils.random(60));
+                    user.setActivated(true);
+                    user.setEmail(String.format("user-%05d@localhost", i));
+                    user.setCreatedBy(Constants.SYSTEM);
+                    return userRepository
+                        .save(user)
+                        .flatMap(saved -> userRepository.saveUserAuthority(saved.getId(), AuthoritiesConstants.USER));
+                }
+            )
+            .blockLast();
+    }
+}
@@ -7,6 +7,8 @@ import dev.appkr.IntegrationTest;
 import dev.appkr.config.Constants;
 import dev.appkr.domain.User;
 import dev.appkr.repository.UserRepository;
+import dev.appkr.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.Locale;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,6 +36,12 @@ class DomainUserDetailsServiceIT {
     @Autowired
     private ReactiveUserDetailsService domainUserDetailsService;
 
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @BeforeEach
     public void init() {
         userRepository.deleteAllUserAuthorities().block();
@@ -113,4 +121,23 @@ class DomainUserDetailsServiceIT {
         assertThatExceptionOfType(UserNotActivatedException.class)
             .isThrownBy(() -> domainUserDetailsService.findByUsername(USER_THREE_LOGIN).block());
     }
+
+    @Test
+    void assertThatUserIsCachedUntilTheUserServiceChangesIt() {
+        UserDetails cached = domainUserDetailsService.findByUsername(USER_ONE_LOGIN).block();
+
+        // A change behind the user service isn't seen until the cache expires
+        User user = userRepository.findOneByLogin(USER_ONE_LOGIN).block();
+        user.setPassword(RandomStringUtils.random(60));
+        userRepository.save(user).block();
+        assertThat(domainUserDetailsService.findByUsername(USER_ONE_LOGIN.toUpperCase(Locale.ENGLISH)).block().getPassword())
+            .isEqualTo(cached.getPassword());
+
+        // Saving it through the user service evicts it, by login and by email
+        userService.saveUser(user).block();
+        assertThat(domainUserDetailsService.findByUsername(USER_ONE_LOGIN).block().getPassword()).isEqualTo(user.getPassword());
+        assertThat(domainUserDetailsService.findByUsername(USER_ONE_EMAIL).block().getPassword()).isEqualTo(user.getPassword());
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "user-details", "result", "hit").functionCounter().count())
+            .isPositive();
+    }
 }
@@ -0,0 +1,70 @@
+package dev.appkr.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+class PasswordHashingTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void rejectsTheHashingsBeyondTheQueue() throws InterruptedException {
+        Scheduler scheduler = PasswordHashing.newScheduler(1, 1, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Mono<String> running = hash(scheduler, started, release).cache();
+            running.subscribe();
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Mono<String> queued = hash(scheduler, new CountDownLatch(1), release).cache();
+            queued.subscribe();
+
+            assertThat(meterRegistry.get("executor.queued").tag("name", PasswordHashing.SCHEDULER_NAME).gauge().value()).isEqualTo(1);
+            assertThatThrownBy(() -> hash(scheduler, new CountDownLatch(1), release).block(Duration.ofSeconds(5)))
+                .isInstanceOf(RejectedExecutionException.class);
+            assertThat(meterRegistry.get("password.hashing.rejected").counter().count()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(running.block(Duration.ofSeconds(5))).isEqualTo("hashed");
+            assertThat(queued.block(Duration.ofSeconds(5))).isEqualTo("hashed");
+            Timer executions = meterRegistry.get("executor").tag("name", PasswordHashing.SCHEDULER_NAME).timer();
+            // Recorded on the hashing thread once the task has returned, which can be right after block() returned
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (executions.count() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(executions.count()).isEqualTo(2);
+        } finally {
+            release.countDown();
+            scheduler.dispose();
+        }
+    }
+
+    private Mono<String> hash(Scheduler scheduler, CountDownLatch started, CountDownLatch release) {
+        return Mono
+            .just("password")
+            .publishOn(scheduler)
+            .map(
+                password -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "hashed";
+                }
+            );
+    }
+}
@@ -2,12 +2,17 @@ package dev.appkr.security.jwt;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import dev.appkr.config.ApplicationProperties;
 import dev.appkr.security.AuthoritiesConstants;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.Collections;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -20,6 +25,8 @@ import tech.jhipster.config.JHipsterProperties;
 
 class JWTFilterTest {
 
+    private static final Logger log = LoggerFactory.getLogger(JWTFilterTest.class);
+
     private TokenProvider tokenProvider;
 
     private JWTFilter jwtFilter;
@@ -29,7 +36,7 @@ class JWTFilterTest {
         JHipsterProperties jHipsterProperties = new JHipsterProperties();
         String base64Secret = "fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8";
         jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(base64Secret);
-        tokenProvider = new TokenProvider(jHipsterProperties);
+        tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), new SimpleMeterRegistry());
         ReflectionTestUtils.setField(tokenProvider, "key", Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret)));
 
         ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", 60000);
@@ -147,4 +154,35 @@ class JWTFilterTest {
             )
             .block();
     }
+
+    @Test
+    @Tag("benchmark")
+    void filterBenchmark() {
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+            "test-user",
+            "test-password",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))
+        );
+        String jwt = tokenProvider.createToken(authentication, false);
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+            MockServerHttpRequest.get("/api/test").header(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt)
+        );
+        int iterations = 10_000;
+        long[] last = null;
+        // A few rounds, the last one with a warm JIT
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                assertThat(tokenProvider.validateToken(jwt)).isTrue();
+                tokenProvider.getAuthentication(jwt);
+            }
+            long parsingNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                jwtFilter.filter(exchange, it -> Mono.empty()).block();
+            }
+            last = new long[] { parsingNanos, System.nanoTime() - start };
+        }
+        log.info("{} verifications of a token: parsed twice {} ns, filtered {} ns", iterations, last[0] / iterations, last[1] / iterations);
+    }
 }
@@ -2,11 +2,13 @@ package dev.appkr.security.jwt;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import dev.appkr.config.ApplicationProperties;
 import dev.appkr.security.AuthoritiesConstants;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.*;
@@ -25,13 +27,15 @@ class TokenProviderTest {
 
     private Key key;
     private TokenProvider tokenProvider;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     public void setup() {
         JHipsterProperties jHipsterProperties = new JHipsterProperties();
         String base64Secret = "fd54a45s65fds737b9aafcb3412e07ed99b267f33413274720ddbb7f6c5e64e9f14075f2d7ed041592f0b7657baf8";
         jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(base64Secret);
-        tokenProvider = new TokenProvider(jHipsterProperties);
+        meterRegistry = new SimpleMeterRegistry();
+        tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), meterRegistry);
         key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret));
 
         ReflectionTestUtils.setField(tokenProvider, "key", key);
@@ -83,13 +87,42 @@ class TokenProviderTest {
         assertThat(isTokenValid).isFalse();
     }
 
+    @Test
+    void testVerifiedAuthenticationIsCached() {
+        String token = tokenProvider.createToken(createAuthentication(), false);
+        String otherToken = tokenProvider.createToken(createAuthentication(), true);
+
+        Authentication authentication = tokenProvider.getVerifiedAuthentication(token).orElseThrow();
+
+        assertThat(authentication.getName()).isEqualTo("anonymous");
+        assertThat(authentication.getCredentials()).isEqualTo(token);
+        assertThat(tokenProvider.getVerifiedAuthentication(token)).containsSame(authentication);
+        assertThat(tokenProvider.getVerifiedAuthentication(otherToken).orElseThrow().getAuthorities())
+            .singleElement()
+            .isSameAs(authentication.getAuthorities().iterator().next());
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "verified-tokens").tag("result", "hit").functionCounter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "verified-tokens").tag("result", "miss").functionCounter().count())
+            .isEqualTo(2);
+    }
+
+    @Test
+    void testVerifiedAuthenticationIsEmptyWhenJWTisInvalid() {
+        ReflectionTestUtils.setField(tokenProvider, "tokenValidityInMilliseconds", -ONE_MINUTE);
+        String expiredToken = tokenProvider.createToken(createAuthentication(), false);
+
+        assertThat(tokenProvider.getVerifiedAuthentication(createTokenWithDifferentSignature())).isEmpty();
+        assertThat(tokenProvider.getVerifiedAuthentication(expiredToken)).isEmpty();
+        assertThat(tokenProvider.getVerifiedAuthentication("")).isEmpty();
+    }
+
     @Test
     void testKeyIsSetFromSecretWhenSecretIsNotEmpty() {
         final String secret = "NwskoUmKHZtzGRKJKVjsJF7BtQMMxNWi";
         JHipsterProperties jHipsterProperties = new JHipsterProperties();
         jHipsterProperties.getSecurity().getAuthentication().getJwt().setSecret(secret);
 
-        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties);
+        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), new SimpleMeterRegistry());
 
         Key key = (Key) ReflectionTestUtils.getField(tokenProvider, "key");
         assertThat(key).isNotNull().isEqualTo(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)));
@@ -101,7 +134,7 @@ class TokenProviderTest {
         JHipsterProperties jHipsterProperties = new JHipsterProperties();
         jHipsterProperties.getSecurity().getAuthentication().getJwt().setBase64Secret(base64Secret);
 
-        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties);
+        TokenProvider tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), new SimpleMeterRegistry());
 
         Key key = (Key) ReflectionTestUtils.getField(tokenProvider, "key");
         assertThat(key).isNotNull().isEqualTo(Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret)));
@@ -0,0 +1,107 @@
+package dev.appkr.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+class BatchLoaderTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<List<Long>> batches = new ArrayList<>();
+
+    @Test
+    void coalescesTheLookupsOfTheWindow() {
+        Scheduler scheduler = mock(Scheduler.class);
+        when(scheduler.schedule(any(), anyLong(), any())).thenReturn(Disposables.single());
+        BatchLoader<Long, String> loader = new BatchLoader<>(
+            "numbers",
+            this::find,
+            Long::valueOf,
+            Duration.ofMillis(50),
+            100,
+            meterRegistry,
+            scheduler
+        );
+
+        CompletableFuture<Map<Long, String>> loaded = Mono
+            .zip(loader.loadMany(List.of(1L, 2L, 2L)), loader.load(3L), loader.load(1L), loader.load(404L).defaultIfEmpty("none"))
+            .map(
+                all -> {
+                    assertThat(all.getT2()).isEqualTo("3");
+                    assertThat(all.getT3()).isEqualTo("1");
+                    assertThat(all.getT4()).isEqualTo("none");
+                    return all.getT1();
+                }
+            )
+            .toFuture();
+        assertThat(batches).isEmpty();
+        assertThat(loaded).isNotDone();
+
+        // One window for all the lookups, which ends when its task runs
+        ArgumentCaptor<Runnable> endOfWindow = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(endOfWindow.capture(), eq(Duration.ofMillis(50).toNanos()), eq(TimeUnit.NANOSECONDS));
+        endOfWindow.getValue().run();
+
+        assertThat(loaded.getNow(null)).containsOnly(Map.entry(1L, "1"), Map.entry(2L, "2"));
+        assertThat(batches).containsExactly(List.of(1L, 2L, 3L, 404L));
+        assertThat(meterRegistry.get("batch.loader.size").summary().totalAmount()).isEqualTo(4);
+        assertThat(meterRegistry.get("batch.loader.keys").counter().count()).isEqualTo(6);
+    }
+
+    @Test
+    void dispatchesFullBatchesRightAway() {
+        BatchLoader<Long, String> loader = loader(Duration.ofHours(1), 2);
+
+        Map<Long, String> loaded = loader.loadMany(List.of(1L, 2L, 3L, 4L)).block(Duration.ofSeconds(5));
+
+        assertThat(loaded).hasSize(4);
+        assertThat(batches).containsExactly(List.of(1L, 2L), List.of(3L, 4L));
+    }
+
+    @Test
+    void failsTheWholeBatch() {
+        BatchLoader<Long, String> loader = new BatchLoader<>(
+            "broken",
+            ids -> Flux.error(new IllegalStateException("database is down")),
+            Long::valueOf,
+            Duration.ZERO,
+            100,
+            meterRegistry
+        );
+
+        assertThat(loader.load(1L).onErrorResume(e -> Mono.just(e.getMessage())).block(Duration.ofSeconds(5)))
+            .isEqualTo("database is down");
+    }
+
+    private BatchLoader<Long, String> loader(Duration window, int maxBatchSize) {
+        return new BatchLoader<>("numbers", this::find, Long::valueOf, window, maxBatchSize, meterRegistry);
+    }
+
+    private Flux<String> find(Collection<Long> ids) {
+        synchronized (batches) {
+            batches.add(new ArrayList<>(ids));
+        }
+        return Flux.fromIterable(ids).filter(id -> id != 404L).map(String::valueOf);
+    }
+}
@@ -0,0 +1,72 @@
+package dev.appkr.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.appkr.Application;
+import dev.appkr.IntegrationTest;
+import dev.appkr.domain.Singer;
+import dev.appkr.repository.SingerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Mono;
+
+/**
+ * Integration tests for the {@link CacheInvalidationBus}, with a second node of the application running against the
+ * same database.
+ */
+@IntegrationTest
+class CacheInvalidationBusIT {
+
+    private static ConfigurableApplicationContext otherNode;
+
+    @Autowired
+    private SingerService singerService;
+
+    @Autowired
+    private SingerRepository singerRepository;
+
+    @BeforeAll
+    static void startOtherNode() {
+        otherNode = new SpringApplicationBuilder(Application.class).properties("server.port=0", "spring.jmx.enabled=false").run();
+    }
+
+    @AfterAll
+    static void stopOtherNode() {
+        otherNode.close();
+    }
+
+    @AfterEach
+    void deleteSingers() {
+        singerRepository.deleteAll().block();
+    }
+
+    @Test
+    void evictionsConvergeOnTheOtherNode() {
+        Singer singer = singerRepository.save(new Singer().name("before")).block();
+        SingerService otherSingerService = otherNode.getBean(SingerService.class);
+
+        // Both nodes cache the singer
+        assertThat(singerService.findOne(singer.getId(), Projection.all()).block().getName()).isEqualTo("before");
+        assertThat(otherSingerService.findOne(singer.getId(), Projection.all()).block().getName()).isEqualTo("before");
+
+        // Updating it on this node evicts it on the other one, after a poll
+        singerService.save(new Singer().name("after").id(singer.getId())).block();
+        Singer converged = Mono
+            .defer(() -> otherSingerService.findOne(singer.getId(), Projection.all()))
+            .filter(cached -> "after".equals(cached.getName()))
+            .repeatWhenEmpty(repeats -> repeats.delayElements(Duration.ofMillis(50)))
+            .block(Duration.ofSeconds(10));
+        assertThat(converged.getName()).isEqualTo("after");
+
+        MeterRegistry otherMeterRegistry = otherNode.getBean(MeterRegistry.class);
+        assertThat(otherMeterRegistry.get("cache.invalidation.lag").tag("cache", "singer").timer().count()).isPositive();
+        assertThat(otherMeterRegistry.get("cache.invalidation.received").tag("cache", "album").counter().count()).isPositive();
+    }
+}
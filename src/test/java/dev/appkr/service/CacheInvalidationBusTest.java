@@ -0,0 +1,45 @@
+package dev.appkr.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class CacheInvalidationBusTest {
+
+    private final Sinks.Many<CacheInvalidation> received = Sinks.many().unicast().onBackpressureBuffer();
+
+    private final CacheInvalidationBus bus = new CacheInvalidationBus(
+        new CacheInvalidationTransport() {
+            @Override
+            public Mono<Void> send(CacheInvalidation invalidation) {
+                return Mono.empty();
+            }
+
+            @Override
+            public Flux<CacheInvalidation> receive() {
+                return received.asFlux();
+            }
+        },
+        new SimpleMeterRegistry()
+    );
+
+    @Test
+    void evictsTheWholeCacheOnAnInvalidationWhichCantBeApplied() {
+        List<Long> evicted = new CopyOnWriteArrayList<>();
+        bus.register("numbers", key -> evicted.add(key != null ? Long.valueOf(key) : null));
+        bus.start();
+
+        received.tryEmitNext(new CacheInvalidation("numbers", "malformed", null));
+        received.tryEmitNext(new CacheInvalidation("numbers", "1", null));
+
+        assertThat(evicted).containsExactly(null, 1L);
+        assertThat(bus.isRunning()).isTrue();
+        bus.stop();
+    }
+}
@@ -0,0 +1,46 @@
+package dev.appkr.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.r2dbc.h2.H2ConnectionFactory;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+class DatabaseCacheInvalidationTransportTest {
+
+    private final DatabaseClient db = DatabaseClient.create(H2ConnectionFactory.inMemory("invalidations"));
+
+    @Test
+    void startsReceivingOnceTheDatabaseIsReady() {
+        DatabaseCacheInvalidationTransport thisNode = transport("this-node");
+        DatabaseCacheInvalidationTransport otherNode = transport("other-node");
+
+        // The table doesn't exist yet, the first polls fail
+        Mono<Void> ready = Mono
+            .delay(Duration.ofMillis(200))
+            .then(
+                db
+                    .sql(
+                        "CREATE TABLE cache_invalidation (id BIGINT AUTO_INCREMENT PRIMARY KEY, node_id VARCHAR(64) NOT NULL, " +
+                        "cache_name VARCHAR(64) NOT NULL, cache_key VARCHAR(255), created_at TIMESTAMP NOT NULL)"
+                    )
+                    .then()
+            )
+            .then(Mono.delay(Duration.ofMillis(200)))
+            .then(otherNode.send(new CacheInvalidation("numbers", "1", null)));
+
+        CacheInvalidation invalidation = thisNode
+            .receive()
+            .mergeWith(ready.then(Mono.empty()))
+            .blockFirst(Duration.ofSeconds(10));
+
+        assertThat(invalidation.getCacheName()).isEqualTo("numbers");
+        assertThat(invalidation.getKey()).isEqualTo("1");
+    }
+
+    private DatabaseCacheInvalidationTransport transport(String nodeId) {
+        return new DatabaseCacheInvalidationTransport(db, nodeId, Duration.ofMillis(20), 100, Duration.ofSeconds(1), Duration.ofHours(1));
+    }
+}
@@ -0,0 +1,103 @@
+package dev.appkr.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.appkr.config.ReplicaRoutingConnectionFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.ContextView;
+
+class EntityCacheTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final EntityCache<Long, String> cache = new EntityCache<>(
+        "numbers",
+        Long::valueOf,
+        100,
+        Duration.ofMinutes(1),
+        new CacheInvalidationBus(null, meterRegistry),
+        meterRegistry
+    );
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void concurrentMissesShareOneLoad() {
+        Sinks.One<String> database = Sinks.one();
+        Flux<String> reads = Flux.merge(
+            cache.get(1L, id -> load(database.asMono())),
+            cache.get(1L, id -> load(database.asMono())),
+            cache.get(1L, id -> load(database.asMono()))
+        );
+
+        Mono<Void> loaded = Mono.delay(Duration.ofMillis(50)).doOnNext(tick -> database.tryEmitValue("one")).then();
+
+        assertThat(Flux.merge(reads, loaded.then(Mono.empty())).collectList().block(Duration.ofSeconds(5)))
+            .containsExactly("one", "one", "one");
+        assertThat(cache.get(1L, id -> load(Mono.just("other"))).block()).isEqualTo("one");
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "numbers", "result", "hit").functionCounter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void doesNotCacheMissingEntities() {
+        assertThat(cache.get(1L, id -> load(Mono.empty())).block()).isNull();
+        assertThat(cache.get(1L, id -> load(Mono.just("one"))).block()).isEqualTo("one");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void reloadsEvictedEntities() {
+        cache.get(1L, id -> load(Mono.just("one"))).block();
+        cache.get(2L, id -> load(Mono.just("two"))).block();
+
+        cache.evict(1L).block();
+        assertThat(cache.get(1L, id -> load(Mono.just("uno"))).block()).isEqualTo("uno");
+        assertThat(cache.get(2L, id -> load(Mono.just("dos"))).block()).isEqualTo("two");
+
+        cache.evictAll().block();
+        assertThat(cache.get(2L, id -> load(Mono.just("dos"))).block()).isEqualTo("dos");
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void loadsApartFromTheTransactionOfTheSubscriber() {
+        List<ContextView> contexts = new ArrayList<>();
+
+        cache
+            .get(
+                1L,
+                id ->
+                    Mono.deferContextual(
+                        context -> {
+                            contexts.add(context);
+                            return Mono.just("one");
+                        }
+                    )
+            )
+            .contextWrite(context -> ReplicaRoutingConnectionFactory.readOnly(context.put("transaction", "tx-1"), true))
+            .block();
+
+        assertThat(contexts).hasSize(1);
+        assertThat(contexts.get(0).hasKey("transaction")).isFalse();
+        assertThat(contexts.get(0).<Boolean>get(ReplicaRoutingConnectionFactory.READ_ONLY_KEY)).isTrue();
+    }
+
+    private Mono<String> load(Mono<String> value) {
+        return Mono.defer(
+            () -> {
+                loads.incrementAndGet();
+                return value;
+            }
+        );
+    }
+}
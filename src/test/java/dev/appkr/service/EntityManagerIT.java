@@ -0,0 +1,351 @@
+package dev.appkr.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.relational.core.query.Criteria.where;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.appkr.IntegrationTest;
+import dev.appkr.config.ApplicationProperties;
+import dev.appkr.domain.Album;
+import dev.appkr.domain.Singer;
+import dev.appkr.repository.QueryRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.R2dbcDialect;
+import org.springframework.data.r2dbc.query.UpdateMapper;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.sql.Column;
+import org.springframework.data.relational.core.sql.Select;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectWhere;
+import org.springframework.data.relational.core.sql.Table;
+import org.springframework.data.relational.core.sql.render.SqlRenderer;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+/**
+ * Integration tests for the {@link EntityManager}.
+ */
+@IntegrationTest
+class EntityManagerIT {
+
+    private static final Logger log = LoggerFactory.getLogger(EntityManagerIT.class);
+
+    private static final EntityManager.LinkTable LINK_TABLE = new EntityManager.LinkTable("rel_link_test", "entity_id", "reference_id");
+
+    private static final long ENTITY_ID = 1L;
+
+    @Autowired
+    private ConnectionFactory connectionFactory;
+
+    @Autowired
+    private R2dbcEntityTemplate r2dbcEntityTemplate;
+
+    @Autowired
+    private R2dbcDialect dialect;
+
+    @Autowired
+    private SqlRenderer sqlRenderer;
+
+    @Autowired
+    private UpdateMapper updateMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private QueryRecorder queryRecorder;
+
+    private DatabaseClient db;
+
+    private EntityManager recordedEntityManager;
+
+    @BeforeEach
+    public void init() {
+        queryRecorder = new QueryRecorder();
+        db =
+            DatabaseClient
+                .builder()
+                .connectionFactory(queryRecorder.wrap(connectionFactory))
+                .bindMarkers(dialect.getBindMarkersFactory())
+                .build();
+        db.sql("CREATE TABLE rel_link_test (entity_id BIGINT, reference_id BIGINT, PRIMARY KEY (entity_id, reference_id))").then().block();
+        recordedEntityManager =
+            new EntityManager(
+                sqlRenderer,
+                updateMapper,
+                new R2dbcEntityTemplate(db, r2dbcEntityTemplate.getDataAccessStrategy()),
+                objectMapper,
+                applicationProperties,
+                meterRegistry
+            );
+    }
+
+    @AfterEach
+    public void cleanup() {
+        db.sql("DROP TABLE rel_link_test").then().block();
+        r2dbcEntityTemplate.delete(Singer.class).all().block();
+    }
+
+    @Test
+    void createSelectRendersEachShapeOnce() {
+        for (String name : new String[] { "a", "b", "c" }) {
+            r2dbcEntityTemplate.insert(new Singer().name(name)).block();
+        }
+        AtomicInteger built = new AtomicInteger();
+        Supplier<SelectWhere> selectFrom = () -> {
+            built.incrementAndGet();
+            return createSingerSelectFrom();
+        };
+        double hits = cacheGets("hit");
+        double misses = cacheGets("miss");
+
+        queryRecorder.reset();
+        for (int page = 0; page < 3; page++) {
+            List<String> names = recordedEntityManager
+                .createSelect(selectFrom, Singer.class, PageRequest.of(page, 2, Sort.by(Sort.Direction.DESC, "name")), null)
+                .map(row -> row.get("e_name", String.class))
+                .all()
+                .collectList()
+                .block();
+            assertThat(names).isEqualTo(page == 0 ? List.of("c", "b") : page == 1 ? List.of("a") : List.of());
+        }
+        assertThat(built).hasValue(1);
+        assertThat(queryRecorder.getQueries()).hasSize(3).containsOnly(queryRecorder.getQueries().get(0));
+
+        recordedEntityManager.createSelect(selectFrom, Singer.class, PageRequest.of(0, 2, Sort.by("name")), null);
+        recordedEntityManager.createSelect(selectFrom, Singer.class, null, null);
+        assertThat(built).hasValue(3);
+        assertThat(cacheGets("hit")).isEqualTo(hits + 2);
+        assertThat(cacheGets("miss")).isEqualTo(misses + 3);
+    }
+
+    @Test
+    void createSelectBindsCriteria() {
+        for (String name : new String[] { "a", "b", "c", "Abba" }) {
+            r2dbcEntityTemplate.insert(new Singer().name(name)).block();
+        }
+
+        assertThat(selectSingerNames(where("name").in("a", "c", "d"))).containsExactly("c", "a");
+        assertThat(selectSingerNames(where("name").like("A%").ignoreCase(true))).containsExactly("a", "Abba");
+        assertThat(selectSingerNames(where("name").between("b", "c").or("name").isNull())).containsExactly("c", "b");
+        assertThat(selectSingerNames(Criteria.from(where("name").is("a"), where("name").is("b").or("name").is("c")).and("id").isNotNull()))
+            .isEmpty();
+        assertThat(selectSingerNames(where("name").not("a").and(where("name").is("b").or("name").is("c")))).containsExactly("c", "b");
+
+        queryRecorder.reset();
+        for (String name : new String[] { "a", "b", "c" }) {
+            assertThat(selectSingerNames(where("name").is(name))).containsExactly(name);
+        }
+        assertThat(queryRecorder.getQueries()).hasSize(3).containsOnly(queryRecorder.getQueries().get(0));
+        assertThat(queryRecorder.getQueries().get(0)).doesNotContain("'");
+    }
+
+    @Test
+    void createSelectRendersEveryTimeWithoutTheCache() {
+        AtomicInteger built = new AtomicInteger();
+        timeCreateSelect(createUncachedEntityManager(), built, 3);
+        assertThat(built).hasValue(3);
+
+        built.set(0);
+        timeCreateSelect(recordedEntityManager, built, 3);
+        assertThat(built).hasValue(1);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void createSelectCacheBenchmark() {
+        EntityManager uncachedEntityManager = createUncachedEntityManager();
+        int iterations = 10_000;
+        long uncachedNanos = timeCreateSelect(uncachedEntityManager, new AtomicInteger(), iterations);
+        long cachedNanos = timeCreateSelect(recordedEntityManager, new AtomicInteger(), iterations);
+
+        log.info(
+            "{} selects: rendered every time {} ns/select, cached {} ns/select",
+            iterations,
+            uncachedNanos / iterations,
+            cachedNanos / iterations
+        );
+    }
+
+    private EntityManager createUncachedEntityManager() {
+        ApplicationProperties uncachedProperties = new ApplicationProperties();
+        uncachedProperties.getPersistence().setSqlTemplateCacheSize(0);
+        return new EntityManager(
+            sqlRenderer,
+            updateMapper,
+            r2dbcEntityTemplate,
+            objectMapper,
+            uncachedProperties,
+            new SimpleMeterRegistry()
+        );
+    }
+
+    private List<String> selectSingerNames(Criteria criteria) {
+        PageRequest pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "name"));
+        return recordedEntityManager
+            .createSelect(EntityManagerIT::createSingerSelectFrom, Singer.class, pageable, criteria)
+            .map(row -> row.get("e_name", String.class))
+            .all()
+            .collectList()
+            .block();
+    }
+
+    private long timeCreateSelect(EntityManager entityManager, AtomicInteger built, int iterations) {
+        Supplier<SelectWhere> selectFrom = () -> {
+            built.incrementAndGet();
+            return createAlbumSelectFrom();
+        };
+        PageRequest pageable = PageRequest.of(3, 20, Sort.by("title"));
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            entityManager.createSelect(selectFrom, Album.class, pageable, null);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static SelectWhere createSingerSelectFrom() {
+        Table table = Table.aliased("singer", EntityManager.ENTITY_ALIAS);
+        return Select.builder().select(Column.aliased("id", table, "e_id"), Column.aliased("name", table, "e_name")).from(table);
+    }
+
+    private static SelectWhere createAlbumSelectFrom() {
+        Table table = Table.aliased("album", EntityManager.ENTITY_ALIAS);
+        Table singerTable = Table.aliased("singer", "singer");
+        return Select
+            .builder()
+            .select(
+                Column.aliased("id", table, "e_id"),
+                Column.aliased("title", table, "e_title"),
+                Column.aliased("published_at", table, "e_published_at"),
+                Column.aliased("singer_id", table, "e_singer_id"),
+                Column.aliased("id", singerTable, "singer_id"),
+                Column.aliased("name", singerTable, "singer_name")
+            )
+            .from(table)
+            .leftOuterJoin(singerTable)
+            .on(Column.create("singer_id", table))
+            .equals(Column.create("id", singerTable));
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.counter("cache.gets", "cache", EntityManager.SQL_TEMPLATE_CACHE, "result", result).count();
+    }
+
+    @Test
+    void updateLinkTableAppliesOnlyTheDifference() {
+        assertThat(updateLinks(1L, 2L, 3L)).isEqualTo(3);
+        // another entity, which must be left alone
+        assertThat(recordedEntityManager.updateLinkTable(LINK_TABLE, 2L, Stream.of(1L)).block()).isEqualTo(1);
+
+        queryRecorder.reset();
+        assertThat(updateLinks(2L, 3L, 4L, 4L)).isEqualTo(2);
+        // one select of the current links, one delete and one insert
+        assertThat(queryRecorder.getQueries()).hasSize(3);
+        assertThat(selectLinks(ENTITY_ID)).containsExactly(2L, 3L, 4L);
+        assertThat(selectLinks(2L)).containsExactly(1L);
+
+        queryRecorder.reset();
+        assertThat(updateLinks(4L, 3L, 2L)).isZero();
+        assertThat(queryRecorder.getQueries()).hasSize(1);
+
+        assertThat(updateLinks()).isEqualTo(3);
+        assertThat(selectLinks(ENTITY_ID)).isEmpty();
+    }
+
+    @Test
+    void updateLinkTableStatementsGrowWithTheBatchSize() {
+        int batchSize = applicationProperties.getPersistence().getLinkTableBatchSize();
+        for (int links : new int[] { 10, 100, 1000 }) {
+            int batches = (links + batchSize - 1) / batchSize;
+
+            queryRecorder.reset();
+            long start = System.nanoTime();
+            legacyUpdateLinks(links);
+            long legacyNanos = System.nanoTime() - start;
+            assertThat(queryRecorder.getQueries()).hasSize(1 + links);
+
+            deleteLinks();
+            queryRecorder.reset();
+            start = System.nanoTime();
+            assertThat(updateLinks(LongStream.rangeClosed(1, links).boxed().toArray(Long[]::new))).isEqualTo(links);
+            long batchedNanos = System.nanoTime() - start;
+            assertThat(queryRecorder.getQueries()).hasSize(1 + batches);
+
+            // Replace half of the links: only those are deleted, then inserted again
+            queryRecorder.reset();
+            start = System.nanoTime();
+            Long[] shifted = LongStream.rangeClosed(links / 2 + 1, links + links / 2).boxed().toArray(Long[]::new);
+            assertThat(updateLinks(shifted)).isEqualTo(2 * (links / 2));
+            long diffNanos = System.nanoTime() - start;
+            assertThat(queryRecorder.getQueries()).hasSize(1 + 2 * ((links / 2 + batchSize - 1) / batchSize));
+            assertThat(selectLinks(ENTITY_ID)).hasSize(links);
+
+            log.info(
+                "{} links: legacy {} ms, batched {} ms, half replaced {} ms",
+                links,
+                legacyNanos / 1_000_000,
+                batchedNanos / 1_000_000,
+                diffNanos / 1_000_000
+            );
+            deleteLinks();
+        }
+    }
+
+    private Integer updateLinks(Long... referencedIds) {
+        return recordedEntityManager.updateLinkTable(LINK_TABLE, ENTITY_ID, Stream.of(referencedIds)).block();
+    }
+
+    /**
+     * The former implementation, as a baseline: delete all the links, then insert them one statement at a time.
+     */
+    private void legacyUpdateLinks(int links) {
+        deleteLinks();
+        Flux
+            .range(1, links)
+            .flatMap(
+                id ->
+                    db
+                        .sql("INSERT INTO rel_link_test (entity_id, reference_id) VALUES (:entityId, :referenceId)")
+                        .bind("entityId", ENTITY_ID)
+                        .bind("referenceId", (long) id)
+                        .fetch()
+                        .rowsUpdated()
+            )
+            .blockLast();
+    }
+
+    private void deleteLinks() {
+        db.sql("DELETE FROM rel_link_test WHERE entity_id = :entityId").bind("entityId", ENTITY_ID).then().block();
+    }
+
+    private List<Long> selectLinks(long entityId) {
+        return db
+            .sql("SELECT reference_id FROM rel_link_test WHERE entity_id = :entityId ORDER BY reference_id")
+            .bind("entityId", entityId)
+            .map(row -> row.get(0, Long.class))
+            .all()
+            .collectList()
+            .block();
+    }
+}
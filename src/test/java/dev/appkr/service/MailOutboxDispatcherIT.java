@@ -0,0 +1,169 @@
+package dev.appkr.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.appkr.IntegrationTest;
+import dev.appkr.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.r2dbc.core.DatabaseClient;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Integration tests for {@link MailOutboxDispatcher}.
+ */
+@IntegrationTest
+class MailOutboxDispatcherIT {
+
+    @Autowired
+    private DatabaseClient db;
+
+    @Autowired
+    private JHipsterProperties jHipsterProperties;
+
+    @Autowired
+    private MailService mailService;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ApplicationProperties.MailOutbox properties = new ApplicationProperties.MailOutbox();
+
+    private SmtpStandIn smtp;
+
+    private MailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        db.sql("DELETE FROM mail_outbox").fetch().rowsUpdated().block();
+        smtp = new SmtpStandIn();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        smtp.close();
+    }
+
+    @Test
+    void sendsABatchOverOneConnection() throws Exception {
+        createDispatcher();
+        for (int i = 0; i < 5; i++) {
+            queue("user" + i + "@localhost");
+        }
+
+        assertThat(dispatcher.dispatch().block()).isEqualTo(5);
+
+        assertThat(smtp.getConnections()).isEqualTo(1);
+        assertThat(smtp.getMessages()).hasSize(5);
+        assertThat(smtp.getMessages().get(0).getAllRecipients()[0]).hasToString("user0@localhost");
+        assertThat(countQueued()).isZero();
+        assertThat(meterRegistry.get("mail.outbox.sent").counter().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("mail.outbox.delay").timer().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("mail.outbox.backlog").gauge().value()).isZero();
+    }
+
+    @Test
+    void capsTheSendingRate() {
+        properties.setRate(1);
+        properties.setBatchSize(3);
+        createDispatcher();
+        for (int i = 0; i < 5; i++) {
+            queue("user" + i + "@localhost");
+        }
+
+        assertThat(dispatcher.dispatch().block()).isEqualTo(3);
+        assertThat(dispatcher.dispatch().block()).isZero();
+
+        assertThat(smtp.getMessages()).hasSize(3);
+        assertThat(meterRegistry.get("mail.outbox.backlog").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void retriesOnlyTheRejectedEmails() throws Exception {
+        createDispatcher();
+        smtp.reject("rejected@localhost");
+        queue("first@localhost");
+        queue("rejected@localhost");
+        queue("last@localhost");
+
+        assertThat(dispatcher.dispatch().block()).isEqualTo(2);
+
+        assertThat(smtp.getMessages()).extracting(message -> message.getAllRecipients()[0].toString()).containsExactly(
+            "first@localhost",
+            "last@localhost"
+        );
+        Map<String, Object> row = db.sql("SELECT recipient, attempts, claim_token FROM mail_outbox").fetch().one().block();
+        assertThat(row).containsEntry("recipient", "rejected@localhost").containsEntry("attempts", 1);
+        assertThat(row.get("claim_token")).isNull();
+        assertThat(meterRegistry.get("mail.outbox.failed").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("mail.outbox.backlog").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesOnlyTheEmailsWhichCantBeBuilt() {
+        properties.setMaxAttempts(1);
+        createDispatcher();
+        queue("first@localhost");
+        queue("malformed@@localhost");
+        queue("last@localhost");
+
+        assertThat(dispatcher.dispatch().block()).isEqualTo(2);
+
+        assertThat(smtp.getMessages()).hasSize(2);
+        Map<String, Object> row = db.sql("SELECT recipient, last_error FROM mail_outbox").fetch().one().block();
+        assertThat(row).containsEntry("recipient", "malformed@@localhost");
+        assertThat(row.get("last_error")).isNotNull();
+        assertThat(meterRegistry.get("mail.outbox.failed").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("mail.outbox.abandoned").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void givesUpAfterTheMaxAttempts() {
+        properties.setMaxAttempts(2);
+        properties.setInitialBackoff(Duration.ZERO);
+        createDispatcher();
+        smtp.reject("rejected@localhost");
+        queue("rejected@localhost");
+
+        assertThat(dispatcher.dispatch().block()).isZero();
+        assertThat(dispatcher.dispatch().block()).isZero();
+        assertThat(dispatcher.dispatch().block()).isZero();
+
+        assertThat(smtp.getConnections()).isEqualTo(2);
+        assertThat(countQueued()).isEqualTo(1);
+        assertThat(meterRegistry.get("mail.outbox.failed").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("mail.outbox.abandoned").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("mail.outbox.backlog").gauge().value()).isZero();
+    }
+
+    @Test
+    void doublesTheBackoffUpToTheMaximum() {
+        createDispatcher();
+
+        assertThat(dispatcher.backoff(1)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(dispatcher.backoff(2)).isEqualTo(Duration.ofMinutes(1));
+        assertThat(dispatcher.backoff(4)).isEqualTo(Duration.ofMinutes(4));
+        assertThat(dispatcher.backoff(100)).isEqualTo(Duration.ofHours(1));
+    }
+
+    private void createDispatcher() {
+        JavaMailSenderImpl javaMailSender = new JavaMailSenderImpl();
+        javaMailSender.setHost("localhost");
+        javaMailSender.setPort(smtp.getPort());
+        dispatcher = new MailOutboxDispatcher(db, javaMailSender, jHipsterProperties.getMail().getFrom(), properties, meterRegistry);
+    }
+
+    private void queue(String recipient) {
+        mailService.sendEmail(recipient, "testSubject", "testContent", false, false).block();
+    }
+
+    private long countQueued() {
+        return db.sql("SELECT COUNT(*) AS queued FROM mail_outbox").map(row -> row.get("queued", Long.class)).one().block();
+    }
+}
@@ -1,19 +1,21 @@
 package dev.appkr.service;
 
 import static org.assertj.core.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.*;
 
 import dev.appkr.IntegrationTest;
+import dev.appkr.config.ApplicationProperties;
 import dev.appkr.config.Constants;
 import dev.appkr.domain.User;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -21,16 +23,16 @@ import javax.mail.Multipart;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
-import org.mockito.MockitoAnnotations;
-import org.mockito.Spy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
-import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.thymeleaf.spring5.SpringTemplateEngine;
 import tech.jhipster.config.JHipsterProperties;
 
@@ -55,78 +57,92 @@ class MailServiceIT {
     @Autowired
     private SpringTemplateEngine templateEngine;
 
-    @Spy
-    private JavaMailSenderImpl javaMailSender;
+    @Autowired
+    private DatabaseClient db;
+
+    @Autowired
+    private ReactiveTransactionManager transactionManager;
+
+    private SmtpStandIn smtp;
 
-    @Captor
-    private ArgumentCaptor<MimeMessage> messageCaptor;
+    private MailOutboxDispatcher dispatcher;
 
     private MailService mailService;
 
     @BeforeEach
-    public void setup() {
-        MockitoAnnotations.initMocks(this);
-        doNothing().when(javaMailSender).send(any(MimeMessage.class));
-        mailService = new MailService(jHipsterProperties, javaMailSender, messageSource, templateEngine);
+    public void setup() throws Exception {
+        db.sql("DELETE FROM mail_outbox").fetch().rowsUpdated().block();
+        smtp = new SmtpStandIn();
+        JavaMailSenderImpl javaMailSender = new JavaMailSenderImpl();
+        javaMailSender.setHost("localhost");
+        javaMailSender.setPort(smtp.getPort());
+        dispatcher =
+            new MailOutboxDispatcher(
+                db,
+                javaMailSender,
+                jHipsterProperties.getMail().getFrom(),
+                new ApplicationProperties.MailOutbox(),
+                new SimpleMeterRegistry()
+            );
+        mailService = new MailService(jHipsterProperties, messageSource, templateEngine, db);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        smtp.close();
     }
 
     @Test
     void testSendEmail() throws Exception {
-        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false).block();
+        MimeMessage message = dispatchOne();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0]).hasToString("john.doe@example.com");
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent()).isInstanceOf(String.class);
-        assertThat(message.getContent()).hasToString("testContent");
+        // SMTP ends the content with a line break
+        assertThat(message.getContent().toString()).isEqualToNormalizingNewlines("testContent\n");
         assertThat(message.getDataHandler().getContentType()).isEqualTo("text/plain; charset=UTF-8");
     }
 
     @Test
     void testSendHtmlEmail() throws Exception {
-        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, true);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, true).block();
+        MimeMessage message = dispatchOne();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0]).hasToString("john.doe@example.com");
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent()).isInstanceOf(String.class);
-        assertThat(message.getContent()).hasToString("testContent");
+        // SMTP ends the content with a line break
+        assertThat(message.getContent().toString()).isEqualToNormalizingNewlines("testContent\n");
         assertThat(message.getDataHandler().getContentType()).isEqualTo("text/html;charset=UTF-8");
     }
 
     @Test
     void testSendMultipartEmail() throws Exception {
-        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, false);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, false).block();
+        MimeMessage message = dispatchOne();
         MimeMultipart mp = (MimeMultipart) message.getContent();
         MimeBodyPart part = (MimeBodyPart) ((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
-        ByteArrayOutputStream aos = new ByteArrayOutputStream();
-        part.writeTo(aos);
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0]).hasToString("john.doe@example.com");
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent()).isInstanceOf(Multipart.class);
-        assertThat(aos).hasToString("\r\ntestContent");
+        assertThat(part.getContent()).hasToString("testContent");
         assertThat(part.getDataHandler().getContentType()).isEqualTo("text/plain; charset=UTF-8");
     }
 
     @Test
     void testSendMultipartHtmlEmail() throws Exception {
-        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, true);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, true).block();
+        MimeMessage message = dispatchOne();
         MimeMultipart mp = (MimeMultipart) message.getContent();
         MimeBodyPart part = (MimeBodyPart) ((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
-        ByteArrayOutputStream aos = new ByteArrayOutputStream();
-        part.writeTo(aos);
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0]).hasToString("john.doe@example.com");
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent()).isInstanceOf(Multipart.class);
-        assertThat(aos).hasToString("\r\ntestContent");
+        assertThat(part.getContent()).hasToString("testContent");
         assertThat(part.getDataHandler().getContentType()).isEqualTo("text/html;charset=UTF-8");
     }
 
@@ -136,9 +152,8 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         user.setLangKey("en");
-        mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title");
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title").block();
+        MimeMessage message = dispatchOne();
         assertThat(message.getSubject()).isEqualTo("test title");
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -152,9 +167,8 @@ class MailServiceIT {
         user.setLangKey(Constants.DEFAULT_LANGUAGE);
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
-        mailService.sendActivationEmail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        mailService.sendActivationEmail(user).block();
+        MimeMessage message = dispatchOne();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent().toString()).isNotEmpty();
@@ -167,9 +181,8 @@ class MailServiceIT {
         user.setLangKey(Constants.DEFAULT_LANGUAGE);
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
-        mailService.sendCreationEmail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        mailService.sendCreationEmail(user).block();
+        MimeMessage message = dispatchOne();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent().toString()).isNotEmpty();
@@ -182,9 +195,8 @@ class MailServiceIT {
         user.setLangKey(Constants.DEFAULT_LANGUAGE);
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
-        mailService.sendPasswordResetMail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        mailService.sendPasswordResetMail(user).block();
+        MimeMessage message = dispatchOne();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent().toString()).isNotEmpty();
@@ -193,12 +205,31 @@ class MailServiceIT {
 
     @Test
     void testSendEmailWithException() {
-        doThrow(MailSendException.class).when(javaMailSender).send(any(MimeMessage.class));
-        try {
-            mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
-        } catch (Exception e) {
-            fail("Exception shouldn't have been thrown");
-        }
+        smtp.reject("john.doe@example.com");
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false).block();
+        LocalDateTime dispatchedAt = LocalDateTime.now(ZoneOffset.UTC);
+        assertThat(dispatcher.dispatch().block()).isZero();
+
+        Map<String, Object> row = db.sql("SELECT * FROM mail_outbox").fetch().one().block();
+        assertThat(row.get("attempts")).isEqualTo(1);
+        assertThat(row.get("claim_token")).isNull();
+        assertThat(row.get("last_error")).isNotNull();
+        assertThat((LocalDateTime) row.get("next_attempt_at")).isAfter(dispatchedAt.plusSeconds(29));
+    }
+
+    @Test
+    void testEmailIsQueuedWithTheTransaction() {
+        TransactionalOperator
+            .create(transactionManager)
+            .execute(
+                transaction -> {
+                    transaction.setRollbackOnly();
+                    return mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+                }
+            )
+            .blockLast();
+        assertThat(dispatcher.dispatch().block()).isZero();
+        assertThat(smtp.getMessages()).isEmpty();
     }
 
     @Test
@@ -208,9 +239,8 @@ class MailServiceIT {
         user.setEmail("john.doe@example.com");
         for (String langKey : languages) {
             user.setLangKey(langKey);
-            mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title");
-            verify(javaMailSender, atLeastOnce()).send(messageCaptor.capture());
-            MimeMessage message = messageCaptor.getValue();
+            mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title").block();
+            MimeMessage message = dispatchOne();
 
             String propertyFilePath = "i18n/messages_" + getJavaLocale(langKey) + ".properties";
             URL resource = this.getClass().getClassLoader().getResource(propertyFilePath);
@@ -225,6 +255,17 @@ class MailServiceIT {
         }
     }
 
+    /**
+     * Send the queued email, and return it as received by the mail server.
+     */
+    private MimeMessage dispatchOne() {
+        int before = smtp.getMessages().size();
+        assertThat(dispatcher.dispatch().block()).isEqualTo(1);
+        List<MimeMessage> messages = smtp.getMessages();
+        assertThat(messages).hasSize(before + 1);
+        return messages.get(before);
+    }
+
     /**
      * Convert a lang key to the Java locale.
      */
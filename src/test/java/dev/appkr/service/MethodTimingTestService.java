@@ -0,0 +1,33 @@
+package dev.appkr.service;
+
+import java.time.Duration;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A service for the tests of the method timing, within the packages of the application components.
+ */
+@Service
+public class MethodTimingTestService {
+
+    public Mono<String> find(String name) {
+        return Mono.just(name);
+    }
+
+    public Mono<String> findLater(String name, Duration delay) {
+        return Mono.just(name).delayElement(delay);
+    }
+
+    public Flux<Integer> findAll(int count) {
+        return Flux.range(0, count);
+    }
+
+    public Mono<String> fail() {
+        return Mono.error(new IllegalStateException("test failure"));
+    }
+
+    public String findNow(String name) {
+        return name;
+    }
+}
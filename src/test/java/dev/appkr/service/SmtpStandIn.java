@@ -0,0 +1,138 @@
+package dev.appkr.service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+/**
+ * A minimal SMTP server, for the tests: it accepts the messages, except for the rejected recipients, and keeps them.
+ */
+public class SmtpStandIn implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+
+    private final Set<String> rejectedRecipients = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    public SmtpStandIn() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "smtp-stand-in");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the number of connections opened so far.
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * Answer {@code 550} to the given recipient.
+     */
+    public void reject(String recipient) {
+        rejectedRecipients.add(recipient);
+    }
+
+    /**
+     * @return the messages received so far, in order.
+     */
+    public List<MimeMessage> getMessages() {
+        Session session = Session.getInstance(new Properties());
+        return messages
+            .stream()
+            .map(
+                message -> {
+                    try {
+                        return new MimeMessage(session, new ByteArrayInputStream(message.getBytes(StandardCharsets.UTF_8)));
+                    } catch (MessagingException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            )
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                Thread session = new Thread(() -> converse(socket), "smtp-stand-in-session");
+                session.setDaemon(true);
+                session.start();
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void converse(Socket socket) {
+        try (
+            socket;
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)
+        ) {
+            reply(out, "220 localhost SMTP stand-in");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("RCPT TO:")) {
+                    String recipient = line.substring("RCPT TO:".length()).trim().replaceAll("[<>]", "");
+                    reply(out, rejectedRecipients.contains(recipient) ? "550 Rejected" : "250 OK");
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    StringBuilder message = new StringBuilder();
+                    while (!(line = in.readLine()).equals(".")) {
+                        message.append(line.startsWith(".") ? line.substring(1) : line).append("\r\n");
+                    }
+                    messages.add(message.toString());
+                    reply(out, "250 OK");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    // EHLO, HELO, MAIL, RSET, NOOP
+                    reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            // The client went away
+        }
+    }
+
+    private static void reply(Writer out, String reply) throws IOException {
+        out.write(reply + "\r\n");
+        out.flush();
+    }
+}
@@ -0,0 +1,147 @@
+package dev.appkr.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import dev.appkr.IntegrationTest;
+import dev.appkr.config.Constants;
+import dev.appkr.domain.User;
+import dev.appkr.repository.UserRepository;
+import dev.appkr.security.AuthoritiesConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Integration tests for {@link UserPurgeService}.
+ */
+@IntegrationTest
+class UserPurgeServiceIT {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserPurgeService userPurgeService;
+
+    @Autowired
+    private DatabaseClient db;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void init() {
+        userRepository.deleteAllUserAuthorities().block();
+        userRepository.deleteAll().block();
+        db.sql("DELETE FROM job_lease").then().block();
+    }
+
+    @Test
+    void assertThatNotActivatedUsersWithNotNullActivationKeyCreatedBefore3DaysAreDeleted() {
+        Instant now = Instant.now();
+        User user = createUser("johndoe", false, RandomStringUtils.random(20));
+        user.setCreatedDate(now.minus(4, ChronoUnit.DAYS));
+        userRepository.save(user).block();
+        LocalDateTime threeDaysAgo = LocalDateTime.ofInstant(now.minus(3, ChronoUnit.DAYS), ZoneOffset.UTC);
+        List<User> users = userRepository
+            .findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(threeDaysAgo)
+            .collectList()
+            .block();
+        assertThat(users).isNotEmpty();
+        userPurgeService.purgeNotActivatedUsers().block();
+        users = userRepository.findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(threeDaysAgo).collectList().block();
+        assertThat(users).isEmpty();
+    }
+
+    @Test
+    void assertThatNotActivatedUsersWithNullActivationKeyCreatedBefore3DaysAreNotDeleted() {
+        Instant now = Instant.now();
+        User user = createUser("johndoe", false, null);
+        user.setCreatedDate(now.minus(4, ChronoUnit.DAYS));
+        User dbUser = userRepository.save(user).block();
+        LocalDateTime threeDaysAgo = LocalDateTime.ofInstant(now.minus(3, ChronoUnit.DAYS), ZoneOffset.UTC);
+        List<User> users = userRepository
+            .findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(threeDaysAgo)
+            .collectList()
+            .block();
+        assertThat(users).isEmpty();
+        userPurgeService.purgeNotActivatedUsers().block();
+        Optional<User> maybeDbUser = userRepository.findById(dbUser.getId()).blockOptional();
+        assertThat(maybeDbUser).contains(dbUser);
+    }
+
+    @Test
+    void purgesTheUsersAndTheirAuthoritiesInChunks() {
+        for (int i = 0; i < 5; i++) {
+            createStaleUser("stale" + i);
+        }
+        createUser("recent", false, RandomStringUtils.random(20));
+        User activated = createUser("activated", true, null);
+        activated.setCreatedDate(Instant.now().minus(4, ChronoUnit.DAYS));
+        userRepository.save(activated).block();
+        double chunks = meterRegistry.get("user.purge.chunks").counter().count();
+        double deleted = meterRegistry.get("user.purge.deleted").counter().count();
+
+        assertThat(userPurgeService.purgeNotActivatedUsers().block()).isEqualTo(5);
+
+        assertThat(userRepository.findAll().map(User::getLogin).collectList().block()).containsExactlyInAnyOrder("recent", "activated");
+        assertThat(countAuthorities()).isEqualTo(2);
+        // Chunks of 2
+        assertThat(meterRegistry.get("user.purge.chunks").counter().count() - chunks).isGreaterThanOrEqualTo(3);
+        assertThat(meterRegistry.get("user.purge.deleted").counter().count() - deleted).isEqualTo(5);
+    }
+
+    @Test
+    void leavesThePurgeToTheNodeHoldingTheLease() {
+        createStaleUser("stale");
+        JobLease otherNode = new JobLease(db, "other-node");
+        assertThat(otherNode.acquire(UserPurgeService.JOB_NAME, Duration.ofMinutes(1)).block()).isTrue();
+        double skipped = meterRegistry.get("user.purge.skipped").counter().count();
+
+        assertThat(userPurgeService.purgeNotActivatedUsers().block()).isZero();
+        assertThat(userRepository.count().block()).isEqualTo(1);
+        assertThat(meterRegistry.get("user.purge.skipped").counter().count() - skipped).isEqualTo(1);
+
+        otherNode.release(UserPurgeService.JOB_NAME).block();
+        assertThat(userPurgeService.purgeNotActivatedUsers().block()).isEqualTo(1);
+        assertThat(otherNode.acquire(UserPurgeService.JOB_NAME, Duration.ofMinutes(1)).block()).isTrue();
+    }
+
+    private void createStaleUser(String login) {
+        User user = createUser(login, false, RandomStringUtils.random(20));
+        user.setCreatedDate(Instant.now().minus(4, ChronoUnit.DAYS));
+        userRepository.save(user).block();
+    }
+
+    private User createUser(String login, boolean activated, String activationKey) {
+        User user = new User();
+        user.setLogin(login);
+        user.setPassword(RandomStringUtils.random(60));
+        user.setActivated(activated);
+        user.setActivationKey(activationKey);
+        user.setEmail(login + "@localhost");
+        user.setLangKey("en");
+        user.setCreatedBy(Constants.SYSTEM);
+        User saved = userRepository.save(user).block();
+        userRepository.saveUserAuthority(saved.getId(), AuthoritiesConstants.USER).block();
+        return saved;
+    }
+
+    private long countAuthorities() {
+        return db
+            .sql("SELECT COUNT(*) AS authorities FROM jhi_user_authority")
+            .map(row -> row.get("authorities", Long.class))
+            .one()
+            .block();
+    }
+}
@@ -8,10 +8,7 @@ import dev.appkr.domain.User;
 import dev.appkr.repository.UserRepository;
 import dev.appkr.service.dto.AdminUserDTO;
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
-import java.util.List;
 import java.util.Optional;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -130,41 +127,4 @@ class UserServiceIT {
 
         userRepository.delete(user).block();
     }
-
-    @Test
-    void assertThatNotActivatedUsersWithNotNullActivationKeyCreatedBefore3DaysAreDeleted() {
-        Instant now = Instant.now();
-        user.setActivated(false);
-        user.setActivationKey(RandomStringUtils.random(20));
-        User dbUser = userRepository.save(user).block();
-        dbUser.setCreatedDate(now.minus(4, ChronoUnit.DAYS));
-        userRepository.save(user).block();
-        LocalDateTime threeDaysAgo = LocalDateTime.ofInstant(now.minus(3, ChronoUnit.DAYS), ZoneOffset.UTC);
-        List<User> users = userRepository
-            .findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(threeDaysAgo)
-            .collectList()
-            .block();
-        assertThat(users).isNotEmpty();
-        userService.removeNotActivatedUsers();
-        users = userRepository.findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(threeDaysAgo).collectList().block();
-        assertThat(users).isEmpty();
-    }
-
-    @Test
-    void assertThatNotActivatedUsersWithNullActivationKeyCreatedBefore3DaysAreNotDeleted() {
-        Instant now = Instant.now();
-        user.setActivated(false);
-        User dbUser = userRepository.save(user).block();
-        dbUser.setCreatedDate(now.minus(4, ChronoUnit.DAYS));
-        userRepository.save(user).block();
-        LocalDateTime threeDaysAgo = LocalDateTime.ofInstant(now.minus(3, ChronoUnit.DAYS), ZoneOffset.UTC);
-        List<User> users = userRepository
-            .findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(threeDaysAgo)
-            .collectList()
-            .block();
-        assertThat(users).isEmpty();
-        userService.removeNotActivatedUsers();
-        Optional<User> maybeDbUser = userRepository.findById(dbUser.getId()).blockOptional();
-        assertThat(maybeDbUser).contains(dbUser);
-    }
 }
@@ -0,0 +1,97 @@
+package dev.appkr.web.rest;
+
+import dev.appkr.IntegrationTest;
+import dev.appkr.config.ApplicationProperties;
+import dev.appkr.config.PreparedStatementMode;
+import dev.appkr.domain.Album;
+import dev.appkr.domain.Singer;
+import dev.appkr.repository.AlbumRepository;
+import dev.appkr.repository.SingerRepository;
+import java.time.Instant;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * Benchmark of {@code GET /api/albums/{id}} with each {@link PreparedStatementMode}, in an application context each.
+ * <p>
+ * The mode only changes how the MySQL driver sends the statements, so the timings only mean something with the
+ * {@code testcontainers} profile: {@code ./gradlew benchmark -Ptestcontainers}. The album is requested with its singer
+ * expanded, which reads it from the database rather than from the entity cache.
+ */
+@Tag("benchmark")
+class AlbumResourceBenchmarkIT {
+
+    private static final Logger log = LoggerFactory.getLogger(AlbumResourceBenchmarkIT.class);
+
+    private static final int ITERATIONS = 2_000;
+
+    @Nested
+    @IntegrationTest
+    @AutoConfigureWebTestClient
+    @WithMockUser
+    @TestPropertySource(properties = "application.persistence.prepared-statements=client")
+    class ClientPreparedStatements extends AlbumRequestBenchmark {}
+
+    @Nested
+    @IntegrationTest
+    @AutoConfigureWebTestClient
+    @WithMockUser
+    @TestPropertySource(properties = "application.persistence.prepared-statements=server")
+    class ServerPreparedStatements extends AlbumRequestBenchmark {}
+
+    abstract static class AlbumRequestBenchmark {
+
+        @Autowired
+        private WebTestClient webTestClient;
+
+        @Autowired
+        private AlbumRepository albumRepository;
+
+        @Autowired
+        private SingerRepository singerRepository;
+
+        @Autowired
+        private ApplicationProperties applicationProperties;
+
+        @Test
+        void getAlbumBenchmark() {
+            Singer singer = singerRepository.save(new Singer().name("benchmark")).block();
+            Album album = albumRepository.save(new Album().title("benchmark").publishedAt(Instant.now()).singer(singer)).block();
+            try {
+                long nanos = 0;
+                // A few rounds, the last one with a warm JIT and connection pool
+                for (int round = 0; round < 3; round++) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        webTestClient
+                            .get()
+                            .uri("/api/albums/{id}?expand=singer", album.getId())
+                            .accept(MediaType.APPLICATION_JSON)
+                            .exchange()
+                            .expectStatus()
+                            .isOk();
+                    }
+                    nanos = System.nanoTime() - start;
+                }
+                log.info(
+                    "{} requests of an album, {} prepared statements: {} µs/request",
+                    ITERATIONS,
+                    applicationProperties.getPersistence().getPreparedStatements(),
+                    nanos / ITERATIONS / 1000
+                );
+            } finally {
+                albumRepository.deleteById(album.getId()).block();
+                singerRepository.deleteById(singer.getId()).block();
+            }
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package dev.appkr.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 
 import dev.appkr.IntegrationTest;
 import dev.appkr.domain.Album;
+import dev.appkr.domain.Singer;
 import dev.appkr.repository.AlbumRepository;
+import dev.appkr.repository.SingerRepository;
+import dev.appkr.service.AlbumService;
 import dev.appkr.service.EntityManager;
+import dev.appkr.service.PaginationService;
+import java.net.URI;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -22,8 +28,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 /**
@@ -49,6 +57,15 @@ class AlbumResourceIT {
     @Autowired
     private AlbumRepository albumRepository;
 
+    @Autowired
+    private AlbumService albumService;
+
+    @Autowired
+    private SingerRepository singerRepository;
+
+    @Autowired
+    private PaginationService paginationService;
+
     @Autowired
     private EntityManager em;
 
@@ -90,6 +107,7 @@ class AlbumResourceIT {
     @AfterEach
     public void cleanup() {
         deleteEntities(em);
+        SingerResourceIT.deleteEntities(em);
     }
 
     @BeforeEach
@@ -207,6 +225,178 @@ class AlbumResourceIT {
             .value(hasItem(DEFAULT_PUBLISHED_AT.toString()));
     }
 
+    @Test
+    void getAllAlbumsAsNdjson() {
+        // Initialize the database
+        albumRepository.save(createEntity(em).title("A")).block();
+        albumRepository.save(createEntity(em).title("B")).block();
+
+        // Get all the albumList, one JSON document per line
+        List<Album> albumList = webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?sort=id,desc")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .expectHeader()
+            .valueEquals("X-Total-Count", "2")
+            .returnResult(Album.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertThat(albumList).hasSize(2);
+    }
+
+    @Test
+    void getAllAlbumsWithCursor() {
+        // Initialize the database
+        albumRepository.save(createEntity(em).title("A").publishedAt(DEFAULT_PUBLISHED_AT)).block();
+        albumRepository.save(createEntity(em).title("B").publishedAt(UPDATED_PUBLISHED_AT)).block();
+        albumRepository.save(createEntity(em).title("C").publishedAt(DEFAULT_PUBLISHED_AT)).block();
+
+        // Get the first page, then follow the next link
+        EntityExchangeResult<List<Album>> firstPage = webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?after=&size=2&sort=publishedAt,desc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .doesNotExist("X-Total-Count")
+            .expectBodyList(Album.class)
+            .returnResult();
+        assertThat(firstPage.getResponseBody()).extracting(Album::getTitle).containsExactly("B", "C");
+
+        URI next = TestUtil.nextLink(firstPage.getResponseHeaders());
+        assertThat(next).isNotNull();
+
+        webTestClient
+            .get()
+            .uri(next)
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .doesNotExist(HttpHeaders.LINK)
+            .expectBody()
+            .jsonPath("$.[*].title")
+            .value(contains("A"));
+    }
+
+    @Test
+    void getAllAlbumsWithInvalidCursor() {
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?after=invalid&size=2")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    @Test
+    void getAllAlbumsWithCursorSortedByNullableProperty() {
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?after=&size=2&sort=singerId")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    @Test
+    void getAllAlbumsWithoutCount() {
+        // Initialize the database
+        albumRepository.save(createEntity(em).title("A")).block();
+        albumRepository.save(createEntity(em).title("B")).block();
+        albumRepository.save(createEntity(em).title("C")).block();
+
+        // Get the first page, which has a next one
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=none&page=0&size=2&sort=id,desc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .doesNotExist("X-Total-Count")
+            .expectHeader()
+            .valueEquals("X-Has-Next-Page", "true")
+            .expectBody()
+            .jsonPath("$.length()")
+            .isEqualTo(2);
+
+        // Get the last page
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=none&page=1&size=2&sort=id,desc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Has-Next-Page", "false")
+            .expectBody()
+            .jsonPath("$.length()")
+            .isEqualTo(1);
+    }
+
+    @Test
+    void getAllAlbumsWithApproximateCount() {
+        // Initialize the database
+        paginationService.evictCount("album");
+        albumRepository.save(createEntity(em).title("A")).block();
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=approximate&size=1")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "1");
+
+        // The count is cached, as long as nothing is saved through the service
+        albumRepository.save(createEntity(em).title("B")).block();
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=approximate&size=1")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "1");
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=exact")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "2");
+
+        albumService.save(createEntity(em).title("C")).block();
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=approximate&size=1")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "3");
+    }
+
     @Test
     void getAlbum() {
         // Initialize the database
@@ -231,6 +421,124 @@ class AlbumResourceIT {
             .value(is(DEFAULT_PUBLISHED_AT.toString()));
     }
 
+    @Test
+    void getAlbumWithExpandedRelations() {
+        // Initialize the database
+        Singer singer = singerRepository.save(SingerResourceIT.createEntity(em)).block();
+        albumRepository.save(album.singer(singer)).block();
+
+        // Get the album with all its relations: the songs weren't found by the join
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID, album.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.singer.name")
+            .value(is(singer.getName()))
+            .jsonPath("$.songs")
+            .doesNotExist();
+
+        // Get the album without its relations
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID + "?expand=", album.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.singerId")
+            .value(is(singer.getId().intValue()))
+            .jsonPath("$.singer")
+            .doesNotExist();
+    }
+
+    @Test
+    void getAllAlbumsWithBatchLoadedRelations() {
+        // Initialize the database
+        Singer singer = singerRepository.save(SingerResourceIT.createEntity(em)).block();
+        albumRepository.save(album.singer(singer)).block();
+        albumRepository.save(AlbumResourceIT.createEntity(em).title(UPDATED_TITLE)).block();
+
+        // Get the albums, along with their singer loaded by a separate query
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?sort=id,asc&expand=singer,songs&expandMode=batch")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.[0].singer.name")
+            .value(is(singer.getName()))
+            .jsonPath("$.[0].songs")
+            .doesNotExist()
+            .jsonPath("$.[1].singer")
+            .doesNotExist();
+
+        // Get one album the same way
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID + "?expand=singer&expandMode=batch", album.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.singer.id")
+            .value(is(singer.getId().intValue()));
+    }
+
+    @Test
+    void getAlbumWithSparseFieldset() {
+        // Initialize the database
+        Singer singer = singerRepository.save(SingerResourceIT.createEntity(em)).block();
+        albumRepository.save(album.singer(singer)).block();
+
+        // Get the requested fields only
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID + "?fields=id,title", album.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.title")
+            .value(is(DEFAULT_TITLE))
+            .jsonPath("$.publishedAt")
+            .doesNotExist()
+            .jsonPath("$.singer")
+            .doesNotExist();
+
+        // A relation among the fields is expanded
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?fields=title,singer")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.[*].singer.name")
+            .value(hasItem(singer.getName()))
+            .jsonPath("$.[*].id")
+            .doesNotExist();
+    }
+
+    @Test
+    void getAllAlbumsWithUnknownField() {
+        webTestClient.get().uri(ENTITY_API_URL + "?fields=id,label").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getAllAlbumsWithUnknownRelation() {
+        webTestClient.get().uri(ENTITY_API_URL + "?expand=singer,label").exchange().expectStatus().isBadRequest();
+    }
+
     @Test
     void getNonExistingAlbum() {
         // Get the album
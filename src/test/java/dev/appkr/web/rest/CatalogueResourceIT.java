@@ -0,0 +1,301 @@
+package dev.appkr.web.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.appkr.IntegrationTest;
+import dev.appkr.domain.Album;
+import dev.appkr.domain.Singer;
+import dev.appkr.repository.AlbumRepository;
+import dev.appkr.repository.SingerRepository;
+import dev.appkr.security.AuthoritiesConstants;
+import dev.appkr.service.EntityManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+/**
+ * Integration tests for the {@link CatalogueResource} REST controller.
+ */
+@IntegrationTest
+@AutoConfigureWebTestClient
+@WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+class CatalogueResourceIT {
+
+    private static final String EXPORT_API_URL = "/api/admin/export/{entity}";
+    private static final String IMPORT_API_URL = "/api/admin/import/{entity}";
+
+    @Autowired
+    private AlbumRepository albumRepository;
+
+    @Autowired
+    private SingerRepository singerRepository;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @AfterEach
+    public void cleanup() {
+        AlbumResourceIT.deleteEntities(em);
+        SingerResourceIT.deleteEntities(em);
+    }
+
+    @Test
+    void exportAsNdjson() throws Exception {
+        // Initialize the database
+        Singer first = singerRepository.save(new Singer().name("A")).block();
+        Singer second = singerRepository.save(new Singer().name("B")).block();
+        double rowsBefore = meterRegistry.counter("catalogue.export.rows", "entity", "singer", "format", "ndjson").count();
+
+        // Export the singers
+        String body = new String(
+            webTestClient
+                .get()
+                .uri(EXPORT_API_URL, "singer")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType("application/x-ndjson")
+                .expectHeader()
+                .doesNotExist(HttpHeaders.CONTENT_ENCODING)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody(),
+            StandardCharsets.UTF_8
+        );
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], Singer.class).getName()).isEqualTo(first.getName());
+        assertThat(objectMapper.readValue(lines[1], Singer.class).getName()).isEqualTo(second.getName());
+        assertThat(meterRegistry.counter("catalogue.export.rows", "entity", "singer", "format", "ndjson").count())
+            .isEqualTo(rowsBefore + 2);
+    }
+
+    @Test
+    void exportAsGzippedCsv() throws Exception {
+        // Initialize the database
+        Singer first = singerRepository.save(new Singer().name("A;B")).block();
+        Singer second = singerRepository.save(new Singer().name("C \"D\"")).block();
+
+        // Export the singers
+        byte[] body = webTestClient
+            .get()
+            .uri(EXPORT_API_URL + "?format=csv", "singer")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentType("text/csv")
+            .expectHeader()
+            .valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+        assertThat(gunzip(body)).isEqualTo("id;name\n" + first.getId() + ";\"A;B\"\n" + second.getId() + ";\"C \"\"D\"\"\"\n");
+    }
+
+    @Test
+    void exportGzippedOnlyIfAccepted() {
+        singerRepository.save(new Singer().name("A")).block();
+
+        for (String refused : List.of("gzip;q=0", "identity", "deflate, *;q=0", "gzip;q=0, *")) {
+            webTestClient
+                .get()
+                .uri(EXPORT_API_URL, "singer")
+                .header(HttpHeaders.ACCEPT_ENCODING, refused)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist(HttpHeaders.CONTENT_ENCODING);
+        }
+        for (String accepted : List.of("GZIP", "deflate;q=1.0, gzip;q=0.5", "*", "x-gzip")) {
+            webTestClient
+                .get()
+                .uri(EXPORT_API_URL, "singer")
+                .header(HttpHeaders.ACCEPT_ENCODING, accepted)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+    }
+
+    @Test
+    void exportUnknownEntity() {
+        webTestClient.get().uri(EXPORT_API_URL, "user").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void exportUnknownFormat() {
+        webTestClient.get().uri(EXPORT_API_URL + "?format=xml", "singer").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    @WithMockUser
+    void exportIsForAdminsOnly() {
+        webTestClient.get().uri(EXPORT_API_URL, "singer").exchange().expectStatus().isForbidden();
+    }
+
+    @Test
+    void importCsv() {
+        String csv =
+            "id;title;published_at\n" +
+            "1;up;2021-06-07T05:40:47\n" +
+            "2;;2021-06-06T13:30:18\n" +
+            "3;\"quoted; title\";2021-06-06T13:30:18Z\n" +
+            "\n" +
+            "4;down;yesterday\n";
+
+        webTestClient
+            .post()
+            .uri(IMPORT_API_URL, "album")
+            .contentType(MediaType.parseMediaType("text/csv"))
+            .bodyValue(csv)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.imported")
+            .isEqualTo(2)
+            .jsonPath("$.errors[*].line")
+            .value(contains(3, 6))
+            .jsonPath("$.errors[0].message")
+            .isEqualTo("title: must not be null")
+            .jsonPath("$.errors[1].message")
+            .isEqualTo("Invalid value for published_at: yesterday");
+
+        List<Album> albums = albumRepository.findAll().collectList().block();
+        assertThat(albums).extracting(Album::getTitle).containsExactlyInAnyOrder("up", "quoted; title");
+        assertThat(albums).extracting(Album::getPublishedAt).contains(Instant.parse("2021-06-07T05:40:47Z"));
+    }
+
+    @Test
+    void importNdjson() {
+        String ndjson = "{\"name\":\"A\"}\n{\"name\":null}\nnot json\n{\"id\":1,\"name\":\"B\"}\n";
+
+        webTestClient
+            .post()
+            .uri(IMPORT_API_URL, "singer")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .bodyValue(ndjson)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.imported")
+            .isEqualTo(2)
+            .jsonPath("$.errors[*].line")
+            .value(contains(2, 3));
+
+        assertThat(singerRepository.findAll().map(Singer::getName).collectList().block()).containsExactlyInAnyOrder("A", "B");
+    }
+
+    @Test
+    void importRejectsFailingChunk() {
+        // The chunks hold two lines: the second one breaks the unique title constraint
+        String csv =
+            "title;published_at\n" +
+            "a;2021-06-07T05:40:47\n" +
+            "b;2021-06-07T05:40:47\n" +
+            "c;2021-06-07T05:40:47\n" +
+            "c;2021-06-07T05:40:47\n" +
+            "e;2021-06-07T05:40:47\n";
+
+        webTestClient
+            .post()
+            .uri(IMPORT_API_URL, "album")
+            .contentType(MediaType.parseMediaType("text/csv"))
+            .bodyValue(csv)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.imported")
+            .isEqualTo(3)
+            .jsonPath("$.errors[*].line")
+            .value(contains(4, 5));
+
+        assertThat(albumRepository.findAll().map(Album::getTitle).collectList().block()).containsExactlyInAnyOrder("a", "b", "e");
+    }
+
+    @Test
+    void importCsvExport() {
+        singerRepository.save(new Singer().name("two\nlines")).block();
+        singerRepository.save(new Singer().name("A;\"B\"")).block();
+        String csv = webTestClient
+            .get()
+            .uri(EXPORT_API_URL + "?format=csv", "singer")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+        SingerResourceIT.deleteEntities(em);
+
+        webTestClient
+            .post()
+            .uri(IMPORT_API_URL, "singer")
+            .contentType(MediaType.parseMediaType("text/csv"))
+            .bodyValue(csv + "3;\"unterminated\n")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.imported")
+            .isEqualTo(2)
+            .jsonPath("$.errors[*].line")
+            .value(contains(5))
+            .jsonPath("$.errors[0].message")
+            .isEqualTo("Unterminated quoted value");
+
+        assertThat(singerRepository.findAll().map(Singer::getName).collectList().block())
+            .containsExactlyInAnyOrder("two\nlines", "A;\"B\"");
+    }
+
+    @Test
+    void importUnknownColumn() {
+        webTestClient
+            .post()
+            .uri(IMPORT_API_URL, "singer")
+            .contentType(MediaType.parseMediaType("text/csv"))
+            .bodyValue("name;age\nA;42\n")
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
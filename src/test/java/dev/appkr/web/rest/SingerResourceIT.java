@@ -1,13 +1,17 @@
 package dev.appkr.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 
 import dev.appkr.IntegrationTest;
 import dev.appkr.domain.Singer;
 import dev.appkr.repository.SingerRepository;
+import dev.appkr.service.SingerService;
 import dev.appkr.service.EntityManager;
+import dev.appkr.service.PaginationService;
+import java.net.URI;
 import java.time.Duration;
 import java.util.List;
 import java.util.Random;
@@ -20,8 +24,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 /**
@@ -44,6 +50,12 @@ class SingerResourceIT {
     @Autowired
     private SingerRepository singerRepository;
 
+    @Autowired
+    private SingerService singerService;
+
+    @Autowired
+    private PaginationService paginationService;
+
     @Autowired
     private EntityManager em;
 
@@ -178,6 +190,167 @@ class SingerResourceIT {
             .value(hasItem(DEFAULT_NAME));
     }
 
+    @Test
+    void getAllSingersAsNdjson() {
+        // Initialize the database
+        singerRepository.save(createEntity(em)).block();
+        singerRepository.save(createEntity(em)).block();
+
+        // Get all the singerList, one JSON document per line
+        List<Singer> singerList = webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?sort=id,desc")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .expectHeader()
+            .valueEquals("X-Total-Count", "2")
+            .returnResult(Singer.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertThat(singerList).hasSize(2);
+    }
+
+    @Test
+    void getAllSingersWithCursor() {
+        // Initialize the database
+        singerRepository.save(createEntity(em).name("A")).block();
+        singerRepository.save(createEntity(em).name("B")).block();
+        singerRepository.save(createEntity(em).name("C")).block();
+
+        // Get the first page, then follow the next link
+        EntityExchangeResult<List<Singer>> firstPage = webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?after=&size=2&sort=name,desc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .doesNotExist("X-Total-Count")
+            .expectBodyList(Singer.class)
+            .returnResult();
+        assertThat(firstPage.getResponseBody()).extracting(Singer::getName).containsExactly("C", "B");
+
+        URI next = TestUtil.nextLink(firstPage.getResponseHeaders());
+        assertThat(next).isNotNull();
+
+        webTestClient
+            .get()
+            .uri(next)
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .doesNotExist(HttpHeaders.LINK)
+            .expectBody()
+            .jsonPath("$.[*].name")
+            .value(contains("A"));
+    }
+
+    @Test
+    void getAllSingersWithInvalidCursor() {
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?after=invalid&size=2")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    @Test
+    void getAllSingersWithoutCount() {
+        // Initialize the database
+        singerRepository.save(createEntity(em)).block();
+        singerRepository.save(createEntity(em)).block();
+        singerRepository.save(createEntity(em)).block();
+
+        // Get the first page, which has a next one
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=none&page=0&size=2&sort=id,desc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .doesNotExist("X-Total-Count")
+            .expectHeader()
+            .valueEquals("X-Has-Next-Page", "true")
+            .expectBody()
+            .jsonPath("$.length()")
+            .isEqualTo(2);
+
+        // Get the last page
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=none&page=1&size=2&sort=id,desc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Has-Next-Page", "false")
+            .expectBody()
+            .jsonPath("$.length()")
+            .isEqualTo(1);
+    }
+
+    @Test
+    void getAllSingersWithApproximateCount() {
+        // Initialize the database
+        paginationService.evictCount("singer");
+        singerRepository.save(createEntity(em)).block();
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=approximate&size=1")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "1");
+
+        // The count is cached, as long as nothing is saved through the service
+        singerRepository.save(createEntity(em)).block();
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=approximate&size=1")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "1");
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=exact")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "2");
+
+        singerService.save(createEntity(em)).block();
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=approximate&size=1")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "3");
+    }
+
     @Test
     void getSinger() {
         // Initialize the database
@@ -200,6 +373,47 @@ class SingerResourceIT {
             .value(is(DEFAULT_NAME));
     }
 
+    @Test
+    void getCachedSingerUntilUpdated() throws Exception {
+        // Initialize the database, and the cache
+        singerRepository.save(singer).block();
+        webTestClient.get().uri(ENTITY_API_URL_ID, singer.getId()).exchange().expectStatus().isOk();
+
+        // The cached singer is returned although the database changed behind the service
+        Singer updatedSinger = singerRepository.findById(singer.getId()).block();
+        updatedSinger.setName(UPDATED_NAME + "C");
+        singerRepository.save(updatedSinger).block();
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID, singer.getId())
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.name")
+            .value(is(DEFAULT_NAME));
+
+        // Updating it through the service evicts it
+        updatedSinger.setName(UPDATED_NAME);
+        webTestClient
+            .put()
+            .uri(ENTITY_API_URL_ID, updatedSinger.getId())
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(TestUtil.convertObjectToJsonBytes(updatedSinger))
+            .exchange()
+            .expectStatus()
+            .isOk();
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID, singer.getId())
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.name")
+            .value(is(UPDATED_NAME));
+    }
+
     @Test
     void getNonExistingSinger() {
         // Get the singer
@@ -1,13 +1,17 @@
 package dev.appkr.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 
 import dev.appkr.IntegrationTest;
 import dev.appkr.domain.Song;
 import dev.appkr.repository.SongRepository;
+import dev.appkr.service.SongService;
 import dev.appkr.service.EntityManager;
+import dev.appkr.service.PaginationService;
+import java.net.URI;
 import java.time.Duration;
 import java.util.List;
 import java.util.Random;
@@ -20,8 +24,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 /**
@@ -47,6 +53,12 @@ class SongResourceIT {
     @Autowired
     private SongRepository songRepository;
 
+    @Autowired
+    private SongService songService;
+
+    @Autowired
+    private PaginationService paginationService;
+
     @Autowired
     private EntityManager em;
 
@@ -205,6 +217,167 @@ class SongResourceIT {
             .value(hasItem(DEFAULT_PLAY_TIME));
     }
 
+    @Test
+    void getAllSongsAsNdjson() {
+        // Initialize the database
+        songRepository.save(createEntity(em)).block();
+        songRepository.save(createEntity(em)).block();
+
+        // Get all the songList, one JSON document per line
+        List<Song> songList = webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?sort=id,desc")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .expectHeader()
+            .valueEquals("X-Total-Count", "2")
+            .returnResult(Song.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertThat(songList).hasSize(2);
+    }
+
+    @Test
+    void getAllSongsWithCursor() {
+        // Initialize the database
+        songRepository.save(createEntity(em).title("A")).block();
+        songRepository.save(createEntity(em).title("B")).block();
+        songRepository.save(createEntity(em).title("C")).block();
+
+        // Get the first page, then follow the next link
+        EntityExchangeResult<List<Song>> firstPage = webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?after=&size=2&sort=title,desc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .doesNotExist("X-Total-Count")
+            .expectBodyList(Song.class)
+            .returnResult();
+        assertThat(firstPage.getResponseBody()).extracting(Song::getTitle).containsExactly("C", "B");
+
+        URI next = TestUtil.nextLink(firstPage.getResponseHeaders());
+        assertThat(next).isNotNull();
+
+        webTestClient
+            .get()
+            .uri(next)
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .doesNotExist(HttpHeaders.LINK)
+            .expectBody()
+            .jsonPath("$.[*].title")
+            .value(contains("A"));
+    }
+
+    @Test
+    void getAllSongsWithInvalidCursor() {
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?after=invalid&size=2")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    @Test
+    void getAllSongsWithoutCount() {
+        // Initialize the database
+        songRepository.save(createEntity(em)).block();
+        songRepository.save(createEntity(em)).block();
+        songRepository.save(createEntity(em)).block();
+
+        // Get the first page, which has a next one
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=none&page=0&size=2&sort=id,desc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .doesNotExist("X-Total-Count")
+            .expectHeader()
+            .valueEquals("X-Has-Next-Page", "true")
+            .expectBody()
+            .jsonPath("$.length()")
+            .isEqualTo(2);
+
+        // Get the last page
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=none&page=1&size=2&sort=id,desc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Has-Next-Page", "false")
+            .expectBody()
+            .jsonPath("$.length()")
+            .isEqualTo(1);
+    }
+
+    @Test
+    void getAllSongsWithApproximateCount() {
+        // Initialize the database
+        paginationService.evictCount("song");
+        songRepository.save(createEntity(em)).block();
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=approximate&size=1")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "1");
+
+        // The count is cached, as long as nothing is saved through the service
+        songRepository.save(createEntity(em)).block();
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=approximate&size=1")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "1");
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=exact")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "2");
+
+        songService.save(createEntity(em)).block();
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?count=approximate&size=1")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "3");
+    }
+
     @Test
     void getSong() {
         // Initialize the database
@@ -229,6 +402,28 @@ class SongResourceIT {
             .value(is(DEFAULT_PLAY_TIME));
     }
 
+    @Test
+    void getSongWithSparseFieldset() {
+        // Initialize the database
+        songRepository.save(song).block();
+
+        // Get the requested fields only
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID + "?fields=title", song.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.title")
+            .value(is(DEFAULT_TITLE))
+            .jsonPath("$.id")
+            .doesNotExist()
+            .jsonPath("$.playTime")
+            .doesNotExist();
+    }
+
     @Test
     void getNonExistingSong() {
         // Get the song
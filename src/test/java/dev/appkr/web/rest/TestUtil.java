@@ -8,9 +8,12 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.net.URI;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
@@ -19,6 +22,7 @@ import javax.persistence.criteria.Root;
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeDiagnosingMatcher;
 import org.hamcrest.TypeSafeMatcher;
+import org.springframework.http.HttpHeaders;
 
 /**
  * Utility class for testing REST controllers.
@@ -27,6 +31,8 @@ public final class TestUtil {
 
     private static final ObjectMapper mapper = createObjectMapper();
 
+    private static final Pattern NEXT_LINK_PATTERN = Pattern.compile("<([^>]*)>; rel=\"next\"");
+
     private static ObjectMapper createObjectMapper() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS, false);
@@ -187,5 +193,19 @@ public final class TestUtil {
         return allQuery.getResultList();
     }
 
+    /**
+     * Extracts the {@code next} link from the {@code Link} header of a paginated response.
+     * @param headers the response headers.
+     * @return the URI of the next page, or null if there is none.
+     */
+    public static URI nextLink(HttpHeaders headers) {
+        String link = headers.getFirst(HttpHeaders.LINK);
+        if (link == null) {
+            return null;
+        }
+        Matcher matcher = NEXT_LINK_PATTERN.matcher(link);
+        return matcher.find() ? URI.create(matcher.group(1)) : null;
+    }
+
     private TestUtil() {}
 }
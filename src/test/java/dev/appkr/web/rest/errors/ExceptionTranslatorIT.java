@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -36,6 +37,23 @@ class ExceptionTranslatorIT {
             .isEqualTo(ErrorConstants.ERR_CONCURRENCY_FAILURE);
     }
 
+    @Test
+    void testRejectedExecution() {
+        webTestClient
+            .get()
+            .uri("/api/exception-translator-test/rejected-execution")
+            .exchange()
+            .expectStatus()
+            .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+            .expectHeader()
+            .valueEquals(HttpHeaders.RETRY_AFTER, "1")
+            .expectHeader()
+            .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+            .expectBody()
+            .jsonPath("$.message")
+            .isEqualTo(ErrorConstants.ERR_OVERLOADED);
+    }
+
     @Test
     void testMethodArgumentNotValid() {
         webTestClient